@@ -3,6 +3,7 @@ package com.jeremy.chess;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,8 @@ import java.util.Enumeration;
  */
 @SpringBootApplication
 public class ChessGameApplication {
+	/** Startup steps kept for the report logged once the application is ready. */
+	private static final int STARTUP_STEP_CAPACITY = 4096;
 
 	@Autowired
 	private Environment environment;
@@ -29,11 +32,23 @@ public class ChessGameApplication {
 	 * @param args Command line arguments
 	 */
 	public static void main(String[] args) {
-		SpringApplication.run(ChessGameApplication.class, args);
+		SpringApplication application = new SpringApplication(ChessGameApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+		application.run(args);
 	}
 
+	/**
+	 * Prints the local and network URLs. Walking the network interfaces can take a while,
+	 * so it happens off the main thread rather than holding back readiness.
+	 */
 	@EventListener(ApplicationReadyEvent.class)
 	public void printApplicationUrl() {
+		Thread thread = new Thread(this::printUrls, "chess-banner");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void printUrls() {
 		try {
 			String localIp = findLocalIpAddress();
 			String port = environment.getProperty("server.port", "8080");
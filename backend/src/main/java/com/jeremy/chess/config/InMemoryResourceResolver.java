@@ -0,0 +1,101 @@
+package com.jeremy.chess.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Reads small static resources into memory once they are resolved. Placed below the
+ * chain's cache, each path and encoding is read once and then served from the heap.
+ * Headers from the resolved resource, such as Content-Encoding for a precompressed
+ * variant, are kept.
+ */
+public class InMemoryResourceResolver extends AbstractResourceResolver {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryResourceResolver.class);
+
+    private final long maxBytes;
+
+    /**
+     * Creates a resolver.
+     *
+     * @param maxBytes Resources larger than this are left to stream from their source
+     */
+    public InMemoryResourceResolver(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            if (resource.contentLength() > maxBytes) {
+                return resource;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                return new InMemoryResource(resource, in.readAllBytes());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to buffer {}: {}", resource, e.getMessage());
+            return resource;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    /**
+     * A resource's bytes, with the original's name, modification time and headers.
+     */
+    private static final class InMemoryResource extends ByteArrayResource implements HttpResource {
+        private final Resource original;
+        private final long lastModified;
+
+        private InMemoryResource(Resource original, byte[] bytes) throws IOException {
+            super(bytes, original.getDescription());
+            this.original = original;
+            this.lastModified = original.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return original instanceof HttpResource httpResource ? httpResource.getResponseHeaders() : new HttpHeaders();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.jeremy.chess.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+/**
+ * The class of an inbound STOMP frame, which decides the executor lane it runs on and the
+ * rate limit it is charged to. Lanes are listed most urgent first.
+ */
+public enum InboundLane {
+    /** Moves and takebacks, i.e. anything a running clock is waiting on. */
+    MOVE,
+    /** Joining, claiming seats, subscribing and everything not listed elsewhere. */
+    CONTROL,
+    /** Chat and lobby list requests. */
+    BULK;
+
+    /**
+     * Classifies a frame by its type and destination.
+     *
+     * @param message The inbound frame
+     * @return The lane to run it on
+     */
+    public static InboundLane of(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return CONTROL;  // CONNECT, SUBSCRIBE, DISCONNECT and heartbeats
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return CONTROL;
+        }
+        switch (destination) {
+            case "/app/move":
+            case "/app/takeback":
+            case "/app/puzzle/move":
+                return MOVE;
+            default:
+                return destination.startsWith("/app/chat") || destination.startsWith("/app/lobbies") ? BULK : CONTROL;
+        }
+    }
+}
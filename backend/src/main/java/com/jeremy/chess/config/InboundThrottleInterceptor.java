@@ -0,0 +1,85 @@
+package com.jeremy.chess.config;
+
+import com.jeremy.chess.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limits inbound SEND frames per session and {@link InboundLane}. The check runs on
+ * the transport thread before the frame is queued, so a session over its limit costs a
+ * map lookup and never occupies a lane. Other frame types pass untouched, and a session's
+ * buckets go away with its DISCONNECT frame.
+ */
+public class InboundThrottleInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(InboundThrottleInterceptor.class);
+    private static final InboundLane[] LANES = InboundLane.values();
+
+    private final WebSocketProperties.Throttle throttle;
+    private final Map<String, TokenBucket[]> buckets = new ConcurrentHashMap<>();
+    private final Map<InboundLane, Counter> accepted = new EnumMap<>(InboundLane.class);
+    private final Map<InboundLane, Counter> throttled = new EnumMap<>(InboundLane.class);
+
+    public InboundThrottleInterceptor(WebSocketProperties.Throttle throttle, MeterRegistry meterRegistry) {
+        this.throttle = throttle;
+        for (InboundLane lane : LANES) {
+            String name = lane.name().toLowerCase();
+            accepted.put(lane, Counter.builder("chess.ws.inbound.frames")
+                    .description("Inbound STOMP frames accepted")
+                    .tag("lane", name)
+                    .tag("outcome", "accepted")
+                    .register(meterRegistry));
+            throttled.put(lane, Counter.builder("chess.ws.inbound.frames")
+                    .description("Inbound STOMP frames dropped by the per-session rate limit")
+                    .tag("lane", name)
+                    .tag("outcome", "throttled")
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        if (type == SimpMessageType.DISCONNECT) {
+            buckets.remove(sessionId);
+            return message;
+        }
+        if (type != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        InboundLane lane = InboundLane.of(message);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.computeIfAbsent(sessionId, id -> newBuckets(now))[lane.ordinal()];
+        if (!bucket.tryAcquire(now)) {
+            throttled.get(lane).increment();
+            logger.debug("Throttled {} from session {}", SimpMessageHeaderAccessor.getDestination(message.getHeaders()), sessionId);
+            return null;
+        }
+        accepted.get(lane).increment();
+        return message;
+    }
+
+    private TokenBucket[] newBuckets(long now) {
+        TokenBucket[] sessionBuckets = new TokenBucket[LANES.length];
+        for (InboundLane lane : LANES) {
+            WebSocketProperties.Rate rate = throttle.get(lane);
+            sessionBuckets[lane.ordinal()] = new TokenBucket(rate.getBurst(), rate.getPerSecond(), now);
+        }
+        return sessionBuckets;
+    }
+}
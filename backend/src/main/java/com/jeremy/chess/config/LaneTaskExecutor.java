@@ -0,0 +1,65 @@
+package com.jeremy.chess.config;
+
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Executor for the client inbound channel that runs each {@link InboundLane} on its own
+ * pool, so a flood of chat or lobby list requests queues behind itself rather than in
+ * front of everyone's moves. This executor's own pool is the move lane; Spring sizes and
+ * names it like the single pool it replaces.
+ *
+ * <p>Per-session ordering is unaffected: with receive order preserved, a session's next
+ * frame is only dispatched once its previous one has been handled, whichever lane ran it.
+ */
+public class LaneTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final Map<InboundLane, ThreadPoolTaskExecutor> lanes = new EnumMap<>(InboundLane.class);
+
+    /**
+     * Creates the executor. The move lane is configured through the usual setters.
+     *
+     * @param control The pool for joins, claims and subscriptions
+     * @param bulk The pool for chat and lobby list requests
+     */
+    public LaneTaskExecutor(WebSocketProperties.Pool control, WebSocketProperties.Pool bulk) {
+        lanes.put(InboundLane.CONTROL, lane("clientInboundControl-", control));
+        lanes.put(InboundLane.BULK, lane("clientInboundBulk-", bulk));
+    }
+
+    @Override
+    public void initialize() {
+        lanes.values().forEach(ThreadPoolTaskExecutor::initialize);
+        super.initialize();
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        lanes.values().forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ThreadPoolTaskExecutor lane = task instanceof MessageHandlingRunnable runnable
+                ? lanes.get(InboundLane.of(runnable.getMessage())) : null;
+        if (lane != null) {
+            lane.execute(task);
+        } else {
+            super.execute(task);
+        }
+    }
+
+    private static ThreadPoolTaskExecutor lane(String threadNamePrefix, WebSocketProperties.Pool pool) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(pool.getCorePoolSize());
+        executor.setMaxPoolSize(pool.getMaxPoolSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds(pool.getKeepAliveSeconds());
+        return executor;
+    }
+}
@@ -0,0 +1,79 @@
+package com.jeremy.chess.config;
+
+import com.jeremy.chess.service.SpectatorService;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * Tells the {@link SpectatorService} when a spectator frame has been written to its
+ * session, so the next conflated frame can go out. The session seen by the STOMP
+ * handler is wrapped beneath its send buffer, so a frame counts as delivered only once
+ * it leaves that buffer, not when it joins it behind other traffic for the session.
+ */
+public class SpectatorDeliveryDecorator implements WebSocketHandlerDecoratorFactory {
+    private static final String MESSAGE_COMMAND = "MESSAGE\n";
+    private static final String DESTINATION_HEADER = "destination:";
+    private static final String SPECTATE_DESTINATION = "/user" + SpectatorService.SPECTATE_DESTINATION;
+
+    private final SpectatorService spectatorService;
+
+    public SpectatorDeliveryDecorator(SpectatorService spectatorService) {
+        this.spectatorService = spectatorService;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new DeliveryTrackingSession(session));
+            }
+        };
+    }
+
+    /**
+     * Checks whether an outbound STOMP frame is a spectator frame, reading only its headers.
+     *
+     * @param frame The encoded frame
+     * @return true if the frame is a MESSAGE for the spectator queue
+     */
+    static boolean isSpectatorFrame(String frame) {
+        if (!frame.startsWith(MESSAGE_COMMAND)) {
+            return false;
+        }
+        int line = MESSAGE_COMMAND.length();
+        while (line < frame.length()) {
+            int end = frame.indexOf('\n', line);
+            if (end <= line) {
+                return false;  // A blank line ends the headers
+            }
+            if (frame.startsWith(DESTINATION_HEADER, line)) {
+                return frame.startsWith(SPECTATE_DESTINATION, line + DESTINATION_HEADER.length());
+            }
+            line = end + 1;
+        }
+        return false;
+    }
+
+    private final class DeliveryTrackingSession extends WebSocketSessionDecorator {
+
+        private DeliveryTrackingSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            if (message instanceof TextMessage && isSpectatorFrame(((TextMessage) message).getPayload())) {
+                spectatorService.onDelivered(getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jeremy.chess.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Logs the slowest startup steps once the application is ready. Steps are recorded by the
+ * {@link BufferingApplicationStartup} installed in {@code main}; the buffer is drained here
+ * so it does not hold on to them afterwards.
+ */
+@Component
+public class StartupReporter {
+    private static final Logger logger = LoggerFactory.getLogger(StartupReporter.class);
+
+    @Value("${chess.startup.report-steps:10}")
+    private int reportSteps;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup buffering)) {
+            return;
+        }
+        List<StartupTimeline.TimelineEvent> steps = new ArrayList<>(buffering.drainBufferedTimeline().getEvents());
+        if (reportSteps <= 0 || steps.isEmpty()) {
+            return;
+        }
+        steps.sort(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed());
+        StringBuilder report = new StringBuilder("Started in ")
+                .append(event.getTimeTaken().toMillis()).append(" ms; slowest of ")
+                .append(steps.size()).append(" steps:");
+        for (int i = 0; i < Math.min(reportSteps, steps.size()); i++) {
+            StartupTimeline.TimelineEvent step = steps.get(i);
+            report.append(String.format("%n  %6d ms  %s", step.getDuration().toMillis(), step.getStartupStep().getName()));
+            for (StartupStep.Tag tag : step.getStartupStep().getTags()) {
+                report.append(' ').append(tag.getKey()).append('=').append(tag.getValue());
+            }
+        }
+        logger.info(report.toString());
+    }
+}
@@ -1,13 +1,18 @@
 package com.jeremy.chess.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+    private static final long IN_MEMORY_MAX_BYTES = 4 * 1024 * 1024;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -20,8 +25,20 @@ public class WebConfig implements WebMvcConfigurer {
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Vite names bundles after their content hash, so a URL's content never changes
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new InMemoryResourceResolver(IN_MEMORY_MAX_BYTES))
+                .addResolver(new EncodedResourceResolver());
+        // index.html keeps its name across builds, so clients revalidate it on every load
         registry.addResourceHandler("/**")
-                .addResourceLocations("classpath:/static/");
+                .addResourceLocations("classpath:/static/")
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true)
+                .addResolver(new InMemoryResourceResolver(IN_MEMORY_MAX_BYTES))
+                .addResolver(new EncodedResourceResolver());
     }
 
     @Override
@@ -1,25 +1,90 @@
 package com.jeremy.chess.config;
 
+import com.jeremy.chess.service.SpectatorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties(WebSocketProperties.class)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private WebSocketProperties properties;
+
+    @Autowired
+    @Lazy
+    private SpectatorService spectatorService;
+
+    @Autowired
+    @Lazy
+    private MeterRegistry meterRegistry;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic"); // Enables a simple memory-based message broker
+        WebSocketProperties.Heartbeat heartbeat = properties.getHeartbeat();
+        config.enableSimpleBroker("/topic", "/queue") // Enables a simple memory-based message broker
+                .setHeartbeatValue(new long[] { heartbeat.getServerMs(), heartbeat.getClientMs() })
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app"); // Prefix for messages that are bound for methods annotated with @MessageMapping
+        config.setPreservePublishOrder(properties.isPreservePublishOrder()); // Keep per-session delivery in publish order
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(properties.isPreserveReceiveOrder()); // Handle one session's frames in arrival order
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS(); // Enables SockJS fallback options
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        WebSocketProperties.Lanes lanes = properties.getLanes();
+        applyPool(registration.taskExecutor(new LaneTaskExecutor(lanes.getControl(), lanes.getBulk())), properties.getInbound());
+        if (properties.getThrottle().isEnabled()) {
+            registration.interceptors(new InboundThrottleInterceptor(properties.getThrottle(), meterRegistry));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        applyPool(registration.taskExecutor(), properties.getOutbound());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        WebSocketProperties.Transport transport = properties.getTransport();
+        registration.setSendTimeLimit(transport.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(transport.getSendBufferSizeLimit())
+                .setMessageSizeLimit(transport.getMessageSizeLimit())
+                .setTimeToFirstMessage(transport.getTimeToFirstMessageMs())
+                .addDecoratorFactory(new SpectatorDeliveryDecorator(spectatorService));
+    }
+
+    private void applyPool(TaskExecutorRegistration registration, WebSocketProperties.Pool pool) {
+        registration.corePoolSize(pool.getCorePoolSize())
+                .maxPoolSize(pool.getMaxPoolSize())
+                .queueCapacity(pool.getQueueCapacity())
+                .keepAliveSeconds(pool.getKeepAliveSeconds());
+    }
+}
@@ -0,0 +1,283 @@
+package com.jeremy.chess.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tuning knobs for the STOMP/WebSocket layer, bound from {@code chess.ws.*}.
+ * Defaults mirror what Spring would pick on its own, so an empty configuration
+ * behaves like the untuned broker did.
+ */
+@ConfigurationProperties(prefix = "chess.ws")
+public class WebSocketProperties {
+
+    /**
+     * Handle frames from one session in the order they were received.
+     */
+    private boolean preserveReceiveOrder = true;
+
+    /**
+     * Deliver broker messages to one session in the order they were published.
+     */
+    private boolean preservePublishOrder = true;
+
+    private final Pool inbound = new Pool();
+    private final Pool outbound = new Pool();
+    private final Transport transport = new Transport();
+    private final Heartbeat heartbeat = new Heartbeat();
+    private final Lanes lanes = new Lanes();
+    private final Throttle throttle = new Throttle();
+
+    public boolean isPreserveReceiveOrder() {
+        return preserveReceiveOrder;
+    }
+
+    public void setPreserveReceiveOrder(boolean preserveReceiveOrder) {
+        this.preserveReceiveOrder = preserveReceiveOrder;
+    }
+
+    public boolean isPreservePublishOrder() {
+        return preservePublishOrder;
+    }
+
+    public void setPreservePublishOrder(boolean preservePublishOrder) {
+        this.preservePublishOrder = preservePublishOrder;
+    }
+
+    public Pool getInbound() {
+        return inbound;
+    }
+
+    public Pool getOutbound() {
+        return outbound;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public Heartbeat getHeartbeat() {
+        return heartbeat;
+    }
+
+    public Lanes getLanes() {
+        return lanes;
+    }
+
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Thread pool backing a client channel.
+     */
+    public static class Pool {
+        private int corePoolSize;
+        private int maxPoolSize = Integer.MAX_VALUE;
+        private int queueCapacity = Integer.MAX_VALUE;
+        private int keepAliveSeconds = 60;
+
+        public Pool() {
+            this(Runtime.getRuntime().availableProcessors() * 2);
+        }
+
+        public Pool(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getKeepAliveSeconds() {
+            return keepAliveSeconds;
+        }
+
+        public void setKeepAliveSeconds(int keepAliveSeconds) {
+            this.keepAliveSeconds = keepAliveSeconds;
+        }
+    }
+
+    /**
+     * Per-session limits applied by the WebSocket transport. A session that
+     * exceeds the send time or buffer limit is closed instead of holding an
+     * outbound thread hostage.
+     */
+    public static class Transport {
+        private int sendTimeLimitMs = 10_000;
+        private int sendBufferSizeLimit = 512 * 1024;
+        private int messageSizeLimit = 64 * 1024;
+        private int timeToFirstMessageMs = 60_000;
+
+        public int getSendTimeLimitMs() {
+            return sendTimeLimitMs;
+        }
+
+        public void setSendTimeLimitMs(int sendTimeLimitMs) {
+            this.sendTimeLimitMs = sendTimeLimitMs;
+        }
+
+        public int getSendBufferSizeLimit() {
+            return sendBufferSizeLimit;
+        }
+
+        public void setSendBufferSizeLimit(int sendBufferSizeLimit) {
+            this.sendBufferSizeLimit = sendBufferSizeLimit;
+        }
+
+        public int getMessageSizeLimit() {
+            return messageSizeLimit;
+        }
+
+        public void setMessageSizeLimit(int messageSizeLimit) {
+            this.messageSizeLimit = messageSizeLimit;
+        }
+
+        public int getTimeToFirstMessageMs() {
+            return timeToFirstMessageMs;
+        }
+
+        public void setTimeToFirstMessageMs(int timeToFirstMessageMs) {
+            this.timeToFirstMessageMs = timeToFirstMessageMs;
+        }
+    }
+
+    /**
+     * STOMP heartbeats sent and expected by the simple broker. Zero disables
+     * the corresponding direction.
+     */
+    public static class Heartbeat {
+        private long serverMs = 10_000;
+        private long clientMs = 10_000;
+
+        public long getServerMs() {
+            return serverMs;
+        }
+
+        public void setServerMs(long serverMs) {
+            this.serverMs = serverMs;
+        }
+
+        public long getClientMs() {
+            return clientMs;
+        }
+
+        public void setClientMs(long clientMs) {
+            this.clientMs = clientMs;
+        }
+    }
+
+    /**
+     * Pools for the inbound lanes other than moves, which run on the inbound pool.
+     * The bulk lane is kept small so chat and lobby list floods cannot take the CPU
+     * from moves.
+     */
+    public static class Lanes {
+        private final Pool control = new Pool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        private final Pool bulk = new Pool(2);
+
+        public Pool getControl() {
+            return control;
+        }
+
+        public Pool getBulk() {
+            return bulk;
+        }
+    }
+
+    /**
+     * Per-session token buckets for inbound SEND frames, one per lane. Frames over the
+     * limit are dropped before they are queued.
+     */
+    public static class Throttle {
+        private boolean enabled = true;
+        private final Rate move = new Rate(10, 20);
+        private final Rate control = new Rate(5, 20);
+        private final Rate bulk = new Rate(2, 10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Rate getMove() {
+            return move;
+        }
+
+        public Rate getControl() {
+            return control;
+        }
+
+        public Rate getBulk() {
+            return bulk;
+        }
+
+        /**
+         * Gets the limit for a lane.
+         *
+         * @param lane The lane
+         * @return The lane's rate
+         */
+        public Rate get(InboundLane lane) {
+            switch (lane) {
+                case MOVE:
+                    return move;
+                case CONTROL:
+                    return control;
+                default:
+                    return bulk;
+            }
+        }
+    }
+
+    /**
+     * A sustained rate plus the burst allowed on top of it.
+     */
+    public static class Rate {
+        private double perSecond;
+        private int burst;
+
+        public Rate(double perSecond, int burst) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+        }
+
+        public double getPerSecond() {
+            return perSecond;
+        }
+
+        public void setPerSecond(double perSecond) {
+            this.perSecond = perSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
@@ -2,35 +2,91 @@ package com.jeremy.chess.controller;
 
 import com.jeremy.chess.model.ChessMove;
 import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.model.LobbyQuery;
+import com.jeremy.chess.service.BookService;
 import com.jeremy.chess.service.ChessService;
+import com.jeremy.chess.service.EventStreamService;
+import com.jeremy.chess.service.ExplorerService;
+import com.jeremy.chess.service.ImportService;
+import com.jeremy.chess.service.RatingService;
+import com.jeremy.chess.model.BoardSnapshot;
+import com.jeremy.chess.util.LobbyIndex;
+import com.jeremy.chess.util.PolyglotBook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.Map;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @CrossOrigin(origins = "http://localhost:5173") // Allow frontend requests
 @RestController
 @RequestMapping("/game")
 public class ChessController {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
 
     @Autowired
     private ChessService chessService;
 
     @Autowired
-    private ChessWebSocketController webSocketController;
+    private RatingService ratingService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ExplorerService explorerService;
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private ImportService importService;
 
     @PostMapping("/lobby")
-    public Lobby createLobby(@RequestParam(required = false) String name) {
-        Lobby lobby = chessService.createLobby(name != null ? name : "Unnamed Lobby");
-        webSocketController.sendLobbyUpdate();
+    public Lobby createLobby(@RequestParam(required = false) String name,
+                             @RequestParam(required = false) Long baseSeconds,
+                             @RequestParam(required = false, defaultValue = "0") long incrementSeconds) {
+        String lobbyName = name != null ? name : "Unnamed Lobby";
+        Lobby lobby = baseSeconds != null
+            ? chessService.createLobby(lobbyName, baseSeconds * 1000, incrementSeconds * 1000)
+            : chessService.createLobby(lobbyName);
         return lobby;
     }
 
     @GetMapping("/state/{lobbyId}")
-    public Map<String, String> getBoardState(@PathVariable String lobbyId) {
-        return chessService.getBoardState(lobbyId);
+    public ResponseEntity<byte[]> getBoardState(@PathVariable String lobbyId,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Lobby lobby = chessService.getLobby(lobbyId);
+        if (lobby == null) {
+            return ResponseEntity.ok().build();
+        }
+        // Read the version before the state, so a change in between makes the tag stale rather than wrong
+        String etag = etag(lobby.getVersion());
+        if (isNotModified(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        BoardSnapshot snapshot = chessService.getSnapshot(lobbyId);
+        if (snapshot == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getBoardJson());
     }
 
     @PostMapping("/move/{lobbyId}")
@@ -39,9 +95,44 @@ public class ChessController {
         return chessService.makeMove(lobbyId, move, playerId);
     }
 
+    /**
+     * Gets the position after a number of half-moves, for replays and jumping to a move.
+     */
+    @GetMapping("/position/{lobbyId}")
+    public ResponseEntity<Map<String, Object>> getPosition(@PathVariable String lobbyId, @RequestParam int ply) {
+        try {
+            Map<String, Object> position = chessService.getPosition(lobbyId, ply);
+            return position != null ? ResponseEntity.ok(position) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/lobbies")
-    public Collection<Lobby> getLobbies() {
-        return chessService.getLobbies();
+    public ResponseEntity<byte[]> getLobbies(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(chessService.getLobbiesVersion());
+        if (isNotModified(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(chessService.getLobbiesJson());
+    }
+
+    /**
+     * Gets one page of lobbies, filtered by status and name prefix, e.g.
+     * {@code /game/lobbies/search?status=open&limit=20}; pass the returned nextCursor
+     * as cursor for the page after it.
+     */
+    @GetMapping("/lobbies/search")
+    public ResponseEntity<LobbyIndex.Page> searchLobbies(LobbyQuery query) {
+        try {
+            return ResponseEntity.ok(chessService.findLobbies(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PostMapping("/disconnect/{lobbyId}")
@@ -57,10 +148,113 @@ public class ChessController {
     }
 
     @GetMapping("/players/{lobbyId}")
-    public Map<String, String> getPlayers(@PathVariable String lobbyId) {
-        return Map.of(
+    public ResponseEntity<Map<String, String>> getPlayers(@PathVariable String lobbyId,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Lobby lobby = chessService.getLobby(lobbyId);
+        String etag = lobby != null ? etag(lobby.getVersion()) : null;
+        if (etag != null && isNotModified(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        Map<String, String> players = Map.of(
             "whitePlayerId", chessService.getWhitePlayerId(lobbyId) != null ? chessService.getWhitePlayerId(lobbyId) : "",
             "blackPlayerId", chessService.getBlackPlayerId(lobbyId) != null ? chessService.getBlackPlayerId(lobbyId) : ""
         );
+        if (etag == null) {
+            return ResponseEntity.ok(players);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(players);
+    }
+
+    @GetMapping(value = "/events/{lobbyId}", params = "!since", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable String lobbyId,
+                                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (chessService.getLobby(lobbyId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long lastSeen = -1;
+        if (lastEventId != null) {
+            try {
+                lastSeen = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(eventStreamService.stream(lobbyId, lastSeen));
+    }
+
+    @GetMapping(value = "/events/{lobbyId}", params = "since")
+    public DeferredResult<ResponseEntity<byte[]>> pollEvents(@PathVariable String lobbyId, @RequestParam long since) {
+        if (chessService.getLobby(lobbyId) == null) {
+            DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+        return eventStreamService.poll(lobbyId, since);
+    }
+
+    @GetMapping("/leaderboard")
+    public List<RatingService.LeaderboardEntry> getLeaderboard(@RequestParam(required = false, defaultValue = "50") int limit) {
+        return ratingService.getTop(Math.max(0, Math.min(limit, 500)));
+    }
+
+    @GetMapping("/rating/{playerId}")
+    public ResponseEntity<RatingService.LeaderboardEntry> getRating(@PathVariable String playerId) {
+        RatingService.LeaderboardEntry entry = ratingService.getEntry(playerId);
+        return entry != null ? ResponseEntity.ok(entry) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/book/{lobbyId}")
+    public ResponseEntity<List<PolyglotBook.Entry>> getBookMoves(@PathVariable String lobbyId) {
+        List<PolyglotBook.Entry> moves = bookService.getBookMoves(lobbyId);
+        return moves != null ? ResponseEntity.ok(moves) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/explorer")
+    public ResponseEntity<Map<String, Object>> getExplorerStats(@RequestParam String fen) {
+        try {
+            return ResponseEntity.ok(explorerService.getStats(fen));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Imports a multi-game PGN file sent as the raw request body, optionally gzip-encoded.
+     * The response comes once every game is processed; meanwhile progress is at GET /game/import.
+     */
+    @PostMapping("/import")
+    public ImportService.ImportJob importGames(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body, 1 << 16);
+        }
+        return importService.importPgn(body);
+    }
+
+    @GetMapping("/import")
+    public Collection<ImportService.ImportJob> getImports() {
+        return importService.getJobs();
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ImportService.ImportJob> getImport(@PathVariable String id) {
+        ImportService.ImportJob job = importService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Builds a strong ETag from a version counter. Counters restart with the server,
+     * so the tag also carries the server's start time.
+     */
+    private static String etag(long version) {
+        return "\"" + EPOCH + "-" + version + "\"";
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"));
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
     }
 }
@@ -1,90 +1,179 @@
 package com.jeremy.chess.controller;
 
+import com.jeremy.chess.model.BoardSnapshot;
 import com.jeremy.chess.model.ChessMove;
 import com.jeremy.chess.model.GameMessage;
 import com.jeremy.chess.model.ChatMessage;
 import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.model.LobbyQuery;
+import com.jeremy.chess.model.MatchRequest;
+import com.jeremy.chess.service.ChatService;
 import com.jeremy.chess.service.ChessService;
+import com.jeremy.chess.service.GameEndedEvent;
+import com.jeremy.chess.service.GameEventLog;
+import com.jeremy.chess.service.MatchmakingService;
+import com.jeremy.chess.service.PuzzleService;
+import com.jeremy.chess.service.SpectatorService;
 import com.jeremy.chess.util.MoveParser;
+import com.jeremy.chess.util.PuzzleDatabase;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
 import java.util.Map;
-import java.util.Collection;
 import java.util.HashMap;
 
 @Controller
 public class ChessWebSocketController {
+    private static final String LOBBY_PAGE_DESTINATION = "/queue/lobbies";
 
     @Autowired
     private ChessService chessService;
+
+    @Autowired
+    private SpectatorService spectatorService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Autowired
+    private MatchmakingService matchmakingService;
+
+    @Autowired
+    private PuzzleService puzzleService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @MessageMapping("/move")
-    @SendTo("/topic/game")
-    public GameMessage handleMove(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleMove(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
         String playerId = headerAccessor.getSessionId();
         ChessMove move = convertToChessMove(message.getContent());
-        Map<String, String> newState = chessService.makeMove(message.getLobbyId(), move, playerId);
+        BoardSnapshot snapshot = chessService.makeMoveForSnapshot(message.getLobbyId(), move, playerId);
         
-        if (newState != null) {
-            // Send lobby update after move
-            sendLobbyUpdate();
-            
-            // Get the lobby to check game end state and check status
-            Lobby lobby = chessService.getLobby(message.getLobbyId());
-            
-            // Return game state with end state information if available
-            GameMessage response = new GameMessage(
-                message.getLobbyId(),
-                "MOVE",
-                newState,
-                lobby.isWhiteTurn(),
-                lobby.isGameOver(),
-                lobby.getWinningTeam(),
-                lobby.getGameEndReason()
-            );
-            
-            // Set check status for the current player
-            response.setInCheck(lobby.isInCheck(lobby.isWhiteTurn()));
+        // Rejected moves publish nothing, so they cannot use up event sequence numbers or replay slots
+        if (snapshot != null) {
             
-            return response;
+            // Broadcast the state message, serialized once per move and shared by all subscribers
+            gameEventLog.publish(message.getLobbyId(), snapshot.getMoveMessage());
+            spectatorService.publish(message.getLobbyId(), snapshot.getMoveMessage());
+        }
+    }
+
+    /**
+     * Asks to take back moves. The opponent is told about a new request; once both
+     * players have asked, the position before the taken-back moves is broadcast.
+     */
+    @MessageMapping("/takeback")
+    public void handleTakeback(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        String lobbyId = message.getLobbyId();
+        String playerId = headerAccessor.getSessionId();
+        Boolean takenBack = chessService.requestTakeback(lobbyId, playerId);
+        if (takenBack == null) {
+            return;
         }
-        return null;
+        if (takenBack) {
+            BoardSnapshot snapshot = chessService.getSnapshot(lobbyId);
+            gameEventLog.publish(lobbyId, snapshot.getMoveMessage());
+            spectatorService.publish(lobbyId, snapshot.getMoveMessage());
+        } else {
+            gameEventLog.publish(lobbyId, new GameMessage(lobbyId, "TAKEBACK_REQUEST", playerId, chessService.isWhiteTurn(lobbyId)));
+        }
+    }
+
+    @MessageMapping("/spectate")
+    public void handleSpectate(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        BoardSnapshot snapshot = chessService.getSnapshot(message.getLobbyId());
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Lobby not found: " + message.getLobbyId());
+        }
+        spectatorService.addSpectator(message.getLobbyId(), headerAccessor.getSessionId(), snapshot.getMoveMessage());
+    }
+
+    @MessageMapping("/spectate/leave")
+    public void handleSpectateLeave(SimpMessageHeaderAccessor headerAccessor) {
+        spectatorService.removeSpectator(headerAccessor.getSessionId());
     }
 
     @MessageMapping("/join")
-    @SendTo("/topic/game")
-    public GameMessage handleJoin(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleJoin(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
         String playerId = headerAccessor.getSessionId();
         chessService.joinLobby(message.getLobbyId(), playerId);
-        Map<String, String> boardState = chessService.getBoardState(message.getLobbyId());
         
-        // Send lobby update after join
-        sendLobbyUpdate();
-        
-        // Send player information and turn state
+        gameEventLog.publish(message.getLobbyId(), createStateMessage(message.getLobbyId()));
+    }
+
+    /**
+     * Sends a reconnecting client the events it missed since the sequence number in the
+     * message's content, or the full state if they are no longer in the log.
+     */
+    @MessageMapping("/resume")
+    public void handleResume(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        String lobbyId = message.getLobbyId();
+        if (chessService.getLobby(lobbyId) == null) {
+            throw new IllegalArgumentException("Lobby not found: " + lobbyId);
+        }
+        long lastSeen = message.getContent() instanceof Number ? ((Number) message.getContent()).longValue() : -1;
+
+        List<byte[]> missed = gameEventLog.since(lobbyId, lastSeen);
+        GameMessage reply;
+        if (missed != null) {
+            StringBuilder events = new StringBuilder("[");
+            for (byte[] event : missed) {
+                events.append(events.length() > 1 ? "," : "").append(new String(event, StandardCharsets.UTF_8));
+            }
+            reply = new GameMessage(lobbyId, "EVENTS", new RawValue(events.append(']').toString()),
+                chessService.isWhiteTurn(lobbyId));
+            reply.setSequence(lastSeen + missed.size());
+        } else {
+            // Read the sequence first; events published meanwhile still reach the client live
+            long sequence = gameEventLog.getLatestSequence(lobbyId);
+            reply = createStateMessage(lobbyId);
+            reply.setSequence(sequence);
+        }
+        gameEventLog.sendToSession(headerAccessor.getSessionId(), reply);
+    }
+
+    /**
+     * Builds the "STATE" message with the board, players and turn.
+     */
+    private GameMessage createStateMessage(String lobbyId) {
+        BoardSnapshot snapshot = chessService.getSnapshot(lobbyId);
+
+        // Send player information and turn state, reusing the board already serialized for this move
         Map<String, Object> gameState = new HashMap<>();
-        gameState.put("boardState", boardState);
+        gameState.put("boardState", snapshot != null
+            ? new RawValue(new String(snapshot.getBoardJson(), StandardCharsets.UTF_8))
+            : null);
         gameState.put("players", Map.of(
-            "whitePlayerId", chessService.getWhitePlayerId(message.getLobbyId()) != null ? 
-                chessService.getWhitePlayerId(message.getLobbyId()) : "",
-            "blackPlayerId", chessService.getBlackPlayerId(message.getLobbyId()) != null ? 
-                chessService.getBlackPlayerId(message.getLobbyId()) : ""
+            "whitePlayerId", chessService.getWhitePlayerId(lobbyId) != null ? 
+                chessService.getWhitePlayerId(lobbyId) : "",
+            "blackPlayerId", chessService.getBlackPlayerId(lobbyId) != null ? 
+                chessService.getBlackPlayerId(lobbyId) : ""
         ));
         
-        return new GameMessage(message.getLobbyId(), "STATE", gameState, chessService.isWhiteTurn(message.getLobbyId()));
+        return new GameMessage(lobbyId, "STATE", gameState, chessService.isWhiteTurn(lobbyId));
     }
 
     @MessageMapping("/chat")
-    @SendTo("/topic/game")
-    public GameMessage handleChat(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleChat(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
         String lobbyId = message.getLobbyId();
         String playerId = headerAccessor.getSessionId();
         Lobby lobby = chessService.getLobby(lobbyId);
@@ -92,125 +181,181 @@ public class ChessWebSocketController {
             throw new IllegalArgumentException("Lobby not found: " + lobbyId);
         }
 
-        // Check if the message is a natural language chess move
+        if (!chatService.tryAcquire(playerId)) {
+            return;  // Over the chat rate limit
+        }
+
+        // Check if the message is a move, e.g. "Nf3", "e7e8q" or "Knight to c3", from the player
+        // whose turn it is; anyone else typing "e4" is just chatting
         String content = message.getContent().toString();
-        if (MoveParser.isNaturalLanguageCommand(content)) {
-            // Parse the move
-            ChessMove move = MoveParser.parseNaturalLanguage(content, lobby.isWhiteTurn(), lobby);
-            if (move != null) {
-                // Make the move
-                Map<String, String> newState = chessService.makeMove(lobbyId, move, playerId);
-                if (newState != null) {
-                    // Send lobby update after move
-                    sendLobbyUpdate();
-                    
-                    // Return game state with end state information if available
-                    GameMessage response = new GameMessage(
-                        lobbyId,
-                        "MOVE",
-                        newState,
-                        lobby.isWhiteTurn(),
-                        lobby.isGameOver(),
-                        lobby.getWinningTeam(),
-                        lobby.getGameEndReason()
-                    );
-                    
-                    // Set check status for the current player
-                    response.setInCheck(lobby.isInCheck(lobby.isWhiteTurn()));
-                    
-                    // Also send a chat message about the move
-                    GameMessage chatResponse = new GameMessage(
-                        lobbyId,
-                        "CHAT",
-                        createChatMessage(lobbyId, playerId, "Moved " + content),
-                        lobby.isWhiteTurn()
-                    );
-                    
-                    return chatResponse;
-                }
+        boolean whiteTurn = lobby.isWhiteTurn();
+        boolean toMove = playerId.equals(whiteTurn ? lobby.getWhitePlayerId() : lobby.getBlackPlayerId());
+        ChessMove move = toMove ? MoveParser.parse(content, whiteTurn, lobby.getBoardState()) : null;
+        if (move != null) {
+            // Make the move; a rejected move comes back null and goes out as chat
+            BoardSnapshot snapshot = chessService.makeMoveForSnapshot(lobbyId, move, playerId);
+            if (snapshot != null) {
+                // Broadcast the game state with end state information if available
+                gameEventLog.publish(lobbyId, snapshot.getMoveMessage());
+                spectatorService.publish(lobbyId, snapshot.getMoveMessage());
+                
+                // Also send a chat message about the move
+                GameMessage chatResponse = new GameMessage(
+                    lobbyId,
+                    "CHAT",
+                    createChatMessage(lobbyId, playerId, "Moved " + content),
+                    lobby.isWhiteTurn()
+                );
+                
+                gameEventLog.publish(lobbyId, chatResponse);
+                return;
             }
         }
 
         // If not a valid move, just forward the chat message
-        return new GameMessage(
+        gameEventLog.publish(lobbyId, new GameMessage(
             lobbyId,
             "CHAT",
             message.getContent(),
             lobby.isWhiteTurn()
-        );
+        ));
     }
 
     @MessageMapping("/chat/{lobbyId}")
-    @SendTo("/topic/chat/{lobbyId}")
-    public ChatMessage handleChatMessage(@DestinationVariable String lobbyId, ChatMessage message) {
-        return message;
+    public void handleChatMessage(@DestinationVariable String lobbyId, ChatMessage message,
+                                  SimpMessageHeaderAccessor headerAccessor) {
+        chatService.post(lobbyId, headerAccessor.getSessionId(), message);
+    }
+
+    @SubscribeMapping("/chat/{lobbyId}")
+    public List<ChatMessage> handleChatHistory(@DestinationVariable String lobbyId) {
+        return chatService.getHistory(lobbyId);
     }
 
     @MessageMapping("/claim")
-    @SendTo("/topic/game")
-    public GameMessage handleClaim(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleClaim(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
         String playerId = headerAccessor.getSessionId();
         String color = (String) message.getContent();
         boolean success = chessService.claimColor(message.getLobbyId(), playerId, color);
         
         if (success) {
-            Map<String, String> players = Map.of(
-                "whitePlayerId", chessService.getWhitePlayerId(message.getLobbyId()) != null ? 
-                    chessService.getWhitePlayerId(message.getLobbyId()) : "",
-                "blackPlayerId", chessService.getBlackPlayerId(message.getLobbyId()) != null ? 
-                    chessService.getBlackPlayerId(message.getLobbyId()) : ""
-            );
-            return new GameMessage(message.getLobbyId(), "PLAYERS", players, chessService.isWhiteTurn(message.getLobbyId()));
+            publishPlayers(message.getLobbyId());
         }
-        return null;
     }
 
+    @MessageMapping("/matchmaking/join")
+    public void handleMatchmakingJoin(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        MatchRequest request = objectMapper.convertValue(message.getContent(), MatchRequest.class);
+        matchmakingService.enqueue(headerAccessor.getSessionId(), request);
+    }
+
+    @MessageMapping("/matchmaking/leave")
+    public void handleMatchmakingLeave(SimpMessageHeaderAccessor headerAccessor) {
+        matchmakingService.cancel(headerAccessor.getSessionId());
+    }
+
+    /**
+     * Starts a puzzle for the sender, near the rating in the message's content or their own.
+     */
+    @MessageMapping("/puzzle/next")
+    public void handlePuzzleNext(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        Integer rating = message.getContent() instanceof Number ? ((Number) message.getContent()).intValue() : null;
+        PuzzleDatabase.Puzzle puzzle = puzzleService.next(sessionId, rating);
+        if (puzzle == null) {
+            throw new IllegalStateException("No puzzles available");
+        }
+        sendToSession(sessionId, PuzzleService.PUZZLE_DESTINATION,
+            new GameMessage(null, "PUZZLE", puzzle, puzzle.isWhiteToMove()));
+    }
+
+    @MessageMapping("/puzzle/move")
+    public void handlePuzzleMove(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        PuzzleService.Result result = puzzleService.move(sessionId, convertToChessMove(message.getContent()));
+        if (result == null) {
+            throw new IllegalArgumentException("No puzzle in progress");
+        }
+        sendToSession(sessionId, PuzzleService.PUZZLE_DESTINATION,
+            new GameMessage(null, "PUZZLE_RESULT", result, message.isWhiteTurn()));
+    }
+
+    /**
+     * Sends the first page of lobbies to the asking session only, like a search with no
+     * filters. Kept for older clients, which were broadcast the whole list on /topic/lobbies.
+     */
     @MessageMapping("/lobbies")
-    @SendTo("/topic/lobbies")
-    public Collection<Lobby> sendLobbyUpdate() {
-        return chessService.getLobbies();
+    public void handleLobbyList(SimpMessageHeaderAccessor headerAccessor) {
+        handleLobbySearch(new LobbyQuery(), headerAccessor);
+    }
+
+    /**
+     * Sends one page of lobbies to the asking session only, on /user/queue/lobbies.
+     */
+    @MessageMapping("/lobbies/search")
+    public void handleLobbySearch(LobbyQuery query, SimpMessageHeaderAccessor headerAccessor) {
+        sendToSession(headerAccessor.getSessionId(), LOBBY_PAGE_DESTINATION,
+            new GameMessage(null, "LOBBY_PAGE", chessService.findLobbies(query), true));
     }
 
     @MessageMapping("/disconnect")
-    @SendTo("/topic/game")
-    public GameMessage handleDisconnect(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
-        String playerId = headerAccessor.getSessionId();
+    public void handleDisconnect(GameMessage message, SimpMessageHeaderAccessor headerAccessor) {
         String lobbyId = message.getLobbyId();
-        Lobby lobby = chessService.getLobby(lobbyId);
-        
-        if (lobby != null) {
-            String playerColor = null;
-            if (playerId.equals(lobby.getWhitePlayerId())) {
-                playerColor = "white";
-                chessService.claimColor(lobbyId, null, "white"); // Release white color
-            } else if (playerId.equals(lobby.getBlackPlayerId())) {
-                playerColor = "black";
-                chessService.claimColor(lobbyId, null, "black"); // Release black color
+        if (chessService.leaveLobby(lobbyId, headerAccessor.getSessionId()) != null) {
+            if (chessService.getLobby(lobbyId) != null) {
+                publishPlayers(lobbyId);
             }
+        }
+    }
 
-            if (playerColor != null) {
-                // Send a chat message about the disconnection
-                GameMessage chatMessage = createChatMessage(
-                    lobbyId,
-                    "System",
-                    playerColor + " player has disconnected"
-                );
-                
-                // Send updated player information
-                Map<String, String> players = Map.of(
-                    "whitePlayerId", chessService.getWhitePlayerId(lobbyId) != null ? 
-                        chessService.getWhitePlayerId(lobbyId) : "",
-                    "blackPlayerId", chessService.getBlackPlayerId(lobbyId) != null ? 
-                        chessService.getBlackPlayerId(lobbyId) : ""
-                );
-                
-                // Send lobby update after disconnect
-                sendLobbyUpdate();
-                
-                return new GameMessage(lobbyId, "PLAYERS", players, chessService.isWhiteTurn(lobbyId));
+    /**
+     * Frees the seats of a browser that went away without sending /app/disconnect.
+     */
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        List<String> changed = chessService.handleSessionDisconnect(event.getSessionId());
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (String lobbyId : changed) {
+            if (chessService.getLobby(lobbyId) != null) {
+                publishPlayers(lobbyId);
             }
         }
-        return null;
+    }
+
+    /**
+     * Broadcasts results that were not caused by a move, such as a flag falling.
+     */
+    @EventListener
+    public void onGameEnded(GameEndedEvent event) {
+        if (event.isOnMove()) {
+            return;
+        }
+        BoardSnapshot snapshot = chessService.getSnapshot(event.getLobbyId());
+        if (snapshot != null) {
+            gameEventLog.publish(event.getLobbyId(), snapshot.getMoveMessage());
+            spectatorService.publish(event.getLobbyId(), snapshot.getMoveMessage());
+            if ("Abandoned".equals(event.getGameEndReason())) {
+                // The abandoning player's seat was freed along with the result
+                publishPlayers(event.getLobbyId());
+            }
+        }
+    }
+
+    private void publishPlayers(String lobbyId) {
+        Map<String, String> players = Map.of(
+            "whitePlayerId", chessService.getWhitePlayerId(lobbyId) != null ? chessService.getWhitePlayerId(lobbyId) : "",
+            "blackPlayerId", chessService.getBlackPlayerId(lobbyId) != null ? chessService.getBlackPlayerId(lobbyId) : ""
+        );
+        gameEventLog.publish(lobbyId, new GameMessage(lobbyId, "PLAYERS", players, chessService.isWhiteTurn(lobbyId)));
+    }
+
+    private void sendToSession(String sessionId, String destination, GameMessage message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, destination, message, accessor.getMessageHeaders());
     }
 
     private ChessMove convertToChessMove(Object content) {
@@ -0,0 +1,143 @@
+package com.jeremy.chess.model;
+
+import com.jeremy.chess.util.Fen;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A chess board stored as one byte per square, a8 first, that reads and writes the
+ * piece strings the rest of the code works with ("wP", "bK", "" for an empty square).
+ * Squares are read back as shared constants, so reading allocates nothing.
+ */
+public class Board extends AbstractList<String> implements RandomAccess {
+    public static final int SIZE = 64;
+
+    private static final String[] PIECES = {
+            "", "wP", "wN", "wB", "wR", "wQ", "wK", "bP", "bN", "bB", "bR", "bQ", "bK"
+    };
+    private static final String TYPES = "PNBRQK";
+
+    /** The initial position, shared by every lobby until its first move. Cannot be modified. */
+    public static final Board START = new Board(Fen.parseBoard(Fen.START), false);
+
+    private final byte[] squares = new byte[SIZE];
+    private final boolean mutable;
+
+    /**
+     * Creates a modifiable copy of a board.
+     *
+     * @param pieces The 64 squares, a8 first
+     * @throws IllegalArgumentException if the list is not 64 squares of known pieces
+     */
+    public Board(List<String> pieces) {
+        this(pieces, true);
+    }
+
+    private Board(byte[] squares, int offset) {
+        System.arraycopy(squares, offset, this.squares, 0, SIZE);
+        this.mutable = true;
+    }
+
+    private Board(List<String> pieces, boolean mutable) {
+        if (pieces.size() != SIZE) {
+            throw new IllegalArgumentException("A board has " + SIZE + " squares, got " + pieces.size());
+        }
+        if (pieces instanceof Board board) {
+            System.arraycopy(board.squares, 0, squares, 0, SIZE);
+        } else {
+            for (int i = 0; i < SIZE; i++) {
+                squares[i] = encode(pieces.get(i));
+            }
+        }
+        this.mutable = mutable;
+    }
+
+    @Override
+    public String get(int index) {
+        return PIECES[squares[index]];
+    }
+
+    @Override
+    public String set(int index, String piece) {
+        if (!mutable) {
+            throw new UnsupportedOperationException("This board is shared and cannot be modified");
+        }
+        String previous = PIECES[squares[index]];
+        squares[index] = encode(piece);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return SIZE;
+    }
+
+    @Override
+    public int indexOf(Object piece) {
+        if (!(piece instanceof String name)) {
+            return -1;
+        }
+        int code = codeOf(name);
+        for (int i = 0; i < SIZE; i++) {
+            if (squares[i] == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the code of the piece on a square: 0 for empty, 1-6 for white and 7-12 for
+     * black pawn, knight, bishop, rook, queen and king.
+     */
+    int code(int index) {
+        return squares[index];
+    }
+
+    void setCode(int index, int code) {
+        if (!mutable) {
+            throw new UnsupportedOperationException("This board is shared and cannot be modified");
+        }
+        squares[index] = (byte) code;
+    }
+
+    void copyTo(byte[] target, int offset) {
+        System.arraycopy(squares, 0, target, offset, SIZE);
+    }
+
+    static Board copyOf(byte[] source, int offset) {
+        return new Board(source, offset);
+    }
+
+    static boolean isPawn(int code) {
+        return code == 1 || code == 7;
+    }
+
+    static boolean isKing(int code) {
+        return code == 6 || code == 12;
+    }
+
+    private static byte encode(String piece) {
+        int code = codeOf(piece);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown piece: " + piece);
+        }
+        return (byte) code;
+    }
+
+    private static int codeOf(String piece) {
+        if (piece == null || piece.isEmpty()) {
+            return 0;
+        }
+        if (piece.length() == 2) {
+            int type = TYPES.indexOf(piece.charAt(1));
+            char color = piece.charAt(0);
+            if (type >= 0 && (color == 'w' || color == 'b')) {
+                return (color == 'w' ? 1 : 7) + type;
+            }
+        }
+        return -1;
+    }
+}
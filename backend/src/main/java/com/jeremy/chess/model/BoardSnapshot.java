@@ -0,0 +1,65 @@
+package com.jeremy.chess.model;
+
+import java.util.Map;
+
+/**
+ * Immutable, pre-serialized view of a lobby's state after a given move.
+ * Built once per move and shared by every broadcast, REST poll and late joiner.
+ */
+public class BoardSnapshot {
+    private final int moveNumber;
+    private final Map<String, String> board;
+    private final byte[] boardJson;
+    private final byte[] moveMessage;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param moveNumber The number of half-moves played when the snapshot was taken
+     * @param board Unmodifiable map of square positions to piece strings
+     * @param boardJson The board map serialized as JSON
+     * @param moveMessage The full "MOVE" {@link GameMessage} serialized as JSON
+     */
+    public BoardSnapshot(int moveNumber, Map<String, String> board, byte[] boardJson, byte[] moveMessage) {
+        this.moveNumber = moveNumber;
+        this.board = board;
+        this.boardJson = boardJson;
+        this.moveMessage = moveMessage;
+    }
+
+    /**
+     * Gets the move number this snapshot belongs to.
+     *
+     * @return The number of half-moves played
+     */
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    /**
+     * Gets the board as a map of square positions to piece strings.
+     *
+     * @return An unmodifiable board map
+     */
+    public Map<String, String> getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the serialized board map. Callers must not modify the array.
+     *
+     * @return The board map as UTF-8 JSON
+     */
+    public byte[] getBoardJson() {
+        return boardJson;
+    }
+
+    /**
+     * Gets the serialized "MOVE" game message. Callers must not modify the array.
+     *
+     * @return The game message as UTF-8 JSON
+     */
+    public byte[] getMoveMessage() {
+        return moveMessage;
+    }
+}
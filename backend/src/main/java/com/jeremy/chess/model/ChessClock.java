@@ -0,0 +1,140 @@
+package com.jeremy.chess.model;
+
+/**
+ * Fischer clock for a lobby: each side starts with a base time and gains an
+ * increment after every move. The clock starts running after white's first move.
+ * Not thread-safe; callers hold the owning lobby's monitor.
+ */
+public class ChessClock {
+    private final long baseMillis;
+    private final long incrementMillis;
+    private long whiteRemainingMillis;
+    private long blackRemainingMillis;
+    private Boolean whiteRunning = null;  // Side whose clock is running, null while stopped
+    private long runningSince = 0;
+
+    /**
+     * Creates a stopped clock.
+     *
+     * @param baseMillis The starting time for each side in milliseconds
+     * @param incrementMillis The time added after each move in milliseconds
+     */
+    public ChessClock(long baseMillis, long incrementMillis) {
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.whiteRemainingMillis = baseMillis;
+        this.blackRemainingMillis = baseMillis;
+    }
+
+    /**
+     * Charges the side to move for the time it spent and adds the increment.
+     * Does nothing if the clock is not running yet.
+     *
+     * @param white Whether white made the move
+     * @param now The current time in milliseconds
+     * @return false if the side had already run out of time, true otherwise
+     */
+    public boolean charge(boolean white, long now) {
+        if (whiteRunning == null) {
+            return true;
+        }
+        long remaining = getRemainingMillis(white, now);
+        if (remaining <= 0) {
+            setRemaining(white, 0);
+            return false;
+        }
+        setRemaining(white, remaining + incrementMillis);
+        whiteRunning = null; // Paused until the other side's clock is started
+        return true;
+    }
+
+    /**
+     * Starts the given side's clock.
+     *
+     * @param white Whether to start white's clock
+     * @param now The current time in milliseconds
+     */
+    public void start(boolean white, long now) {
+        this.whiteRunning = white;
+        this.runningSince = now;
+    }
+
+    /**
+     * Stops the clock, charging the running side for the time spent so far.
+     *
+     * @param now The current time in milliseconds
+     */
+    public void stop(long now) {
+        if (whiteRunning != null) {
+            setRemaining(whiteRunning, Math.max(0, getRemainingMillis(whiteRunning, now)));
+            whiteRunning = null;
+        }
+    }
+
+    /**
+     * Gets a side's remaining time, including the time spent on the current move.
+     *
+     * @param white Whether to get white's time
+     * @param now The current time in milliseconds
+     * @return The remaining time in milliseconds; zero or negative once flagged
+     */
+    public long getRemainingMillis(boolean white, long now) {
+        long remaining = white ? whiteRemainingMillis : blackRemainingMillis;
+        if (whiteRunning != null && whiteRunning == white) {
+            remaining -= now - runningSince;
+        }
+        return remaining;
+    }
+
+    private void setRemaining(boolean white, long millis) {
+        if (white) {
+            whiteRemainingMillis = millis;
+        } else {
+            blackRemainingMillis = millis;
+        }
+    }
+
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    /**
+     * Gets white's remaining time as of the last time the clock was charged or started.
+     *
+     * @return White's remaining time in milliseconds
+     */
+    public long getWhiteRemainingMillis() {
+        return whiteRemainingMillis;
+    }
+
+    /**
+     * Gets black's remaining time as of the last time the clock was charged or started.
+     *
+     * @return Black's remaining time in milliseconds
+     */
+    public long getBlackRemainingMillis() {
+        return blackRemainingMillis;
+    }
+
+    /**
+     * Gets the side whose clock is running.
+     *
+     * @return "white", "black", or null if the clock is stopped
+     */
+    public String getRunning() {
+        return whiteRunning == null ? null : (whiteRunning ? "white" : "black");
+    }
+
+    /**
+     * Gets the time at which the running side's clock was started.
+     *
+     * @return Epoch milliseconds, or 0 if the clock has never run
+     */
+    public long getRunningSince() {
+        return runningSince;
+    }
+}
@@ -1,5 +1,7 @@
 package com.jeremy.chess.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * Represents a message containing game state information to be sent to clients.
  * 
@@ -15,6 +17,9 @@ public class GameMessage {
     private String winningTeam;
     private String gameEndReason;
     private boolean inCheck;
+    private ChessClock clock;
+    private Integer distanceToMate;
+    private Long sequence;
 
     public GameMessage() {
     }
@@ -154,4 +159,59 @@ public class GameMessage {
     public void setInCheck(boolean inCheck) {
         this.inCheck = inCheck;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Gets the game clock at the time the message was created.
+     * 
+     * @return The clock, or null if the game is untimed
+     */
+    public ChessClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the game clock.
+     * 
+     * @param clock The clock, or null if the game is untimed
+     */
+    public void setClock(ChessClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the tablebase distance to mate for the side to move.
+     * 
+     * @return The distance in plies, or null if the position is not in a tablebase or is drawn
+     */
+    public Integer getDistanceToMate() {
+        return distanceToMate;
+    }
+
+    /**
+     * Sets the tablebase distance to mate for the side to move.
+     * 
+     * @param distanceToMate The distance in plies, or null if unknown
+     */
+    public void setDistanceToMate(Integer distanceToMate) {
+        this.distanceToMate = distanceToMate;
+    }
+
+    /**
+     * Gets the message's position in its lobby's event log.
+     * 
+     * @return The sequence number, or null for messages that are not logged
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)  // Left out so a sequence can be spliced into pre-serialized messages
+    public Long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets the message's position in its lobby's event log.
+     * 
+     * @param sequence The sequence number
+     */
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -1,12 +1,16 @@
 package com.jeremy.chess.model;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.jeremy.chess.util.ChessUtils;
 import com.jeremy.chess.util.MoveValidator;
+import com.jeremy.chess.util.Zobrist;
 
 /**
  * Represents a chess game lobby that manages the game state, players, and move validation.
@@ -16,28 +20,31 @@ import com.jeremy.chess.util.MoveValidator;
  */
 public class Lobby {
     private static final Logger logger = LoggerFactory.getLogger(Lobby.class);
+    private static final AtomicLongFieldUpdater<Lobby> VERSION =
+            AtomicLongFieldUpdater.newUpdater(Lobby.class, "version");
 
     private String id;
     private String name;
     private String whitePlayerId;
     private String blackPlayerId;
     private boolean isWhiteTurn = true;
-    private ArrayList<String> initialBoard = new ArrayList<>(Arrays.asList(
-            "bR", "bN", "bB", "bQ", "bK", "bB", "bN", "bR",
-             "bP", "bP", "bP", "bP", "bP", "bP", "bP", "bP",
-             "", "", "", "", "", "", "", "",
-             "", "", "", "", "", "", "", "",
-             "", "", "", "", "", "", "", "",
-             "", "", "", "", "", "", "", "",
-             "wP", "wP", "wP", "wP", "wP", "wP", "wP", "wP",
-             "wR", "wN", "wB", "wQ", "wK", "wB", "wN", "wR"
-    ));
-    private ArrayList<String> boardState;
+    private Board boardState = Board.START;  // Shared until the first move replaces it
     private String winningTeam = null;
     private String gameEndReason = null;
-    private int moveCount = 0;
-    private ArrayList<String> previousPositions = new ArrayList<>();
+    private int halfmoveClock = 0;  // Plies since the last capture or pawn move
     private String lastMovedPawnSquare = null;  // Track square of last moved pawn for en passant
+    private volatile int moveNumber = 0;
+    private volatile BoardSnapshot snapshot = null;  // Serialized state for moveNumber, built lazily
+    private ChessClock clock = null;  // Null for untimed games
+    private long[] positionKeys = new long[16];  // Zobrist key of every position reached, in order
+    private int positionCount = 0;
+    private Integer distanceToMate = null;  // From the tablebase, for the side to move
+    private int castlingRights = 0b1111;  // White kingside, white queenside, black kingside, black queenside
+    private MoveHistory history = null;  // Created with the first move
+    private String takebackRequestedBy = null;
+    private int takebackRequestedAt = -1;  // Move number the takeback request was made at
+    private volatile long version = 0;  // Bumped on every change clients can see
+    private AtomicLong listVersion = null;  // Shared by all lobbies listed together, bumped alongside
 
     /**
      * Default constructor that creates a new lobby with a random UUID.
@@ -45,9 +52,8 @@ public class Lobby {
     public Lobby() {
         this.id = UUID.randomUUID().toString();
         this.name = "Unnamed Lobby";
-        this.boardState = new ArrayList<>(initialBoard);
+        recordPosition(Zobrist.hash(boardState, isWhiteTurn));
         logger.info("Lobby created with ID: {}", id);
-        logger.info("Initial board state: {}", boardState);
     }
 
     /**
@@ -85,28 +91,297 @@ public class Lobby {
      */
     public void setName(String name) {
         this.name = name;
+        touch();
     }
 
     /**
      * Gets the current state of the chess board.
      * 
-     * @return The board state as an ArrayList of piece strings
+     * @return The board state as a list of piece strings; copy it before making changes,
+     *         since a lobby that has not moved yet shares the unmodifiable start position
      */
-    public ArrayList<String> getBoardState() {
+    public Board getBoardState() {
         return boardState;
     }
 
     /**
-     * Sets the state of the chess board and checks for game over conditions.
+     * Records a move, sets the board it led to and checks for game over conditions.
+     * Castling rights tied to the move's squares are given up.
      * 
-     * @param boardState The new board state
+     * @param boardState The board after the move
+     * @param from The index of the square the piece moved from
+     * @param to The index of the square the piece moved to
      */
-    public void setBoardState(ArrayList<String> boardState) {
-        this.boardState = boardState;
-        logger.info("Board state updated: {}", boardState);
-        checkGameOver();
+    public void playMove(List<String> boardState, int from, int to) {
+        Board after = boardState instanceof Board board && board != Board.START ? board : new Board(boardState);
+        int moved = this.boardState.code(from);
+        int captured = this.boardState.code(to);
+        int placed = after.code(to);
+        if (history == null) {
+            history = new MoveHistory();
+        }
+        history.push(MoveHistory.encode(from, to, placed, captured, Board.isPawn(moved) && !Board.isPawn(placed),
+                castlingRights, halfmoveClock), after);
+        halfmoveClock = Board.isPawn(moved) || captured != 0 ? 0 : halfmoveClock + 1;
+        revokeCastling(from);
+        revokeCastling(to);
+
+        this.boardState = after;
+        logger.debug("Board state updated: {}", after);
+        long key = Zobrist.hash(after, !isWhiteTurn);
+        checkGameOver(key);
         this.isWhiteTurn = !this.isWhiteTurn; // Toggle turn after checking for game over
         this.lastMovedPawnSquare = null; // Reset en passant square after each move
+        this.moveNumber++;
+        recordPosition(key);
+        touch();
+    }
+
+    private void recordPosition(long key) {
+        if (positionCount == positionKeys.length) {
+            positionKeys = Arrays.copyOf(positionKeys, positionCount * 2);
+        }
+        positionKeys[positionCount++] = key;
+    }
+
+    /**
+     * Takes back the last moves, restoring the position, castling rights and halfmove
+     * clock from before them. Cancels any pending takeback request.
+     * 
+     * @param plies The number of half-moves to take back
+     * @return true if the moves were taken back, false if the game is over or too few were played
+     */
+    public boolean takeBack(int plies) {
+        takebackRequestedBy = null;
+        if (isGameOver() || plies <= 0 || history == null || plies > history.size()) {
+            return false;
+        }
+        Board board = new Board(boardState);
+        for (int i = 0; i < plies; i++) {
+            int move = history.pop();
+            MoveHistory.undo(board, move);
+            castlingRights = MoveHistory.castlingRights(move);
+            halfmoveClock = MoveHistory.halfmoveClock(move);
+            isWhiteTurn = !isWhiteTurn;
+            positionCount--;
+            moveNumber--;
+        }
+        boardState = board;
+        lastMovedPawnSquare = null;
+        distanceToMate = null;
+        snapshot = null;
+        logger.info("Took back {} plies in lobby {}", plies, id);
+        touch();
+        return true;
+    }
+
+    /**
+     * Records a player's request to take back moves, replacing any earlier request.
+     * The request lapses once another move is played.
+     * 
+     * @param playerId The ID of the requesting player
+     */
+    public void requestTakeback(String playerId) {
+        takebackRequestedBy = playerId;
+        takebackRequestedAt = moveNumber;
+    }
+
+    /**
+     * Gets the player with a pending takeback request.
+     * 
+     * @return The player's ID, or null if there is no request for the current move
+     */
+    @JsonIgnore
+    public String getTakebackRequestedBy() {
+        return takebackRequestedAt == moveNumber ? takebackRequestedBy : null;
+    }
+
+    /**
+     * Rebuilds the position after a number of half-moves.
+     * 
+     * @param ply The number of half-moves, from 0 for the start position to the current move number
+     * @return A new board holding the position
+     * @throws IllegalArgumentException If the ply is out of range
+     */
+    public Board getPositionAt(int ply) {
+        if (history == null) {
+            if (ply != 0) {
+                throw new IllegalArgumentException("Ply " + ply + " is outside 0-0");
+            }
+            return new Board(Board.START);
+        }
+        return history.positionAt(ply);
+    }
+
+    /**
+     * Gets a move of this game in UCI notation.
+     * 
+     * @param ply The ply the move was played from, starting at 0
+     * @return The move, e.g. "e2e4"
+     * @throws IllegalArgumentException If no move was played from that ply
+     */
+    public String getMoveAt(int ply) {
+        if (history == null) {
+            throw new IllegalArgumentException("No move at ply " + ply);
+        }
+        return MoveHistory.toUci(history.get(ply));
+    }
+
+    /**
+     * Gets the Zobrist key of every position reached in this game, starting with the initial one.
+     * 
+     * @return A copy of the position keys, in order
+     */
+    @JsonIgnore
+    public long[] getPositionKeys() {
+        return Arrays.copyOf(positionKeys, positionCount);
+    }
+
+    /**
+     * Gets the number of half-moves played in this lobby.
+     * 
+     * @return The move number, starting at 0 for the initial position
+     */
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    /**
+     * Gets the game clock.
+     * 
+     * @return The clock, or null if the game is untimed
+     */
+    public ChessClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the game clock.
+     * 
+     * @param clock The clock, or null for an untimed game
+     */
+    public void setClock(ChessClock clock) {
+        this.clock = clock;
+        touch();
+    }
+
+    /**
+     * Gets the tablebase distance to mate for the side to move.
+     * 
+     * @return The distance in plies, or null if the position is not in a tablebase or is drawn
+     */
+    public Integer getDistanceToMate() {
+        return distanceToMate;
+    }
+
+    /**
+     * Sets the tablebase distance to mate for the side to move.
+     * 
+     * @param distanceToMate The distance in plies, or null if unknown
+     */
+    public void setDistanceToMate(Integer distanceToMate) {
+        this.distanceToMate = distanceToMate;
+        touch();
+    }
+
+    /**
+     * Checks whether a side may still castle, i.e. neither its king nor that rook has moved
+     * or been captured.
+     * 
+     * @param isWhite Whether to check white's rights
+     * @param kingside Whether to check the kingside rook
+     * @return true if the right remains
+     */
+    public boolean canCastle(boolean isWhite, boolean kingside) {
+        return (castlingRights & castlingBit(isWhite, kingside)) != 0;
+    }
+
+    /**
+     * Removes a castling right.
+     * 
+     * @param isWhite Whether the right is white's
+     * @param kingside Whether the right is on the kingside
+     */
+    public void revokeCastling(boolean isWhite, boolean kingside) {
+        castlingRights &= ~castlingBit(isWhite, kingside);
+    }
+
+    /**
+     * Removes the castling rights tied to a square once a piece leaves or is captured on it.
+     */
+    private void revokeCastling(int index) {
+        switch (index) {
+            case 60: revokeCastling(true, true); revokeCastling(true, false); break;
+            case 4: revokeCastling(false, true); revokeCastling(false, false); break;
+            case 63: revokeCastling(true, true); break;
+            case 56: revokeCastling(true, false); break;
+            case 7: revokeCastling(false, true); break;
+            case 0: revokeCastling(false, false); break;
+            default: break;
+        }
+    }
+
+    private static int castlingBit(boolean isWhite, boolean kingside) {
+        return 1 << ((isWhite ? 0 : 2) + (kingside ? 0 : 1));
+    }
+
+    /**
+     * Ends the game for a reason that does not come from the board, such as a timeout.
+     * 
+     * @param winningTeam "White", "Black", or "Draw"
+     * @param gameEndReason The reason the game ended
+     */
+    public void endGame(String winningTeam, String gameEndReason) {
+        this.winningTeam = winningTeam;
+        this.gameEndReason = gameEndReason;
+        this.snapshot = null; // The cached state no longer reflects the result
+        logger.info("Game over! {} ({})", winningTeam, gameEndReason);
+        touch();
+    }
+
+    /**
+     * Gets the lobby's version, which changes whenever anything a client can see changes.
+     * 
+     * @return The version, starting at 0
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Makes every change to this lobby also bump a shared version, e.g. that of a lobby list.
+     * 
+     * @param listVersion The shared counter
+     */
+    public void trackChanges(AtomicLong listVersion) {
+        this.listVersion = listVersion;
+    }
+
+    private void touch() {
+        VERSION.incrementAndGet(this);
+        if (listVersion != null) {
+            listVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the cached serialized state, which may belong to an earlier move.
+     * 
+     * @return The cached snapshot, or null if none has been built yet
+     */
+    @JsonIgnore
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Caches the serialized state for the current move.
+     * 
+     * @param snapshot The snapshot to cache
+     */
+    public void setSnapshot(BoardSnapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
     /**
@@ -130,7 +405,7 @@ public class Lobby {
     /**
      * Checks for various game over conditions and updates the game state accordingly.
      */
-    private void checkGameOver() {
+    private void checkGameOver(long key) {
         // Check for king capture
         boolean whiteKingPresent = boardState.contains("wK");
         boolean blackKingPresent = boardState.contains("bK");
@@ -142,16 +417,17 @@ public class Lobby {
             return;
         }
 
-        // Check for checkmate
-        if (isInCheck(isWhiteTurn) && !hasLegalMoves(isWhiteTurn)) {
-            winningTeam = isWhiteTurn ? "Black" : "White";
+        // Check for checkmate; the turn has not been handed over yet, so the side to move next is the other one
+        boolean toMove = !isWhiteTurn;
+        if (isInCheck(toMove) && !hasLegalMoves(toMove)) {
+            winningTeam = toMove ? "Black" : "White";
             gameEndReason = "Checkmate";
             logger.info("Game over! {} wins by checkmate!", winningTeam);
             return;
         }
 
         // Check for stalemate
-        if (!isInCheck(isWhiteTurn) && !hasLegalMoves(isWhiteTurn)) {
+        if (!isInCheck(toMove) && !hasLegalMoves(toMove)) {
             winningTeam = "Draw";
             gameEndReason = "Stalemate";
             logger.info("Game over! Stalemate!");
@@ -167,12 +443,7 @@ public class Lobby {
         }
 
         // Check for threefold repetition
-        String currentPosition = String.join(",", boardState);
-        previousPositions.add(currentPosition);
-        if (previousPositions.size() > 10) {
-            previousPositions.remove(0);
-        }
-        if (isThreefoldRepetition()) {
+        if (isThreefoldRepetition(key)) {
             winningTeam = "Draw";
             gameEndReason = "Threefold repetition";
             logger.info("Game over! Draw due to threefold repetition!");
@@ -180,8 +451,7 @@ public class Lobby {
         }
 
         // Check for fifty-move rule
-        moveCount++;
-        if (moveCount >= 100) { // 50 moves = 100 half-moves
+        if (halfmoveClock >= 100) { // 50 moves = 100 half-moves
             winningTeam = "Draw";
             gameEndReason = "Fifty-move rule";
             logger.info("Game over! Draw due to fifty-move rule!");
@@ -206,32 +476,8 @@ public class Lobby {
      * @param board The board state to check
      * @return true if the player is in check, false otherwise
      */
-    public boolean isInCheck(boolean isWhite, ArrayList<String> board) {
-        // Find king position
-        int kingIndex = -1;
-        for (int i = 0; i < board.size(); i++) {
-            String piece = board.get(i);
-            if (piece.equals(isWhite ? "wK" : "bK")) {
-                kingIndex = i;
-                break;
-            }
-        }
-        if (kingIndex == -1) return false;
-
-        // Convert index to chess notation
-        String kingSquare = ChessUtils.indexToNotation(kingIndex);
-
-        // Check if any opponent piece can capture the king
-        for (int i = 0; i < board.size(); i++) {
-            String piece = board.get(i);
-            if (!piece.isEmpty() && piece.charAt(0) == (isWhite ? 'b' : 'w')) {
-                String fromSquare = ChessUtils.indexToNotation(i);
-                if (MoveValidator.isValidMove(piece, fromSquare, kingSquare, board)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public boolean isInCheck(boolean isWhite, List<String> board) {
+        return MoveValidator.isInCheck(isWhite, board);
     }
 
     /**
@@ -257,7 +503,7 @@ public class Lobby {
                     
                     if (MoveValidator.isValidMove(piece, fromSquare, toSquare, boardState)) {
                         // Try the move
-                        ArrayList<String> tempBoard = new ArrayList<>(boardState);
+                        Board tempBoard = new Board(boardState);
                         tempBoard.set(j, piece);
                         tempBoard.set(i, "");
                         
@@ -335,17 +581,17 @@ public class Lobby {
     }
 
     /**
-     * Checks if the current position has occurred three times (threefold repetition).
+     * Checks if the position just reached has occurred twice before (threefold repetition).
+     * Only positions with the same side to move can match, so every other key is skipped.
      * 
+     * @param key The Zobrist key of the position just reached
      * @return true if there is threefold repetition, false otherwise
      */
-    private boolean isThreefoldRepetition() {
-        String currentPosition = String.join(",", boardState);
-        int count = 0;
-        for (String position : previousPositions) {
-            if (position.equals(currentPosition)) {
-                count++;
-                if (count >= 3) return true;
+    private boolean isThreefoldRepetition(long key) {
+        int count = 1;
+        for (int i = positionCount - 2; i >= 0; i -= 2) {
+            if (positionKeys[i] == key && ++count >= 3) {
+                return true;
             }
         }
         return false;
@@ -418,6 +664,7 @@ public class Lobby {
             blackPlayerId = playerId;
             logger.info("Black player joined: {}", playerId);
         }
+        touch();
     }
 
     /**
@@ -449,6 +696,7 @@ public class Lobby {
     public void setWhitePlayerId(String playerId) {
         this.whitePlayerId = playerId;
         logger.info("White player set to: {}", playerId);
+        touch();
     }
 
     /**
@@ -459,5 +707,6 @@ public class Lobby {
     public void setBlackPlayerId(String playerId) {
         this.blackPlayerId = playerId;
         logger.info("Black player set to: {}", playerId);
+        touch();
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.jeremy.chess.model;
+
+/**
+ * A request for one page of the lobby list. Every filter is optional.
+ */
+public class LobbyQuery {
+    private String status;
+    private String name;
+    private String cursor;
+    private int limit = 50;
+    private boolean newestFirst = true;
+
+    public LobbyQuery() {
+    }
+
+    /**
+     * Gets the status to keep.
+     *
+     * @return "open", "in_progress" or "finished", or null for any
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the start of the lobby names to keep, ignoring case.
+     *
+     * @return The prefix, or null for any name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets where to continue from.
+     *
+     * @return The next cursor of the previous page, or null for the first page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    public void setNewestFirst(boolean newestFirst) {
+        this.newestFirst = newestFirst;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jeremy.chess.model;
+
+/**
+ * A request to be paired with an opponent of similar rating at a given time control.
+ */
+public class MatchRequest {
+    private int rating = 1500;
+    private long baseSeconds;
+    private long incrementSeconds;
+
+    public MatchRequest() {
+    }
+
+    public MatchRequest(int rating, long baseSeconds, long incrementSeconds) {
+        this.rating = rating;
+        this.baseSeconds = baseSeconds;
+        this.incrementSeconds = incrementSeconds;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public void setRating(int rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * Gets the starting time for each side.
+     * 
+     * @return The base time in seconds, or 0 for an untimed game
+     */
+    public long getBaseSeconds() {
+        return baseSeconds;
+    }
+
+    public void setBaseSeconds(long baseSeconds) {
+        this.baseSeconds = baseSeconds;
+    }
+
+    public long getIncrementSeconds() {
+        return incrementSeconds;
+    }
+
+    public void setIncrementSeconds(long incrementSeconds) {
+        this.incrementSeconds = incrementSeconds;
+    }
+}
@@ -0,0 +1,207 @@
+package com.jeremy.chess.model;
+
+import com.jeremy.chess.util.ChessUtils;
+
+import java.util.Arrays;
+
+/**
+ * The moves of a game, one packed int each, holding enough of the position before each
+ * move to take it back. The board is also kept every {@value #CHECKPOINT_INTERVAL} plies,
+ * so an earlier position is rebuilt by replaying at most that many moves.
+ *
+ * <p>From the low bits, a move packs the source square (6 bits), the target square (6),
+ * the piece left on the target (4), the piece captured there (4), a promotion flag (1),
+ * the castling rights before the move (4) and the halfmove clock before the move (7).
+ * Piece codes are those of {@link Board}. En passant and castling are not flagged; they
+ * are recognized from the pieces, as a pawn moving diagonally onto an empty square and a
+ * king moving two files.
+ */
+public class MoveHistory {
+    public static final int CHECKPOINT_INTERVAL = 16;
+
+    private int[] moves = new int[16];
+    private int size = 0;
+    private byte[] checkpoints = new byte[0];  // Board after plies K, 2K, ...; the start position is not stored
+
+    /**
+     * Packs a move with its undo information.
+     *
+     * @param from The source square index
+     * @param to The target square index
+     * @param placed The code of the piece left on the target square
+     * @param captured The code of the piece captured on the target square, 0 for none or en passant
+     * @param promotion Whether a pawn was promoted
+     * @param castlingRights The castling rights before the move
+     * @param halfmoveClock The halfmove clock before the move, at most 127
+     * @return The packed move
+     */
+    public static int encode(int from, int to, int placed, int captured, boolean promotion,
+                             int castlingRights, int halfmoveClock) {
+        return from | to << 6 | placed << 12 | captured << 16 | (promotion ? 1 << 20 : 0)
+                | castlingRights << 21 | Math.min(halfmoveClock, 127) << 25;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return move >> 6 & 63;
+    }
+
+    public static int castlingRights(int move) {
+        return move >> 21 & 15;
+    }
+
+    public static int halfmoveClock(int move) {
+        return move >>> 25;
+    }
+
+    private static int placed(int move) {
+        return move >> 12 & 15;
+    }
+
+    private static int captured(int move) {
+        return move >> 16 & 15;
+    }
+
+    private static boolean isPromotion(int move) {
+        return (move & 1 << 20) != 0;
+    }
+
+    /**
+     * Formats a move in UCI notation.
+     *
+     * @param move The packed move
+     * @return The move, e.g. "e2e4" or "e7e8q"
+     */
+    public static String toUci(int move) {
+        String uci = ChessUtils.indexToNotation(from(move)) + ChessUtils.indexToNotation(to(move));
+        return isPromotion(move) ? uci + "pnbrqk".charAt((placed(move) - 1) % 6) : uci;
+    }
+
+    /**
+     * Gets the number of moves recorded.
+     *
+     * @return The number of plies
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a recorded move.
+     *
+     * @param ply The ply the move was played from, starting at 0
+     * @return The packed move
+     */
+    public int get(int ply) {
+        if (ply < 0 || ply >= size) {
+            throw new IllegalArgumentException("No move at ply " + ply);
+        }
+        return moves[ply];
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param move The packed move
+     * @param after The board after the move
+     */
+    public void push(int move, Board after) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+        if (size % CHECKPOINT_INTERVAL == 0) {
+            int offset = (size / CHECKPOINT_INTERVAL - 1) * Board.SIZE;
+            if (offset + Board.SIZE > checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, Math.max(checkpoints.length * 2, 4 * Board.SIZE));
+            }
+            after.copyTo(checkpoints, offset);
+        }
+    }
+
+    /**
+     * Removes the last recorded move. Checkpoints past the new end are left to be overwritten.
+     *
+     * @return The packed move
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("No moves to take back");
+        }
+        return moves[--size];
+    }
+
+    /**
+     * Rebuilds the position after a number of plies from the nearest earlier checkpoint.
+     *
+     * @param ply The number of plies played, from 0 for the start position to {@link #size()}
+     * @return A new board holding the position
+     * @throws IllegalArgumentException If the ply is out of range
+     */
+    public Board positionAt(int ply) {
+        if (ply < 0 || ply > size) {
+            throw new IllegalArgumentException("Ply " + ply + " is outside 0-" + size);
+        }
+        int checkpoint = ply / CHECKPOINT_INTERVAL;
+        Board board = checkpoint == 0 ? new Board(Board.START) : Board.copyOf(checkpoints, (checkpoint - 1) * Board.SIZE);
+        for (int i = checkpoint * CHECKPOINT_INTERVAL; i < ply; i++) {
+            play(board, moves[i]);
+        }
+        return board;
+    }
+
+    /**
+     * Plays a recorded move on a board.
+     *
+     * @param board The board before the move
+     * @param move The packed move
+     */
+    public static void play(Board board, int move) {
+        int from = from(move);
+        int to = to(move);
+        int moved = board.code(from);
+        if (Board.isPawn(moved) && from % 8 != to % 8 && board.code(to) == 0) {
+            board.setCode(from - from % 8 + to % 8, 0);
+        }
+        if (Board.isKing(moved) && Math.abs(to - from) == 2) {
+            moveRook(board, from, to, false);
+        }
+        board.setCode(from, 0);
+        board.setCode(to, placed(move));
+    }
+
+    /**
+     * Takes a move back on a board.
+     *
+     * @param board The board after the move
+     * @param move The packed move
+     */
+    public static void undo(Board board, int move) {
+        int from = from(move);
+        int to = to(move);
+        int placed = placed(move);
+        int moved = isPromotion(move) ? (placed <= 6 ? 1 : 7) : placed;
+        int captured = captured(move);
+        board.setCode(from, moved);
+        board.setCode(to, captured);
+        if (Board.isPawn(moved) && from % 8 != to % 8 && captured == 0) {
+            board.setCode(from - from % 8 + to % 8, moved == 1 ? 7 : 1);
+        }
+        if (Board.isKing(moved) && Math.abs(to - from) == 2) {
+            moveRook(board, from, to, true);
+        }
+    }
+
+    private static void moveRook(Board board, int kingFrom, int kingTo, boolean back) {
+        boolean kingside = kingTo > kingFrom;
+        int corner = kingside ? kingFrom + 3 : kingFrom - 4;
+        int beside = kingside ? kingFrom + 1 : kingFrom - 1;
+        int source = back ? beside : corner;
+        int target = back ? corner : beside;
+        board.setCode(target, board.code(source));
+        board.setCode(source, 0);
+    }
+}
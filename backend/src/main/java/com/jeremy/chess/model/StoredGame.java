@@ -0,0 +1,106 @@
+package com.jeremy.chess.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.jeremy.chess.util.ChessUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A finished game kept in the game store. Moves are packed into shorts: the source square
+ * in bits 0-5, the target square in bits 6-11 and the promotion piece in bits 12-14, with
+ * squares numbered from a8 like the board.
+ */
+public class StoredGame {
+    private static final String PROMOTIONS = " NBRQ";
+
+    private final String white;
+    private final String black;
+    private final String event;
+    private final String date;
+    private final String result;
+    private final short[] moves;
+
+    /**
+     * Creates a stored game.
+     *
+     * @param white The white player's name
+     * @param black The black player's name
+     * @param event The event name
+     * @param date The date as written in the PGN
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     * @param moves The packed moves, see {@link #encode}
+     */
+    public StoredGame(String white, String black, String event, String date, String result, short[] moves) {
+        this.white = white;
+        this.black = black;
+        this.event = event;
+        this.date = date;
+        this.result = result;
+        this.moves = moves;
+    }
+
+    /**
+     * Packs a move into a short.
+     *
+     * @param move The move
+     * @return The packed move
+     */
+    public static short encode(ChessMove move) {
+        int from = ChessUtils.notationToIndex(move.getFrom());
+        int to = ChessUtils.notationToIndex(move.getTo());
+        int promotion = move.getPromotion() != null ? Math.max(0, PROMOTIONS.indexOf(move.getPromotion().charAt(0))) : 0;
+        return (short) (from | to << 6 | promotion << 12);
+    }
+
+    /**
+     * Unpacks a move.
+     *
+     * @param packed A move packed by {@link #encode}
+     * @return The move
+     */
+    public static ChessMove decode(short packed) {
+        int promotion = packed >> 12 & 7;
+        return new ChessMove(ChessUtils.indexToNotation(packed & 63), ChessUtils.indexToNotation(packed >> 6 & 63),
+                promotion != 0 ? String.valueOf(PROMOTIONS.charAt(promotion)) : null);
+    }
+
+    public String getWhite() {
+        return white;
+    }
+
+    public String getBlack() {
+        return black;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    @JsonIgnore
+    public short[] getPackedMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the moves in UCI notation, e.g. "e2e4" or "e7e8q".
+     *
+     * @return The moves
+     */
+    public List<String> getMoves() {
+        List<String> uci = new ArrayList<>(moves.length);
+        for (short packed : moves) {
+            ChessMove move = decode(packed);
+            uci.add(move.getFrom() + move.getTo() + (move.getPromotion() != null ? move.getPromotion().toLowerCase() : ""));
+        }
+        return uci;
+    }
+}
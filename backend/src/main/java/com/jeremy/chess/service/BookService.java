@@ -0,0 +1,107 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.util.PolyglotBook;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves opening book moves for lobby positions from a memory-mapped Polyglot book.
+ * The book is optional; without one every lookup returns no moves.
+ */
+@Service
+@Lazy(false) // Stays eager under the faststart profile; maps the book at startup, not on the first book request
+public class BookService {
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
+
+    @Value("${chess.book.path:}")
+    private String bookPath;
+
+    @Value("${chess.book.random64:classpath:polyglot/random64.bin}")
+    private String random64Location;
+
+    @Autowired
+    private ChessService chessService;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private PolyglotBook book;
+
+    @PostConstruct
+    void open() {
+        if (bookPath.isEmpty()) {
+            logger.info("No opening book configured");
+            return;
+        }
+        Path path = Paths.get(bookPath);
+        Resource random64 = resourceLoader.getResource(random64Location);
+        if (!Files.exists(path)) {
+            logger.warn("Opening book disabled: {} not found", path);
+            return;
+        }
+        if (!random64.exists()) {
+            logger.warn("Opening book disabled: Polyglot Random64 table {} not found; it holds the 781 "
+                    + "reference values as 6248 big-endian bytes", random64Location);
+            return;
+        }
+        try (InputStream in = random64.getInputStream()) {
+            book = PolyglotBook.open(path, in);
+            logger.info("Mapped opening book {} with {} entries", path, book.size());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to open opening book {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (book != null) {
+            book.close();
+        }
+    }
+
+    /**
+     * Gets the book moves for the current position of a lobby.
+     *
+     * @param lobbyId The ID of the lobby
+     * @return The book moves, or null if the lobby does not exist
+     */
+    public List<PolyglotBook.Entry> getBookMoves(String lobbyId) {
+        Lobby lobby = chessService.getLobby(lobbyId);
+        if (lobby == null) {
+            return null;
+        }
+        if (book == null) {
+            return List.of();
+        }
+        List<String> board;
+        boolean whiteToMove;
+        int castlingRights;
+        int enPassantFile;
+        synchronized (lobby) {
+            board = new ArrayList<>(lobby.getBoardState());
+            whiteToMove = lobby.isWhiteTurn();
+            castlingRights = PolyglotBook.castlingRights(lobby.canCastle(true, true), lobby.canCastle(true, false),
+                    lobby.canCastle(false, true), lobby.canCastle(false, false));
+            String pushedPawn = lobby.getLastMovedPawnSquare();
+            enPassantFile = pushedPawn != null ? pushedPawn.charAt(0) - 'a' : -1;
+        }
+        return book.find(board, whiteToMove, castlingRights, enPassantFile);
+    }
+}
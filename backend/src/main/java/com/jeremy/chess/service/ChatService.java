@@ -0,0 +1,200 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.ChatMessage;
+import com.jeremy.chess.util.RingBuffer;
+import com.jeremy.chess.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Lobby chat. Each lobby keeps its recent messages in a fixed-size ring buffer for
+ * late joiners, each session is limited by a token bucket, and messages arriving
+ * within one batch window go out to {@code /topic/chat/{lobbyId}} as one frame. The
+ * clock wheel only marks the end of a window; the frame is sent from the chat thread,
+ * so a slow broker never holds up the clocks.
+ */
+@Service
+public class ChatService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+
+    @Value("${chess.chat.history-size:50}")
+    private int historySize;
+
+    @Value("${chess.chat.batch-ms:100}")
+    private long batchMillis;
+
+    @Value("${chess.chat.burst:5}")
+    private int burst;
+
+    @Value("${chess.chat.messages-per-second:1}")
+    private double messagesPerSecond;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ClockService clockService;
+
+    @Autowired
+    private ChessService chessService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, LobbyChat> chats = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private Counter acceptedMessages;
+    private Counter throttledMessages;
+    private ExecutorService sender;
+
+    @PostConstruct
+    void start() {
+        sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chess-chat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptedMessages = Counter.builder("chess.chat.messages")
+                .description("Chat messages accepted")
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+        throttledMessages = Counter.builder("chess.chat.messages")
+                .description("Chat messages dropped by the per-session rate limit")
+                .tag("outcome", "throttled")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * Posts a message to a lobby's chat.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param sessionId The WebSocket session ID of the sender
+     * @param message The message
+     * @return true if the message was accepted, false if the sender is over the rate limit
+     * @throws IllegalArgumentException If the lobby does not exist
+     */
+    public boolean post(String lobbyId, String sessionId, ChatMessage message) {
+        if (chessService.getLobby(lobbyId) == null) {
+            throw new IllegalArgumentException("Lobby not found: " + lobbyId);
+        }
+        if (!tryAcquire(sessionId)) {
+            logger.debug("Throttled chat from session {} in lobby {}", sessionId, lobbyId);
+            return false;
+        }
+        LobbyChat chat = chats.computeIfAbsent(lobbyId, id -> new LobbyChat(historySize));
+        if (chessService.getLobby(lobbyId) == null) {
+            chats.remove(lobbyId, chat);  // Removed meanwhile; its cleanup may have run before the chat was created
+            return false;
+        }
+        chat.history.add(message);
+        boolean openBatch;
+        synchronized (chat) {
+            openBatch = chat.pending.isEmpty();
+            chat.pending.add(message);
+        }
+        if (openBatch) {
+            clockService.schedule("chat:" + lobbyId, batchMillis, () -> send(lobbyId, chat));
+        }
+        return true;
+    }
+
+    /**
+     * Charges one message to a session's rate limit.
+     *
+     * @param sessionId The WebSocket session ID of the sender
+     * @return true if the session may send, false if it is over the limit
+     */
+    public boolean tryAcquire(String sessionId) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.computeIfAbsent(sessionId, id -> new TokenBucket(burst, messagesPerSecond, now));
+        if (!bucket.tryAcquire(now)) {
+            throttledMessages.increment();
+            return false;
+        }
+        acceptedMessages.increment();
+        return true;
+    }
+
+    /**
+     * Gets a lobby's recent messages from memory.
+     *
+     * @param lobbyId The ID of the lobby
+     * @return The buffered messages, oldest first
+     */
+    public List<ChatMessage> getHistory(String lobbyId) {
+        LobbyChat chat = chats.get(lobbyId);
+        return chat != null ? chat.history.toList() : List.of();
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        buckets.remove(event.getSessionId());
+    }
+
+    @EventListener
+    public void onLobbyRemoved(LobbyRemovedEvent event) {
+        chats.remove(event.getLobbyId());
+        clockService.cancel("chat:" + event.getLobbyId());
+    }
+
+    /**
+     * Hands a lobby's pending messages to the chat thread. Runs on the clock wheel.
+     */
+    private void send(String lobbyId, LobbyChat chat) {
+        try {
+            sender.execute(() -> flush(lobbyId, chat));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Chat for lobby {} not sent: shutting down", lobbyId);
+        }
+    }
+
+    /**
+     * Sends a lobby's pending messages. A single message goes out on its own, as it
+     * always has; a burst goes out as one array.
+     */
+    private void flush(String lobbyId, LobbyChat chat) {
+        List<ChatMessage> batch;
+        synchronized (chat) {
+            batch = new ArrayList<>(chat.pending);
+            chat.pending.clear();
+        }
+        if (batch.size() == 1) {
+            messagingTemplate.convertAndSend("/topic/chat/" + lobbyId, batch.get(0));
+        } else if (!batch.isEmpty()) {
+            messagingTemplate.convertAndSend("/topic/chat/" + lobbyId, batch);
+        }
+    }
+
+    private static final class LobbyChat {
+        private final RingBuffer<ChatMessage> history;
+        private final List<ChatMessage> pending = new ArrayList<>();
+
+        private LobbyChat(int historySize) {
+            this.history = new RingBuffer<>(historySize);
+        }
+    }
+}
@@ -1,18 +1,39 @@
 package com.jeremy.chess.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.jeremy.chess.model.Board;
+import com.jeremy.chess.model.BoardSnapshot;
+import com.jeremy.chess.model.ChessClock;
 import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.GameMessage;
 import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.model.LobbyQuery;
 import com.jeremy.chess.util.MoveValidator;
 import com.jeremy.chess.util.ChessUtils;
+import com.jeremy.chess.util.Fen;
+import com.jeremy.chess.util.LobbyIndex;
+import com.jeremy.chess.util.Tablebase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service class that manages chess game lobbies and handles game logic.
@@ -21,10 +42,30 @@ import java.util.UUID;
  * @author ChatGPT
  */
 @Service
+@Lazy(false) // Stays eager under the faststart profile; the first game should not pay for it
 public class ChessService {
     private static final Logger logger = LoggerFactory.getLogger(ChessService.class);
-    private final Map<String, Lobby> lobbies = new HashMap<>();
-    private final Map<String, String> playerColors = new HashMap<>();
+    public static final int MAX_LOBBY_PAGE = 200;
+    private final Map<String, Lobby> lobbies = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> lobbiesBySession = new ConcurrentHashMap<>();  // Lobbies each session has joined or is seated in
+    private final AtomicLong lobbiesVersion = new AtomicLong();  // Bumped when any lobby changes, is added or removed
+    private final LobbyIndex lobbyIndex = new LobbyIndex();  // Kept in step on create, claim, release, game over and remove
+    private volatile LobbiesJson lobbiesJson = null;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClockService clockService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TablebaseService tablebaseService;
+
+    @Value("${chess.lobby.abandon-timeout-ms:60000}")
+    private long abandonTimeoutMillis;
 
     /**
      * Creates a new lobby with the specified name.
@@ -36,7 +77,7 @@ public class ChessService {
         logger.info("Creating lobby with name: {}", name);
         Lobby lobby = new Lobby(name);
         logger.info("Created lobby: id={}, name={}", lobby.getId(), lobby.getName());
-        lobbies.put(lobby.getId(), lobby);
+        addLobby(lobby);
         return lobby;
     }
 
@@ -49,6 +90,51 @@ public class ChessService {
         return createLobby("Unnamed Lobby");
     }
 
+    /**
+     * Creates a new lobby with a time control.
+     * 
+     * @param name The name of the lobby
+     * @param baseMillis The starting time for each side in milliseconds
+     * @param incrementMillis The time added after each move in milliseconds
+     * @return The created lobby
+     */
+    public Lobby createLobby(String name, long baseMillis, long incrementMillis) {
+        if (baseMillis <= 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("Invalid time control: " + baseMillis + "+" + incrementMillis);
+        }
+        logger.info("Creating lobby with name: {}, time control: {}+{} ms", name, baseMillis, incrementMillis);
+        Lobby lobby = new Lobby(name);
+        lobby.setClock(new ChessClock(baseMillis, incrementMillis));
+        addLobby(lobby);
+        return lobby;
+    }
+
+    /**
+     * Creates a lobby with both colors already assigned. The lobby only becomes
+     * visible once both seats are taken, so no one else can claim them.
+     * 
+     * @param name The name of the lobby
+     * @param whitePlayerId The ID of the white player
+     * @param blackPlayerId The ID of the black player
+     * @param baseMillis The starting time for each side in milliseconds, or 0 for an untimed game
+     * @param incrementMillis The time added after each move in milliseconds
+     * @return The created lobby
+     */
+    public Lobby createPairedLobby(String name, String whitePlayerId, String blackPlayerId,
+                                   long baseMillis, long incrementMillis) {
+        Lobby lobby = new Lobby(name);
+        if (baseMillis > 0) {
+            lobby.setClock(new ChessClock(baseMillis, incrementMillis));
+        }
+        lobby.setWhitePlayerId(whitePlayerId);
+        lobby.setBlackPlayerId(blackPlayerId);
+        addLobby(lobby);
+        index(whitePlayerId, lobby.getId());
+        index(blackPlayerId, lobby.getId());
+        logger.info("Paired {} (white) and {} (black) in lobby {}", whitePlayerId, blackPlayerId, lobby.getId());
+        return lobby;
+    }
+
     /**
      * Gets the current board state for a specific lobby.
      * 
@@ -56,14 +142,76 @@ public class ChessService {
      * @return A map of square positions to piece strings, or null if the lobby doesn't exist
      */
     public Map<String, String> getBoardState(String lobbyId) {
+        BoardSnapshot snapshot = getSnapshot(lobbyId);
+        return snapshot != null ? snapshot.getBoard() : null;
+    }
+
+    /**
+     * Gets the serialized state of a lobby for its current move. The snapshot is
+     * built once per move and reused until the next move is made.
+     * 
+     * @param lobbyId The ID of the lobby
+     * @return The snapshot, or null if the lobby doesn't exist
+     */
+    public BoardSnapshot getSnapshot(String lobbyId) {
         Lobby lobby = lobbies.get(lobbyId);
-        if (lobby != null) {
-            logger.info("Returning board state for lobby {}: {}", lobbyId, lobby.getBoardState());
-            return convertBoardStateToMap(lobby.getBoardState());
-        } else {
+        if (lobby == null) {
             logger.warn("Lobby {} not found", lobbyId);
             return null;
         }
+        return getSnapshot(lobby);
+    }
+
+    /**
+     * Gets the serialized state of a lobby, rebuilding it if a move was made
+     * since it was last cached.
+     * 
+     * @param lobby The lobby
+     * @return The snapshot for the lobby's current move
+     */
+    private BoardSnapshot getSnapshot(Lobby lobby) {
+        BoardSnapshot snapshot = lobby.getSnapshot();
+        if (snapshot != null && snapshot.getMoveNumber() == lobby.getMoveNumber()) {
+            return snapshot;
+        }
+        synchronized (lobby) {
+            snapshot = lobby.getSnapshot();
+            if (snapshot == null || snapshot.getMoveNumber() != lobby.getMoveNumber()) {
+                snapshot = buildSnapshot(lobby);
+                lobby.setSnapshot(snapshot);
+                logger.debug("Built snapshot for lobby {} at move {}", lobby.getId(), snapshot.getMoveNumber());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Serializes the board map and the "MOVE" game message for the lobby's current move.
+     * Must be called while holding the lobby's monitor.
+     * 
+     * @param lobby The lobby
+     * @return A new snapshot
+     */
+    private BoardSnapshot buildSnapshot(Lobby lobby) {
+        Map<String, String> board = Collections.unmodifiableMap(convertBoardStateToMap(lobby.getBoardState()));
+        try {
+            byte[] boardJson = objectMapper.writeValueAsBytes(board);
+            GameMessage message = new GameMessage(
+                lobby.getId(),
+                "MOVE",
+                new RawValue(new String(boardJson, StandardCharsets.UTF_8)),
+                lobby.isWhiteTurn(),
+                lobby.isGameOver(),
+                lobby.getWinningTeam(),
+                lobby.getGameEndReason()
+            );
+            message.setInCheck(lobby.isInCheck(lobby.isWhiteTurn()));
+            message.setClock(lobby.getClock());
+            message.setDistanceToMate(lobby.getDistanceToMate());
+            return new BoardSnapshot(lobby.getMoveNumber(), board, boardJson, objectMapper.writeValueAsBytes(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize state of lobby " + lobby.getId(), e);
+        }
     }
 
     /**
@@ -72,119 +220,444 @@ public class ChessService {
      * @param lobbyId The ID of the lobby
      * @param chessMove The move to make
      * @param playerId The ID of the player making the move
-     * @return The updated board state after the move
+     * @return The board state after the move, unchanged if the move was rejected
      */
     public Map<String, String> makeMove(String lobbyId, ChessMove chessMove, String playerId) {
+        BoardSnapshot snapshot = makeMoveForSnapshot(lobbyId, chessMove, playerId);
+        return snapshot != null ? snapshot.getBoard() : getBoardState(lobbyId);
+    }
+
+    /**
+     * Makes a move in a specific lobby and returns the serialized state that resulted from it.
+     * The snapshot is taken under the same lock as the move, so it always matches that move.
+     * 
+     * @param lobbyId The ID of the lobby
+     * @param chessMove The move to make
+     * @param playerId The ID of the player making the move
+     * @return The snapshot after the move, or null if the move was rejected or failed
+     */
+    public BoardSnapshot makeMoveForSnapshot(String lobbyId, ChessMove chessMove, String playerId) {
         try {
             Lobby lobby = lobbies.get(lobbyId);
             if (lobby == null) {
                 throw new IllegalArgumentException("Lobby not found");
             }
+            BoardSnapshot snapshot;
+            GameEndedEvent ended = null;
+            boolean moved;
+            synchronized (lobby) {
+                boolean wasOver = lobby.isGameOver();
+                int moveNumber = lobby.getMoveNumber();
+                applyMove(lobby, chessMove, playerId);
+                moved = lobby.getMoveNumber() != moveNumber;
+                if (!wasOver && lobby.isGameOver()) {
+                    // A flag found fallen when the move arrived ends the game without a move to broadcast it
+                    ended = createGameEndedEvent(lobby, moved);
+                    lobbyIndex.update(lobby);
+                }
+                snapshot = moved ? getSnapshot(lobby) : null;
+            }
+            if (ended != null) {
+                publishGameEnded(ended);
+            }
+            return snapshot;
+        } catch (Exception e) {
+            logger.error("Error making move in lobby {}: {}", lobbyId, e.getMessage());
+            return null;
+        }
+    }
 
-            // Verify it's the player's turn
-            boolean isWhiteTurn = lobby.isWhiteTurn();
-            if ((isWhiteTurn && !playerId.equals(lobby.getWhitePlayerId())) ||
-                (!isWhiteTurn && !playerId.equals(lobby.getBlackPlayerId()))) {
-                logger.warn("Player {} attempted to move out of turn in lobby {}", playerId, lobbyId);
-                return convertBoardStateToMap(lobby.getBoardState());
+    /**
+     * Asks to take back moves. A request only registers until the opponent asks too,
+     * at which point the game goes back to the first requester's last move: one ply if
+     * they moved last, two if it is their turn. Timed games have no takebacks.
+     * 
+     * @param lobbyId The ID of the lobby
+     * @param playerId The ID of the player asking
+     * @return true if moves were taken back, false if the request is waiting for the
+     *         opponent, or null if it was refused
+     */
+    public Boolean requestTakeback(String lobbyId, String playerId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null) {
+            logger.warn("Lobby {} not found for takeback", lobbyId);
+            return null;
+        }
+        synchronized (lobby) {
+            boolean white = playerId.equals(lobby.getWhitePlayerId());
+            if (!white && !playerId.equals(lobby.getBlackPlayerId())) {
+                logger.warn("Player {} is not seated in lobby {} and cannot ask for a takeback", playerId, lobbyId);
+                return null;
+            }
+            if (lobby.isGameOver() || lobby.getClock() != null) {
+                logger.warn("Takeback refused in lobby {}: the game is over or timed", lobbyId);
+                return null;
+            }
+            String requester = lobby.getTakebackRequestedBy();
+            if (requester == null || requester.equals(playerId)) {
+                if (plyToRequester(lobby, white) > lobby.getMoveNumber()) {
+                    logger.warn("Player {} has no move to take back in lobby {}", playerId, lobbyId);
+                    return null;
+                }
+                lobby.requestTakeback(playerId);
+                return false;
             }
+            lobby.takeBack(plyToRequester(lobby, requester.equals(lobby.getWhitePlayerId())));
+            Tablebase.Result result = tablebaseService.probe(lobby.getBoardState(), lobby.isWhiteTurn());
+            lobby.setDistanceToMate(result != null ? result.getDistanceToMate() : null);
+            return true;
+        }
+    }
 
-            ArrayList<String> boardState = lobby.getBoardState();
-            
-            // Update the board state based on the move
-            String piece = boardState.get(convertSquareToIndex(chessMove.getFrom()));
-            if (piece.isEmpty()) {
-                logger.warn("No piece at source square {} in lobby {}", chessMove.getFrom(), lobbyId);
-                return convertBoardStateToMap(boardState);
+    private static int plyToRequester(Lobby lobby, boolean requesterIsWhite) {
+        return lobby.isWhiteTurn() == requesterIsWhite ? 2 : 1;
+    }
+
+    /**
+     * Rebuilds an earlier position of a lobby's game.
+     * 
+     * @param lobbyId The ID of the lobby
+     * @param ply The number of half-moves played, from 0 for the start position
+     * @return The position, the move that led to it and the side to move, or null if the lobby doesn't exist
+     * @throws IllegalArgumentException If the game has not reached that ply
+     */
+    public Map<String, Object> getPosition(String lobbyId, int ply) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null) {
+            return null;
+        }
+        Board board;
+        String move;
+        synchronized (lobby) {
+            board = lobby.getPositionAt(ply);
+            move = ply > 0 ? lobby.getMoveAt(ply - 1) : null;
+        }
+        boolean whiteTurn = ply % 2 == 0;
+        Map<String, Object> position = new LinkedHashMap<>();
+        position.put("ply", ply);
+        position.put("move", move);
+        position.put("whiteTurn", whiteTurn);
+        position.put("fen", Fen.format(board, whiteTurn));
+        position.put("boardState", convertBoardStateToMap(board));
+        return position;
+    }
+
+    /**
+     * Checks the castling rules the move validator does not cover: neither the king nor the
+     * rook has moved, the squares between them are empty, and the king is not in check and
+     * does not pass through or land on an attacked square.
+     * 
+     * @param lobby The lobby
+     * @param fromIndex The king's square
+     * @param toIndex The square two files away the king moves to
+     * @param isWhite Whether white is castling
+     * @return true if the castling move is legal
+     */
+    private boolean canCastle(Lobby lobby, int fromIndex, int toIndex, boolean isWhite) {
+        boolean kingside = toIndex > fromIndex;
+        int rookIndex = kingside ? fromIndex + 3 : fromIndex - 4;
+        List<String> boardState = lobby.getBoardState();
+        if (!lobby.canCastle(isWhite, kingside) || !boardState.get(rookIndex).equals(isWhite ? "wR" : "bR")) {
+            return false;
+        }
+        int step = kingside ? 1 : -1;
+        for (int i = fromIndex + step; i != rookIndex; i += step) {
+            if (!boardState.get(i).isEmpty()) {
+                return false;
             }
-            
-            // Verify piece color matches player's color
-            boolean isWhitePiece = piece.startsWith("w");
-            if ((isWhitePiece && !playerId.equals(lobby.getWhitePlayerId())) ||
-                (!isWhitePiece && !playerId.equals(lobby.getBlackPlayerId()))) {
-                logger.warn("Player {} attempted to move opponent's piece in lobby {}", playerId, lobbyId);
-                return convertBoardStateToMap(boardState);
+        }
+        if (lobby.isInCheck(isWhite)) {
+            return false;
+        }
+        String king = boardState.get(fromIndex);
+        for (int i = fromIndex + step; i != toIndex + step; i += step) {
+            Board tempBoard = new Board(boardState);
+            tempBoard.set(fromIndex, "");
+            tempBoard.set(i, king);
+            if (lobby.isInCheck(isWhite, tempBoard)) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    /**
+     * Validates and applies a move to a lobby. Must be called while holding the lobby's monitor.
+     * A legal move updates the lobby's board, turn and clock, and may end the game; a rejected
+     * move is logged and leaves the lobby untouched, except that a mover whose flag has fallen
+     * loses on time. Callers tell the cases apart by comparing the lobby's move number.
+     * 
+     * @param lobby The lobby
+     * @param chessMove The move to make
+     * @param playerId The ID of the player making the move
+     */
+    private void applyMove(Lobby lobby, ChessMove chessMove, String playerId) {
+        String lobbyId = lobby.getId();
+
+        if (lobby.isGameOver()) {
+            logger.warn("Player {} attempted to move in finished game in lobby {}", playerId, lobbyId);
+            return;
+        }
 
-            // Prevent capturing own pieces
-            String targetPiece = boardState.get(convertSquareToIndex(chessMove.getTo()));
-            if (!targetPiece.isEmpty() && targetPiece.charAt(0) == piece.charAt(0)) {
-                logger.warn("Player {} attempted to capture their own piece in lobby {}", playerId, lobbyId);
-                return convertBoardStateToMap(boardState);
+        // Verify it's the player's turn
+        boolean isWhiteTurn = lobby.isWhiteTurn();
+        if ((isWhiteTurn && !playerId.equals(lobby.getWhitePlayerId())) ||
+            (!isWhiteTurn && !playerId.equals(lobby.getBlackPlayerId()))) {
+            logger.warn("Player {} attempted to move out of turn in lobby {}", playerId, lobbyId);
+            return;
+        }
+
+        Board boardState = new Board(lobby.getBoardState());
+        
+        // Update the board state based on the move
+        String piece = boardState.get(convertSquareToIndex(chessMove.getFrom()));
+        if (piece.isEmpty()) {
+            logger.warn("No piece at source square {} in lobby {}", chessMove.getFrom(), lobbyId);
+            return;
+        }
+        
+        // Verify piece color matches player's color
+        boolean isWhitePiece = piece.startsWith("w");
+        if ((isWhitePiece && !playerId.equals(lobby.getWhitePlayerId())) ||
+            (!isWhitePiece && !playerId.equals(lobby.getBlackPlayerId()))) {
+            logger.warn("Player {} attempted to move opponent's piece in lobby {}", playerId, lobbyId);
+            return;
+        }
+
+        // Prevent capturing own pieces
+        String targetPiece = boardState.get(convertSquareToIndex(chessMove.getTo()));
+        if (!targetPiece.isEmpty() && targetPiece.charAt(0) == piece.charAt(0)) {
+            logger.warn("Player {} attempted to capture their own piece in lobby {}", playerId, lobbyId);
+            return;
+        }
+
+        // Validate the move; castling is the one move the validator does not know about
+        int fromIndex = convertSquareToIndex(chessMove.getFrom());
+        int toIndex = convertSquareToIndex(chessMove.getTo());
+        boolean castling = piece.endsWith("K") && (fromIndex == 4 || fromIndex == 60) && Math.abs(toIndex - fromIndex) == 2;
+        if (castling) {
+            if (!canCastle(lobby, fromIndex, toIndex, isWhitePiece)) {
+                logger.warn("Illegal castling from {} to {} by player {} in lobby {}", chessMove.getFrom(), chessMove.getTo(), playerId, lobbyId);
+                return;
             }
+        } else if (!MoveValidator.isValidMove(piece, chessMove.getFrom(), chessMove.getTo(), boardState)) {
+            logger.warn("Invalid move from {} to {} by player {} in lobby {}", chessMove.getFrom(), chessMove.getTo(), playerId, lobbyId);
+            return;
+        }
 
-            // Validate the move
-            if (!MoveValidator.isValidMove(piece, chessMove.getFrom(), chessMove.getTo(), boardState)) {
-                logger.warn("Invalid move from {} to {} by player {} in lobby {}", chessMove.getFrom(), chessMove.getTo(), playerId, lobbyId);
-                return convertBoardStateToMap(boardState);
+        // Check if the move gets the player out of check
+        Board tempBoard = new Board(boardState);
+        tempBoard.set(convertSquareToIndex(chessMove.getFrom()), "");
+        tempBoard.set(convertSquareToIndex(chessMove.getTo()), piece);
+        
+        if (lobby.isInCheck(isWhiteTurn) && lobby.isInCheck(isWhiteTurn, tempBoard)) {
+            logger.warn("Move from {} to {} by player {} in lobby {} does not get out of check", 
+                chessMove.getFrom(), chessMove.getTo(), playerId, lobbyId);
+            return;
+        }
+
+        // Handle promotion
+        String newPiece = piece;
+        if (chessMove.getPromotion() != null) {
+            char color = isWhitePiece ? 'w' : 'b';
+            if ((isWhitePiece && chessMove.getTo().charAt(1) == '8' && piece.endsWith("P")) ||
+                (!isWhitePiece && chessMove.getTo().charAt(1) == '1' && piece.endsWith("P"))) {
+                newPiece = color + chessMove.getPromotion();
+                logger.info("Promoting {} pawn to {}", color, chessMove.getPromotion());
             }
+        }
+
+        // Charge the mover's clock; a flag that fell before the move arrived ends the game
+        ChessClock clock = lobby.getClock();
+        long now = System.currentTimeMillis();
+        if (clock != null && !clock.charge(isWhiteTurn, now)) {
+            logger.info("Player {} ran out of time in lobby {}", playerId, lobbyId);
+            clockService.cancel(lobbyId);
+            lobby.endGame(isWhiteTurn ? "Black" : "White", "Timeout");
+            return;
+        }
+
+        // Make the move
+        boardState.set(fromIndex, "");
+        boardState.set(toIndex, newPiece);
+        if (castling) {
+            int rookFrom = toIndex > fromIndex ? fromIndex + 3 : fromIndex - 4;
+            boardState.set((fromIndex + toIndex) / 2, boardState.get(rookFrom));
+            boardState.set(rookFrom, "");
+        }
 
-            // Check if the move gets the player out of check
-            ArrayList<String> tempBoard = new ArrayList<>(boardState);
-            tempBoard.set(convertSquareToIndex(chessMove.getFrom()), "");
-            tempBoard.set(convertSquareToIndex(chessMove.getTo()), piece);
+        // Handle en passant capture
+        if (piece.endsWith("P")) {
+            int direction = isWhitePiece ? -1 : 1;
             
-            if (lobby.isInCheck(isWhiteTurn) && lobby.isInCheck(isWhiteTurn, tempBoard)) {
-                logger.warn("Move from {} to {} by player {} in lobby {} does not get out of check", 
-                    chessMove.getFrom(), chessMove.getTo(), playerId, lobbyId);
-                return convertBoardStateToMap(boardState);
+            // Check if this was a double pawn move
+            if (Math.abs(toIndex - fromIndex) == 16) {
+                lobby.setLastMovedPawnSquare(chessMove.getTo());
             }
-
-            // Handle promotion
-            String newPiece = piece;
-            if (chessMove.getPromotion() != null) {
-                char color = isWhitePiece ? 'w' : 'b';
-                if ((isWhitePiece && chessMove.getTo().charAt(1) == '8' && piece.endsWith("P")) ||
-                    (!isWhitePiece && chessMove.getTo().charAt(1) == '1' && piece.endsWith("P"))) {
-                    newPiece = color + chessMove.getPromotion();
-                    logger.info("Promoting {} pawn to {}", color, chessMove.getPromotion());
+            
+            // Check if this was an en passant capture, i.e. a diagonal move onto an empty square
+            if (targetPiece.isEmpty() && (Math.abs(toIndex - fromIndex) == 7 || Math.abs(toIndex - fromIndex) == 9)) {
+                int capturedPawnIndex = toIndex - 8 * direction; // The square the captured pawn is on
+                String capturedPiece = boardState.get(capturedPawnIndex);
+                if (capturedPiece.equals(isWhitePiece ? "bP" : "wP")) {
+                    boardState.set(capturedPawnIndex, "");
+                    logger.info("En passant capture in lobby {}: {} captures pawn at {}", 
+                        lobbyId, piece, ChessUtils.indexToNotation(capturedPawnIndex));
                 }
             }
+        }
+        
+        // Update board state and toggle turn
+        lobby.playMove(boardState, fromIndex, toIndex);
+        logger.info("Move made in lobby {}: {} to {}, next turn: {}", 
+            lobbyId, chessMove.getFrom(), chessMove.getTo(), 
+            lobby.isWhiteTurn() ? "white" : "black");
 
-            // Make the move
-            boardState.set(convertSquareToIndex(chessMove.getFrom()), "");
-            boardState.set(convertSquareToIndex(chessMove.getTo()), newPiece);
-
-            // Handle en passant capture
-            if (piece.endsWith("P")) {
-                int fromIndex = convertSquareToIndex(chessMove.getFrom());
-                int toIndex = convertSquareToIndex(chessMove.getTo());
-                int direction = isWhitePiece ? -1 : 1;
-                
-                // Check if this was a double pawn move
-                if (Math.abs(toIndex - fromIndex) == 16) {
-                    lobby.setLastMovedPawnSquare(chessMove.getTo());
-                }
-                
-                // Check if this was an en passant capture
-                if (Math.abs(toIndex - fromIndex) == 7 || Math.abs(toIndex - fromIndex) == 9) {
-                    int capturedPawnIndex = toIndex - 8 * direction; // The square the captured pawn is on
-                    String capturedPiece = boardState.get(capturedPawnIndex);
-                    if (capturedPiece.equals(isWhitePiece ? "bP" : "wP")) {
-                        boardState.set(capturedPawnIndex, "");
-                        logger.info("En passant capture in lobby {}: {} captures pawn at {}", 
-                            lobbyId, piece, ChessUtils.indexToNotation(capturedPawnIndex));
-                    }
+        // Settle solved endings at once instead of making the players play them out
+        if (!lobby.isGameOver()) {
+            Tablebase.Result result = tablebaseService.probe(boardState, lobby.isWhiteTurn());
+            lobby.setDistanceToMate(result != null ? result.getDistanceToMate() : null);
+            if (result != null && tablebaseService.isAdjudicating()) {
+                if (result.getWdl() == 0) {
+                    lobby.endGame("Draw", "Tablebase draw");
+                } else {
+                    boolean whiteWins = lobby.isWhiteTurn() == (result.getWdl() > 0);
+                    lobby.endGame(whiteWins ? "White" : "Black", "Tablebase win");
                 }
             }
-            
-            // Update board state and toggle turn
-            lobby.setBoardState(boardState);
-            logger.info("Move made in lobby {}: {} to {}, next turn: {}", 
-                lobbyId, chessMove.getFrom(), chessMove.getTo(), 
-                lobby.isWhiteTurn() ? "white" : "black");
-            
-            return convertBoardStateToMap(boardState);
-        } catch (Exception e) {
-            logger.error("Error making move in lobby {}: {}", lobbyId, e.getMessage());
-            return null;
         }
+
+        // Hand the clock to the other side, or stop it if the move ended the game
+        if (clock != null) {
+            if (lobby.isGameOver()) {
+                clock.stop(now);
+                clockService.cancel(lobbyId);
+            } else {
+                clock.start(lobby.isWhiteTurn(), now);
+                scheduleFlag(lobby, now);
+            }
+        }
+    }
+
+    /**
+     * Schedules the flag-fall check for the side to move. Must be called while holding the lobby's monitor.
+     * 
+     * @param lobby The lobby with a running clock
+     * @param now The current time in milliseconds
+     */
+    private void scheduleFlag(Lobby lobby, long now) {
+        String lobbyId = lobby.getId();
+        long remaining = lobby.getClock().getRemainingMillis(lobby.isWhiteTurn(), now);
+        clockService.schedule(lobbyId, Math.max(0, remaining), () -> checkFlag(lobbyId));
+    }
+
+    /**
+     * Ends the game on time if the side to move has run out. Runs on the clock thread.
+     * 
+     * @param lobbyId The ID of the lobby
+     */
+    private void checkFlag(String lobbyId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null) {
+            return;
+        }
+        GameEndedEvent ended;
+        synchronized (lobby) {
+            ChessClock clock = lobby.getClock();
+            if (lobby.isGameOver() || clock == null || clock.getRunning() == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean white = lobby.isWhiteTurn();
+            if (clock.getRemainingMillis(white, now) > 0) {
+                // Timer and wall clock disagree by a few milliseconds; check again later
+                scheduleFlag(lobby, now);
+                return;
+            }
+            clock.stop(now);
+            lobby.endGame(white ? "Black" : "White", "Timeout");
+            lobbyIndex.update(lobby);
+            ended = createGameEndedEvent(lobby, false);
+        }
+        logger.info("Flag fell for {} in lobby {}", lobby.isWhiteTurn() ? "white" : "black", lobbyId);
+        publishGameEnded(ended);
+    }
+
+    /**
+     * Publishes the end of a game. A listener that fails is logged and never undoes or
+     * hides the move, timeout or abandonment that ended the game.
+     */
+    private void publishGameEnded(GameEndedEvent ended) {
+        try {
+            eventPublisher.publishEvent(ended);
+        } catch (RuntimeException e) {
+            logger.error("Game ended listener failed for lobby {}", ended.getLobbyId(), e);
+        }
+    }
+
+    private GameEndedEvent createGameEndedEvent(Lobby lobby, boolean onMove) {
+        return new GameEndedEvent(lobby.getId(), lobby.getWhitePlayerId(), lobby.getBlackPlayerId(),
+            lobby.getWinningTeam(), lobby.getGameEndReason(), onMove, lobby.getPositionKeys());
     }
 
     public Collection<Lobby> getLobbies() {
         return lobbies.values();
     }
 
+    /**
+     * Finds a page of lobbies, ordered by when they were created. Pages hold at most
+     * {@value #MAX_LOBBY_PAGE} lobbies.
+     * 
+     * @param query The filters, cursor and page size
+     * @return The page
+     * @throws IllegalArgumentException If the status or cursor is malformed
+     */
+    public LobbyIndex.Page findLobbies(LobbyQuery query) {
+        LobbyIndex.Status status = query.getStatus() != null && !query.getStatus().isBlank()
+            ? LobbyIndex.Status.parse(query.getStatus()) : null;
+        int limit = Math.max(1, Math.min(query.getLimit(), MAX_LOBBY_PAGE));
+        return lobbyIndex.find(status, query.getName(), query.getCursor(), limit, query.isNewestFirst());
+    }
+
+    /**
+     * Gets the version of the lobby list, which changes whenever a lobby is added,
+     * removed or changed.
+     * 
+     * @return The version
+     */
+    public long getLobbiesVersion() {
+        return lobbiesVersion.get();
+    }
+
+    /**
+     * Gets the lobby list serialized as JSON, reusing the previous serialization if
+     * nothing changed since.
+     * 
+     * @return The lobby list as UTF-8 JSON
+     */
+    public byte[] getLobbiesJson() {
+        long version = lobbiesVersion.get();
+        LobbiesJson cached = lobbiesJson;
+        if (cached != null && cached.version == version) {
+            return cached.json;
+        }
+        try {
+            // Stamped with the version read before serializing, so a concurrent change only costs a rebuild
+            byte[] json = objectMapper.writeValueAsBytes(lobbies.values());
+            lobbiesJson = new LobbiesJson(version, json);
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize lobby list", e);
+        }
+    }
+
+    private void addLobby(Lobby lobby) {
+        lobby.trackChanges(lobbiesVersion);
+        lobbies.put(lobby.getId(), lobby);
+        lobbyIndex.add(lobby);
+        lobbiesVersion.incrementAndGet();
+    }
+
     public Lobby getLobby(String lobbyId) {
         return lobbies.get(lobbyId);
     }
@@ -192,6 +665,7 @@ public class ChessService {
     public void joinLobby(String lobbyId, String playerId) {
         Lobby lobby = lobbies.get(lobbyId);
         if (lobby != null) {
+            index(playerId, lobbyId);
             logger.info("Player {} joined lobby {}", playerId, lobbyId);
         }
     }
@@ -199,14 +673,186 @@ public class ChessService {
     public void disconnect(String lobbyId, String playerId) {
         Lobby lobby = lobbies.get(lobbyId);
         if (lobby != null) {
-            playerColors.remove(playerId);
-            lobbies.remove(lobbyId);
+            unindex(playerId, lobbyId);
+            removeLobby(lobbyId);
             logger.info("Player {} disconnected from lobby {}", playerId, lobbyId);
         } else {
             logger.warn("Lobby {} not found for disconnection", lobbyId);
         }
     }
 
+    /**
+     * Gives up a player's seat in a lobby. The lobby is removed if no one is left seated.
+     * 
+     * @param lobbyId The ID of the lobby
+     * @param playerId The ID of the player leaving
+     * @return "white" or "black" for the seat given up, or null if the player had none
+     */
+    public String leaveLobby(String lobbyId, String playerId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null) {
+            return null;
+        }
+        unindex(playerId, lobbyId);
+        String color;
+        boolean empty;
+        synchronized (lobby) {
+            color = playerId.equals(lobby.getWhitePlayerId()) ? "white"
+                : playerId.equals(lobby.getBlackPlayerId()) ? "black" : null;
+            releaseSeat(lobby, playerId);
+            empty = color != null && isEmpty(lobby);
+        }
+        if (empty) {
+            removeLobby(lobbyId);
+        }
+        return color;
+    }
+
+    /**
+     * Cleans up after a closed WebSocket session, visiting only the lobbies it joined.
+     * Seats in games that are under way are held for the abandon timeout so the player
+     * can reconnect and claim them back; other seats are freed at once, and lobbies left
+     * with no one seated are removed.
+     * 
+     * @param sessionId The ID of the closed session
+     * @return The IDs of lobbies whose seats changed, including removed ones
+     */
+    public List<String> handleSessionDisconnect(String sessionId) {
+        Set<String> lobbyIds = lobbiesBySession.remove(sessionId);
+        if (lobbyIds == null) {
+            return List.of();
+        }
+        List<String> changed = new ArrayList<>();
+        for (String lobbyId : lobbyIds) {
+            Lobby lobby = lobbies.get(lobbyId);
+            if (lobby == null) {
+                continue;
+            }
+            boolean released;
+            boolean empty;
+            synchronized (lobby) {
+                boolean white = sessionId.equals(lobby.getWhitePlayerId());
+                if (!white && !sessionId.equals(lobby.getBlackPlayerId())) {
+                    continue;
+                }
+                released = !isInProgress(lobby);
+                if (released) {
+                    releaseSeat(lobby, sessionId);
+                } else {
+                    clockService.schedule(abandonKey(lobbyId, white), abandonTimeoutMillis, () -> abandon(lobbyId, sessionId));
+                    logger.info("Holding {}'s seat in lobby {} for {} ms", sessionId, lobbyId, abandonTimeoutMillis);
+                }
+                empty = released && isEmpty(lobby);
+            }
+            if (empty) {
+                removeLobby(lobbyId);
+            }
+            if (released) {
+                changed.add(lobbyId);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forfeits the game of a player who did not come back in time. Runs on the clock thread.
+     */
+    private void abandon(String lobbyId, String sessionId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null) {
+            return;
+        }
+        GameEndedEvent ended = null;
+        boolean empty;
+        synchronized (lobby) {
+            boolean white = sessionId.equals(lobby.getWhitePlayerId());
+            if (!white && !sessionId.equals(lobby.getBlackPlayerId())) {
+                return;  // The seat was claimed back
+            }
+            if (isInProgress(lobby)) {
+                if (lobby.getClock() != null) {
+                    lobby.getClock().stop(System.currentTimeMillis());
+                    clockService.cancel(lobbyId);
+                }
+                lobby.endGame(white ? "Black" : "White", "Abandoned");
+                ended = createGameEndedEvent(lobby, false);
+            }
+            releaseSeat(lobby, sessionId);
+            empty = isEmpty(lobby);
+        }
+        logger.info("Player {} abandoned lobby {}", sessionId, lobbyId);
+        if (ended != null) {
+            publishGameEnded(ended);
+        }
+        if (empty) {
+            removeLobby(lobbyId);
+        }
+    }
+
+    /**
+     * Checks whether a seat belongs to a session that has disconnected, and so can be
+     * claimed by another. Connected sessions are always indexed under the lobbies they sit in.
+     */
+    private boolean isDeparted(String playerId, String lobbyId) {
+        Set<String> joined = lobbiesBySession.get(playerId);
+        return joined == null || !joined.contains(lobbyId);
+    }
+
+    private static boolean isInProgress(Lobby lobby) {
+        return !lobby.isGameOver() && lobby.getMoveNumber() > 0
+            && lobby.getWhitePlayerId() != null && lobby.getBlackPlayerId() != null;
+    }
+
+    private static boolean isEmpty(Lobby lobby) {
+        return lobby.getWhitePlayerId() == null && lobby.getBlackPlayerId() == null;
+    }
+
+    private void releaseSeat(Lobby lobby, String playerId) {
+        if (playerId.equals(lobby.getWhitePlayerId())) {
+            lobby.setWhitePlayerId(null);
+        }
+        if (playerId.equals(lobby.getBlackPlayerId())) {
+            lobby.setBlackPlayerId(null);
+        }
+        lobbyIndex.update(lobby);
+    }
+
+    private static String abandonKey(String lobbyId, boolean white) {
+        return "abandon:" + lobbyId + (white ? ":white" : ":black");
+    }
+
+    private void removeLobby(String lobbyId) {
+        if (lobbies.remove(lobbyId) == null) {
+            return;
+        }
+        lobbyIndex.remove(lobbyId);
+        lobbiesVersion.incrementAndGet();
+        clockService.cancel(lobbyId);
+        clockService.cancel(abandonKey(lobbyId, true));
+        clockService.cancel(abandonKey(lobbyId, false));
+        logger.info("Removed lobby {}", lobbyId);
+        eventPublisher.publishEvent(new LobbyRemovedEvent(lobbyId));
+    }
+
+    private void index(String playerId, String lobbyId) {
+        if (playerId != null) {
+            lobbiesBySession.compute(playerId, (id, joined) -> {
+                Set<String> set = joined != null ? joined : ConcurrentHashMap.newKeySet();
+                set.add(lobbyId);
+                return set;
+            });
+        }
+    }
+
+    private void unindex(String playerId, String lobbyId) {
+        if (playerId != null) {
+            lobbiesBySession.computeIfPresent(playerId, (id, joined) -> {
+                joined.remove(lobbyId);
+                return joined.isEmpty() ? null : joined;
+            });
+        }
+    }
+
     public String getWhitePlayerId(String lobbyId) {
         Lobby lobby = lobbies.get(lobbyId);
         return lobby != null ? lobby.getWhitePlayerId() : null;
@@ -242,17 +888,23 @@ public class ChessService {
             return false;
         }
 
-        if ("white".equalsIgnoreCase(color)) {
-            if (lobby.getWhitePlayerId() == null || lobby.getWhitePlayerId().equals(playerId)) {
-                lobby.setWhitePlayerId(playerId);
-                logger.info("Player {} claimed white in lobby {}", playerId, lobbyId);
-                return true;
-            }
-        } else if ("black".equalsIgnoreCase(color)) {
-            if (lobby.getBlackPlayerId() == null || lobby.getBlackPlayerId().equals(playerId)) {
-                lobby.setBlackPlayerId(playerId);
-                logger.info("Player {} claimed black in lobby {}", playerId, lobbyId);
-                return true;
+        // A seat held for a disconnected player can be taken, which is how they reconnect to it
+        boolean white = "white".equalsIgnoreCase(color);
+        if (white || "black".equalsIgnoreCase(color)) {
+            synchronized (lobby) {
+                String holder = white ? lobby.getWhitePlayerId() : lobby.getBlackPlayerId();
+                if (holder == null || holder.equals(playerId) || isDeparted(holder, lobbyId)) {
+                    if (white) {
+                        lobby.setWhitePlayerId(playerId);
+                    } else {
+                        lobby.setBlackPlayerId(playerId);
+                    }
+                    clockService.cancel(abandonKey(lobbyId, white));
+                    index(playerId, lobbyId);
+                    lobbyIndex.update(lobby);
+                    logger.info("Player {} claimed {} in lobby {}", playerId, white ? "white" : "black", lobbyId);
+                    return true;
+                }
             }
         }
         logger.warn("Player {} failed to claim {} in lobby {}", playerId, color, lobbyId);
@@ -271,12 +923,12 @@ public class ChessService {
     }
 
     /**
-     * Converts a board state ArrayList to a map of square positions to piece strings.
+     * Converts a board state list to a map of square positions to piece strings.
      * 
-     * @param boardState The board state as an ArrayList
+     * @param boardState The board state as a list
      * @return A map of square positions to piece strings
      */
-    private Map<String, String> convertBoardStateToMap(ArrayList<String> boardState) {
+    private Map<String, String> convertBoardStateToMap(List<String> boardState) {
         Map<String, String> boardMap = new HashMap<>();
         String[] squares = {
             "a8", "b8", "c8", "d8", "e8", "f8", "g8", "h8",
@@ -307,4 +959,14 @@ public class ChessService {
         int rank = 8 - Character.getNumericValue(square.charAt(1));
         return rank * 8 + file;
     }
+
+    private static final class LobbiesJson {
+        private final long version;
+        private final byte[] json;
+
+        private LobbiesJson(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.util.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one pending deadline per lobby in a shared {@link TimingWheel}, so tens of
+ * thousands of running clocks cost one thread and O(1) work per move.
+ */
+@Service
+public class ClockService {
+
+    @Value("${chess.clock.tick-ms:50}")
+    private long tickMillis;
+
+    @Value("${chess.clock.wheel-size:1024}")
+    private int wheelSize;
+
+    private final Map<String, TimingWheel.Timeout> deadlines = new ConcurrentHashMap<>();
+    private TimingWheel wheel;
+
+    @PostConstruct
+    void start() {
+        wheel = new TimingWheel(tickMillis, TimeUnit.MILLISECONDS, wheelSize, "chess-clock");
+        wheel.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Sets the deadline for a key, replacing any previous one.
+     *
+     * @param key The key the deadline belongs to, e.g. a lobby ID
+     * @param delayMillis The time until the deadline in milliseconds
+     * @param task The task to run on the timer thread when the deadline passes
+     */
+    public void schedule(String key, long delayMillis, Runnable task) {
+        Deadline deadline = new Deadline(key, task);
+        deadline.timeout = wheel.schedule(deadline, delayMillis, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout previous = deadlines.put(key, deadline.timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Cancels the pending deadline for a key, if any.
+     *
+     * @param key The key the deadline belongs to
+     */
+    public void cancel(String key) {
+        TimingWheel.Timeout previous = deadlines.remove(key);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private final class Deadline implements Runnable {
+        private final String key;
+        private final Runnable task;
+        private volatile TimingWheel.Timeout timeout;
+
+        private Deadline(String key, Runnable task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (timeout != null) {
+                deadlines.remove(key, timeout);
+            }
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.jeremy.chess.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Game events over plain HTTP for clients that cannot keep a WebSocket open: a
+ * Server-Sent Events stream and a long poll. Both follow {@link GameEventLog}, so
+ * they carry the same events and sequence numbers as {@code /topic/game}.
+ *
+ * <p>Waiting requests are held asynchronously and cost no container thread. Events
+ * are fanned out on one thread, which keeps every stream in sequence order and keeps
+ * answering polls off the thread that published the event.
+ */
+@Service
+public class EventStreamService implements GameEventLog.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamService.class);
+
+    /** Response header carrying the sequence number a long-poll client should send next time. */
+    public static final String SEQUENCE_HEADER = "X-Event-Sequence";
+
+    @Value("${chess.events.sse-timeout-ms:1800000}")
+    private long sseTimeoutMillis;
+
+    @Value("${chess.events.poll-timeout-ms:25000}")
+    private long pollTimeoutMillis;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private final Map<String, Set<Poll>> polls = new ConcurrentHashMap<>();
+    private ExecutorService fanOut;
+
+    @PostConstruct
+    void start() {
+        fanOut = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chess-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gameEventLog.addListener(this);
+        Gauge.builder("chess.events.waiting", this, service -> count(service.streams) + count(service.polls))
+                .description("HTTP clients waiting for game events")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        fanOut.shutdownNow();
+    }
+
+    /**
+     * Opens an event stream for a lobby.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param lastSeen The last sequence number the client has, e.g. from Last-Event-ID, or -1 for none
+     * @return The emitter; events the client missed are sent first if the log still has them
+     */
+    public SseEmitter stream(String lobbyId, long lastSeen) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        Stream stream = new Stream(emitter, lastSeen);
+        Runnable remove = () -> remove(streams, lobbyId, stream);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        // Replayed on the fan-out thread so nothing published meanwhile is sent out of order
+        fanOut.execute(() -> {
+            List<byte[]> missed = gameEventLog.since(lobbyId, lastSeen);
+            if (missed != null) {
+                for (int i = 0; i < missed.size(); i++) {
+                    if (!stream.send(lastSeen + 1 + i, missed.get(i))) {
+                        return;
+                    }
+                }
+            }
+            streams.computeIfAbsent(lobbyId, id -> ConcurrentHashMap.newKeySet()).add(stream);
+        });
+        return emitter;
+    }
+
+    /**
+     * Long-polls a lobby for events after a sequence number. Answers at once if there
+     * are any, otherwise when the next one is published or the poll times out.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param lastSeen The last sequence number the client has, or -1 for none
+     * @return A JSON array of events; 204 on timeout; 410 if the events are no longer
+     *         logged and the client must reload the state. Every response carries
+     *         {@link #SEQUENCE_HEADER}.
+     */
+    public DeferredResult<ResponseEntity<byte[]>> poll(String lobbyId, long lastSeen) {
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(pollTimeoutMillis);
+        if (complete(result, lobbyId, lastSeen)) {
+            return result;
+        }
+        Poll poll = new Poll(result, lastSeen);
+        result.onTimeout(() -> result.setResult(ResponseEntity.status(HttpStatus.NO_CONTENT)
+                .header(SEQUENCE_HEADER, Long.toString(lastSeen))
+                .build()));
+        result.onCompletion(() -> remove(polls, lobbyId, poll));
+        polls.computeIfAbsent(lobbyId, id -> ConcurrentHashMap.newKeySet()).add(poll);
+        // An event published between the first check and registering would otherwise wait for the next one
+        complete(result, lobbyId, lastSeen);
+        return result;
+    }
+
+    @Override
+    public void onEvent(String lobbyId, long sequence, byte[] payload) {
+        // Always queued: a stream still replaying registers on the fan-out thread, after this
+        // event if the replay missed it, so looking for listeners here could drop the event
+        try {
+            fanOut.execute(() -> deliver(lobbyId, sequence, payload));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Event {} for lobby {} not fanned out: shutting down", sequence, lobbyId);
+        }
+    }
+
+    private void deliver(String lobbyId, long sequence, byte[] payload) {
+        Set<Poll> waiting = polls.get(lobbyId);
+        if (waiting != null) {
+            for (Poll poll : waiting) {
+                complete(poll.result, lobbyId, poll.lastSeen);
+            }
+        }
+        Set<Stream> open = streams.get(lobbyId);
+        if (open != null) {
+            for (Stream stream : open) {
+                stream.send(sequence, payload);
+            }
+        }
+    }
+
+    /**
+     * Completes a poll if there is anything to answer with.
+     *
+     * @return true if the poll was answered
+     */
+    private boolean complete(DeferredResult<ResponseEntity<byte[]>> result, String lobbyId, long lastSeen) {
+        List<byte[]> missed = gameEventLog.since(lobbyId, lastSeen);
+        if (missed == null) {
+            return result.setResult(ResponseEntity.status(HttpStatus.GONE)
+                    .header(SEQUENCE_HEADER, Long.toString(gameEventLog.getLatestSequence(lobbyId)))
+                    .build());
+        }
+        if (missed.isEmpty()) {
+            return false;
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        for (int i = 0; i < missed.size(); i++) {
+            if (i > 0) {
+                json.write(',');
+            }
+            json.writeBytes(missed.get(i));
+        }
+        json.write(']');
+        return result.setResult(ResponseEntity.ok()
+                .header(SEQUENCE_HEADER, Long.toString(lastSeen + missed.size()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.toByteArray()));
+    }
+
+    private static <T> void remove(Map<String, Set<T>> waiting, String lobbyId, T entry) {
+        waiting.computeIfPresent(lobbyId, (id, entries) -> {
+            entries.remove(entry);
+            return entries.isEmpty() ? null : entries;
+        });
+    }
+
+    private static int count(Map<String, ? extends Set<?>> waiting) {
+        int total = 0;
+        for (Set<?> entries : waiting.values()) {
+            total += entries.size();
+        }
+        return total;
+    }
+
+    private static final class Poll {
+        private final DeferredResult<ResponseEntity<byte[]>> result;
+        private final long lastSeen;
+
+        private Poll(DeferredResult<ResponseEntity<byte[]>> result, long lastSeen) {
+            this.result = result;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    /**
+     * One open SSE connection. Only touched on the fan-out thread.
+     */
+    private static final class Stream {
+        private final SseEmitter emitter;
+        private long lastSent;
+
+        private Stream(SseEmitter emitter, long lastSeen) {
+            this.emitter = emitter;
+            this.lastSent = lastSeen;
+        }
+
+        /**
+         * Sends an event unless this stream already has it.
+         *
+         * @return false if the connection is gone
+         */
+        private boolean send(long sequence, byte[] payload) {
+            if (sequence <= lastSent) {
+                return true;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(sequence))
+                        .name("game")
+                        .data(payload, MediaType.APPLICATION_JSON));
+                lastSent = sequence;
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping event stream: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
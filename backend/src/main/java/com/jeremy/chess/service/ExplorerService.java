@@ -0,0 +1,269 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.util.ChessUtils;
+import com.jeremy.chess.util.ExplorerTable;
+import com.jeremy.chess.util.Fen;
+import com.jeremy.chess.util.MoveParser;
+import com.jeremy.chess.util.PgnReader;
+import com.jeremy.chess.util.Zobrist;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Opening explorer: win, draw and loss counts for every position reached in
+ * finished games. Counts are fed from {@link GameEndedEvent}s as games finish, on a
+ * thread of their own so a growing table never holds up the move that ended the game,
+ * and can be bulk-built from PGN files, which are parsed in parallel.
+ */
+@Service
+@Lazy(false) // Stays eager under the faststart profile; loads its table at startup, not on the first finished game
+public class ExplorerService {
+    private static final Logger logger = LoggerFactory.getLogger(ExplorerService.class);
+
+    private static final byte WHITE_WIN = 0;
+    private static final byte DRAW = 1;
+    private static final byte BLACK_WIN = 2;
+    private static final int BATCH_SIZE = 4096;
+
+    @Value("${chess.explorer.file:./data/explorer.bin}")
+    private String explorerFile;
+
+    @Value("${chess.explorer.initial-capacity:65536}")
+    private int initialCapacity;
+
+    @Value("${chess.explorer.import-dir:}")
+    private String importDir;
+
+    private ExplorerTable table;
+    private ExecutorService updates;
+
+    @PostConstruct
+    void start() {
+        updates = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chess-explorer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Path path = Paths.get(explorerFile);
+        if (Files.exists(path)) {
+            try {
+                table = ExplorerTable.readFrom(path);
+                logger.info("Loaded {} explorer positions from {}", table.size(), path);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Failed to load explorer table from {}: {}", path, e.getMessage());
+            }
+        }
+        if (table == null) {
+            table = new ExplorerTable(initialCapacity);
+            if (!importDir.isEmpty()) {
+                importDirectory(Paths.get(importDir));
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        updates.shutdown();
+        if (!updates.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Explorer updates still running at shutdown; saving without them");
+        }
+        save();
+    }
+
+    /**
+     * Counts a finished game once for every distinct position it reached. The table is
+     * updated later on the explorer thread, and a failure there is only logged.
+     */
+    @EventListener
+    public void onGameEnded(GameEndedEvent event) {
+        byte result = result(event.getWinningTeam());
+        long[] keys = event.getPositionKeys();
+        if (result < 0 || keys == null) {
+            return;
+        }
+        try {
+            updates.execute(() -> {
+                try {
+                    long[] distinct = Arrays.stream(keys).distinct().toArray();
+                    byte[] results = new byte[distinct.length];
+                    Arrays.fill(results, result);
+                    table.addAll(distinct, results, distinct.length);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to add game from lobby {} to the explorer: {}", event.getLobbyId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Game from lobby {} not added to the explorer: shutting down", event.getLobbyId());
+        }
+    }
+
+    /**
+     * Gets the statistics for a position.
+     *
+     * @param fen The position in FEN; only placement and side to move are used
+     * @return The position's counts, all zero if it was never reached
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
+    public Map<String, Object> getStats(String fen) {
+        List<String> board = Fen.parseBoard(fen);
+        int[] counts = table.get(Zobrist.hash(board, Fen.parseWhiteToMove(fen)));
+        if (counts == null) {
+            counts = new int[3];
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fen", fen);
+        stats.put("white", counts[WHITE_WIN]);
+        stats.put("draws", counts[DRAW]);
+        stats.put("black", counts[BLACK_WIN]);
+        stats.put("games", (long) counts[WHITE_WIN] + counts[DRAW] + counts[BLACK_WIN]);
+        return stats;
+    }
+
+    /**
+     * Imports every .pgn file in a directory, one file per worker thread.
+     *
+     * @param directory The directory to scan
+     */
+    public void importDirectory(Path directory) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.toString().endsWith(".pgn")).toList();
+        } catch (IOException e) {
+            logger.error("Failed to list PGN directory {}: {}", directory, e.getMessage());
+            return;
+        }
+        long startTime = System.nanoTime();
+        AtomicLong games = new AtomicLong();
+        files.parallelStream().forEach(file -> games.addAndGet(importFile(file)));
+        logger.info("Imported {} games from {} PGN files in {} ms; explorer has {} positions",
+                games.get(), files.size(), (System.nanoTime() - startTime) / 1_000_000, table.size());
+        save();
+    }
+
+    /**
+     * Imports one PGN file. Positions are collected into batches so the shared table is
+     * locked once per few thousand positions rather than once per move.
+     *
+     * @param file The PGN file
+     * @return The number of games imported
+     */
+    public long importFile(Path file) {
+        long[] keys = new long[BATCH_SIZE];
+        byte[] results = new byte[BATCH_SIZE];
+        int pending = 0;
+        long games = 0;
+        long skipped = 0;
+        try (PgnReader reader = new PgnReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            PgnReader.Game game;
+            while ((game = reader.next()) != null) {
+                byte result = result(game.getResult());
+                if (result < 0 || game.getTags().containsKey("FEN")) {
+                    continue;  // Unfinished game or not from the initial position
+                }
+                long[] gameKeys = game.getError() == null ? replay(game.getMoves()) : null;
+                if (gameKeys == null) {
+                    skipped++;  // The result belongs to moves that could not be read
+                    continue;
+                }
+                if (pending + gameKeys.length > BATCH_SIZE) {
+                    table.addAll(keys, results, pending);
+                    pending = 0;
+                }
+                if (gameKeys.length > BATCH_SIZE) {
+                    continue;
+                }
+                System.arraycopy(gameKeys, 0, keys, pending, gameKeys.length);
+                Arrays.fill(results, pending, pending + gameKeys.length, result);
+                pending += gameKeys.length;
+                games++;
+            }
+            table.addAll(keys, results, pending);
+        } catch (IOException e) {
+            logger.error("Failed to import {}: {}", file, e.getMessage());
+        }
+        if (skipped > 0) {
+            logger.warn("Skipped {} games in {} with moves that could not be read", skipped, file);
+        }
+        return games;
+    }
+
+    /**
+     * Plays a game's moves from the initial position.
+     *
+     * @return The distinct position keys reached, or null if a move cannot be parsed
+     */
+    private static long[] replay(List<String> moves) {
+        ArrayList<String> board = Fen.parseBoard(Fen.START);
+        boolean whiteToMove = true;
+        long[] keys = new long[moves.size() + 1];
+        keys[0] = Zobrist.hash(board, true);
+        int count = 1;
+        for (String san : moves) {
+            ChessMove move = MoveParser.parse(san, whiteToMove, board);
+            if (move == null) {
+                return null;
+            }
+            ChessUtils.applyMove(board, move);
+            whiteToMove = !whiteToMove;
+            keys[count++] = Zobrist.hash(board, whiteToMove);
+        }
+        return Arrays.stream(keys, 0, count).distinct().toArray();
+    }
+
+    private static byte result(String result) {
+        if (result == null) {
+            return -1;
+        }
+        switch (result) {
+            case "White":
+            case "1-0":
+                return WHITE_WIN;
+            case "Black":
+            case "0-1":
+                return BLACK_WIN;
+            case "Draw":
+            case "1/2-1/2":
+                return DRAW;
+            default:
+                return -1;
+        }
+    }
+
+    private void save() {
+        Path path = Paths.get(explorerFile);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            table.writeTo(path);
+        } catch (IOException e) {
+            logger.error("Failed to save explorer table to {}: {}", path, e.getMessage());
+        }
+    }
+}
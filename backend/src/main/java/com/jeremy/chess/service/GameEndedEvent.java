@@ -0,0 +1,75 @@
+package com.jeremy.chess.service;
+
+/**
+ * Published by {@link ChessService} once when a lobby's game ends, after the
+ * lobby's lock has been released.
+ */
+public class GameEndedEvent {
+    private final String lobbyId;
+    private final String whitePlayerId;
+    private final String blackPlayerId;
+    private final String winningTeam;
+    private final String gameEndReason;
+    private final boolean onMove;
+    private final long[] positionKeys;
+
+    /**
+     * Creates an event.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param whitePlayerId The white player's ID at the end of the game
+     * @param blackPlayerId The black player's ID at the end of the game
+     * @param winningTeam "White", "Black" or "Draw"
+     * @param gameEndReason The reason the game ended
+     * @param onMove true if a move ended the game, in which case the result goes out with that move
+     * @param positionKeys The Zobrist key of every position reached in the game
+     */
+    public GameEndedEvent(String lobbyId, String whitePlayerId, String blackPlayerId,
+                          String winningTeam, String gameEndReason, boolean onMove, long[] positionKeys) {
+        this.lobbyId = lobbyId;
+        this.whitePlayerId = whitePlayerId;
+        this.blackPlayerId = blackPlayerId;
+        this.winningTeam = winningTeam;
+        this.gameEndReason = gameEndReason;
+        this.onMove = onMove;
+        this.positionKeys = positionKeys;
+    }
+
+    public String getLobbyId() {
+        return lobbyId;
+    }
+
+    public String getWhitePlayerId() {
+        return whitePlayerId;
+    }
+
+    public String getBlackPlayerId() {
+        return blackPlayerId;
+    }
+
+    public String getWinningTeam() {
+        return winningTeam;
+    }
+
+    public String getGameEndReason() {
+        return gameEndReason;
+    }
+
+    /**
+     * Checks if the game ended on a move, as opposed to a timer or disconnect.
+     *
+     * @return true if a move ended the game
+     */
+    public boolean isOnMove() {
+        return onMove;
+    }
+
+    /**
+     * Gets the positions reached in the game.
+     *
+     * @return The Zobrist key of every position, starting with the initial one
+     */
+    public long[] getPositionKeys() {
+        return positionKeys;
+    }
+}
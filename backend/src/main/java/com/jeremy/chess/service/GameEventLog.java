@@ -0,0 +1,190 @@
+package com.jeremy.chess.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeremy.chess.model.GameMessage;
+import com.jeremy.chess.util.RingBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Numbers every message broadcast for a lobby on {@code /topic/game} and keeps the
+ * most recent ones, serialized, in a per-lobby ring. A client that reconnects sends
+ * the last sequence number it saw and is sent only what it missed, as long as the
+ * ring still holds it. Other transports follow the log through a {@link Listener}.
+ */
+@Service
+@Lazy(false)
+public class GameEventLog {
+    /** Destination a resuming session receives its missed events on, as seen by the client. */
+    public static final String RESUME_DESTINATION = "/queue/resume";
+
+    private static final String GAME_DESTINATION = "/topic/game";
+    private static final byte[] SEQUENCE_PREFIX = "{\"sequence\":".getBytes(StandardCharsets.US_ASCII);
+
+    @Value("${chess.events.history-size:256}")
+    private int historySize;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, RingBuffer<byte[]>> logs = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives every event as it is published, in sequence order per lobby.
+     */
+    public interface Listener {
+        /**
+         * Called with the log's lock held, so implementations must hand off any slow work.
+         *
+         * @param lobbyId The ID of the lobby
+         * @param sequence The event's sequence number
+         * @param payload The serialized event; must not be modified
+         */
+        void onEvent(String lobbyId, long sequence, byte[] payload);
+    }
+
+    /**
+     * Registers a listener for events published from now on.
+     *
+     * @param listener The listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Drops a removed lobby's log.
+     */
+    @EventListener
+    public void onLobbyRemoved(LobbyRemovedEvent event) {
+        logs.remove(event.getLobbyId());
+    }
+
+    /**
+     * Numbers, records and broadcasts a message.
+     *
+     * @param lobbyId The ID of the lobby the message belongs to
+     * @param message The message; its sequence number is set by this call
+     * @return The message's sequence number
+     */
+    public long publish(String lobbyId, GameMessage message) {
+        RingBuffer<byte[]> log = getLog(lobbyId);
+        synchronized (log) {
+            long sequence = log.getAdded();
+            message.setSequence(sequence);
+            try {
+                return append(lobbyId, log, objectMapper.writeValueAsBytes(message));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize event for lobby " + lobbyId, e);
+            }
+        }
+    }
+
+    /**
+     * Numbers, records and broadcasts an already serialized message. The sequence
+     * number is spliced into the JSON object rather than serializing it again.
+     *
+     * @param lobbyId The ID of the lobby the message belongs to
+     * @param json A serialized {@link GameMessage}
+     * @return The message's sequence number
+     */
+    public long publish(String lobbyId, byte[] json) {
+        RingBuffer<byte[]> log = getLog(lobbyId);
+        synchronized (log) {
+            byte[] sequence = (log.getAdded() + ",").getBytes(StandardCharsets.US_ASCII);
+            byte[] numbered = new byte[SEQUENCE_PREFIX.length + sequence.length + json.length - 1];
+            System.arraycopy(SEQUENCE_PREFIX, 0, numbered, 0, SEQUENCE_PREFIX.length);
+            System.arraycopy(sequence, 0, numbered, SEQUENCE_PREFIX.length, sequence.length);
+            System.arraycopy(json, 1, numbered, SEQUENCE_PREFIX.length + sequence.length, json.length - 1);
+            return append(lobbyId, log, numbered);
+        }
+    }
+
+    /**
+     * Gets the events a client missed.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param lastSeen The last sequence number the client received, or -1 for none
+     * @return The serialized events after lastSeen, oldest first, or null if some of them
+     *         have already left the ring and the client needs a full snapshot instead
+     */
+    public List<byte[]> since(String lobbyId, long lastSeen) {
+        RingBuffer<byte[]> log = logs.get(lobbyId);
+        if (log == null) {
+            return lastSeen < 0 ? List.of() : null;
+        }
+        synchronized (log) {
+            long first = lastSeen + 1;
+            if (first > log.getAdded() || log.getAdded() - first > log.capacity()) {
+                return null;
+            }
+            return log.since(first);
+        }
+    }
+
+    /**
+     * Gets the sequence number of the latest event.
+     *
+     * @param lobbyId The ID of the lobby
+     * @return The latest sequence number, or -1 if nothing has been published
+     */
+    public long getLatestSequence(String lobbyId) {
+        RingBuffer<byte[]> log = logs.get(lobbyId);
+        return log != null ? log.getAdded() - 1 : -1;
+    }
+
+    /**
+     * Sends a message to one session's {@link #RESUME_DESTINATION}.
+     *
+     * @param sessionId The WebSocket session ID
+     * @param message The message
+     */
+    public void sendToSession(String sessionId, GameMessage message) {
+        try {
+            send("/user/" + sessionId + RESUME_DESTINATION, sessionId, objectMapper.writeValueAsBytes(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize resume message for session " + sessionId, e);
+        }
+    }
+
+    private long append(String lobbyId, RingBuffer<byte[]> log, byte[] payload) {
+        long sequence = log.add(payload);
+        // Sent under the log's lock so events reach the broker and listeners in sequence order
+        send(GAME_DESTINATION, null, payload);
+        for (Listener listener : listeners) {
+            listener.onEvent(lobbyId, sequence, payload);
+        }
+        return sequence;
+    }
+
+    private RingBuffer<byte[]> getLog(String lobbyId) {
+        return logs.computeIfAbsent(lobbyId, id -> new RingBuffer<>(historySize));
+    }
+
+    private void send(String destination, String sessionId, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.StoredGame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Local store of finished games: an append-only file of length-prefixed records, each
+ * holding a game's players, event, date, result and packed moves. Nothing is kept in
+ * memory beyond the write buffer, so the store can grow as large as the disk allows.
+ */
+@Service
+public class GameStore {
+    private static final Logger logger = LoggerFactory.getLogger(GameStore.class);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Value("${chess.games.file:./data/games.bin}")
+    private String gamesFile;
+
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private DataOutputStream out;
+    private long count;
+
+    @PostConstruct
+    void open() {
+        Path path = Paths.get(gamesFile);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            count = Files.exists(path) ? countRecords(path) : 0;
+            out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE));
+            logger.info("Game store {} holds {} games", path, count);
+        } catch (IOException e) {
+            logger.error("Failed to open game store {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.error("Failed to close game store: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends games to the store. They reach the disk when the buffer fills or on {@link #flush}.
+     *
+     * @param games The games to append
+     * @throws IOException If the store is not open or cannot be written
+     */
+    public synchronized void append(List<StoredGame> games) throws IOException {
+        if (out == null) {
+            throw new IOException("Game store is not open");
+        }
+        for (StoredGame game : games) {
+            record.reset();
+            recordOut.writeUTF(game.getWhite());
+            recordOut.writeUTF(game.getBlack());
+            recordOut.writeUTF(game.getEvent());
+            recordOut.writeUTF(game.getDate());
+            recordOut.writeUTF(game.getResult());
+            short[] moves = game.getPackedMoves();
+            recordOut.writeShort(moves.length);
+            for (short move : moves) {
+                recordOut.writeShort(move);
+            }
+            out.writeInt(record.size());
+            record.writeTo(out);
+            count++;
+        }
+    }
+
+    /**
+     * Writes buffered games to the disk.
+     *
+     * @throws IOException If the store cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Gets the number of games in the store.
+     *
+     * @return The game count
+     */
+    public synchronized long getGameCount() {
+        return count;
+    }
+
+    /**
+     * Reads every game in the store, oldest first, one at a time.
+     *
+     * @param action Called for each game
+     * @throws IOException If the store cannot be read
+     */
+    public void forEach(Consumer<StoredGame> action) throws IOException {
+        flush();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(gamesFile)), BUFFER_SIZE))) {
+            while (true) {
+                try {
+                    in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                String white = in.readUTF();
+                String black = in.readUTF();
+                String event = in.readUTF();
+                String date = in.readUTF();
+                String result = in.readUTF();
+                short[] moves = new short[in.readUnsignedShort()];
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = in.readShort();
+                }
+                action.accept(new StoredGame(white, black, event, date, result, moves));
+            }
+        }
+    }
+
+    private static long countRecords(Path path) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                in.skipNBytes(length);
+                records++;
+            }
+        }
+    }
+}
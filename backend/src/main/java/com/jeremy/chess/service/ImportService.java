@@ -0,0 +1,471 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.StoredGame;
+import com.jeremy.chess.util.ChessUtils;
+import com.jeremy.chess.util.Fen;
+import com.jeremy.chess.util.MoveParser;
+import com.jeremy.chess.util.MoveValidator;
+import com.jeremy.chess.util.PgnReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk PGN import. The upload is split into games as it streams in; batches of games are
+ * replayed with the server's move rules on a pool of worker threads and valid games are
+ * appended to the {@link GameStore}. The work queue is bounded and the reader runs a
+ * batch itself when it is full, so an import of any size holds only a few batches in memory.
+ */
+@Service
+public class ImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+    private static final int RECENT_JOBS = 16;
+    private static final long PROGRESS_INTERVAL = 100_000;  // Games between progress log lines
+
+    // Castling rights bits
+    private static final int WHITE_KINGSIDE = 1;
+    private static final int WHITE_QUEENSIDE = 2;
+    private static final int BLACK_KINGSIDE = 4;
+    private static final int BLACK_QUEENSIDE = 8;
+
+    @Autowired
+    private GameStore gameStore;
+
+    @Value("${chess.import.threads:0}")
+    private int threads;
+
+    @Value("${chess.import.batch-size:256}")
+    private int batchSize;
+
+    @Value("${chess.import.max-errors:1000}")
+    private int maxErrors;
+
+    private final Deque<ImportJob> jobs = new ConcurrentLinkedDeque<>();
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2 * poolSize), runnable -> {
+                    Thread thread = new Thread(runnable, "chess-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (batch, executor) -> {
+                    // Like CallerRunsPolicy, but refuses rather than silently dropping once shut down
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Import workers are shut down");
+                    }
+                    batch.run();
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        // Batches still queued never run, so release the imports waiting on them
+        for (Runnable batch : workers.shutdownNow()) {
+            if (batch instanceof Batch) {
+                ((Batch) batch).discard();
+            }
+        }
+    }
+
+    /**
+     * Imports every game in a PGN stream, returning once the whole stream has been read and
+     * every game validated. Progress can be followed through {@link #getJobs} meanwhile.
+     *
+     * @param in The PGN text, UTF-8
+     * @return The finished job
+     */
+    public ImportJob importPgn(InputStream in) {
+        ImportJob job = new ImportJob(maxErrors);
+        jobs.addFirst(job);
+        while (jobs.size() > RECENT_JOBS) {
+            jobs.pollLast();
+        }
+        logger.info("Import {} started", job.id);
+
+        Phaser pending = new Phaser(1);
+        try (PgnReader reader = new PgnReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<PgnReader.Game> batch = new ArrayList<>(batchSize);
+            long firstNumber = 1;
+            PgnReader.Game game;
+            while ((game = reader.next()) != null) {
+                batch.add(game);
+                if (batch.size() == batchSize) {
+                    submit(job, pending, firstNumber, batch);
+                    firstNumber += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+                if (job.gamesRead.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                    logger.info("Import {}: {} games read, {} imported, {} rejected, {} moves/s",
+                            job.id, job.getGamesRead(), job.getGamesImported(), job.getGamesRejected(), job.getMovesPerSecond());
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(job, pending, firstNumber, batch);
+            }
+        } catch (IOException e) {
+            job.failure = "Failed to read the upload: " + e.getMessage();
+            logger.error("Import {} failed: {}", job.id, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            job.failure = "Import stopped: the server is shutting down";
+            logger.warn("Import {} stopped by shutdown", job.id);
+        }
+        pending.arriveAndAwaitAdvance();
+        try {
+            gameStore.flush();
+        } catch (IOException e) {
+            job.failure = "Failed to write the game store: " + e.getMessage();
+        }
+        job.finishedAt = System.nanoTime();
+        logger.info("Import {} finished: {} games read, {} imported, {} rejected, {} moves in {} ms",
+                job.id, job.getGamesRead(), job.getGamesImported(), job.getGamesRejected(), job.getMoves(), job.getElapsedMillis());
+        return job;
+    }
+
+    /**
+     * Gets recent imports, newest first, including any still running.
+     *
+     * @return The jobs
+     */
+    public Collection<ImportJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Gets an import by ID.
+     *
+     * @param id The job ID
+     * @return The job, or null if it is unknown or no longer kept
+     */
+    public ImportJob getJob(String id) {
+        for (ImportJob job : jobs) {
+            if (job.id.equals(id)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void submit(ImportJob job, Phaser pending, long firstNumber, List<PgnReader.Game> batch) {
+        pending.register();
+        try {
+            workers.execute(new Batch(job, pending, firstNumber, batch));
+        } catch (RejectedExecutionException e) {
+            pending.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    /**
+     * A batch of games validated and stored by one worker. The import waiting on it is
+     * released whether it runs or is discarded at shutdown.
+     */
+    private final class Batch implements Runnable {
+        private final ImportJob job;
+        private final Phaser pending;
+        private final long firstNumber;
+        private final List<PgnReader.Game> games;
+
+        private Batch(ImportJob job, Phaser pending, long firstNumber, List<PgnReader.Game> games) {
+            this.job = job;
+            this.pending = pending;
+            this.firstNumber = firstNumber;
+            this.games = games;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<StoredGame> valid = new ArrayList<>(games.size());
+                for (int i = 0; i < games.size(); i++) {
+                    StoredGame stored = replay(job, firstNumber + i, games.get(i));
+                    if (stored != null) {
+                        valid.add(stored);
+                    }
+                }
+                gameStore.append(valid);
+                job.gamesImported.addAndGet(valid.size());
+            } catch (IOException e) {
+                job.failure = "Failed to write the game store: " + e.getMessage();
+            } finally {
+                pending.arriveAndDeregister();
+            }
+        }
+
+        private void discard() {
+            job.failure = "Import stopped: the server is shutting down";
+            pending.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Replays a game from the initial position, checking every move against the rules the
+     * server enforces in play.
+     *
+     * @return The game to store, or null if it was rejected
+     */
+    private StoredGame replay(ImportJob job, long number, PgnReader.Game game) {
+        Map<String, String> tags = game.getTags();
+        if (game.getError() != null) {
+            job.reject(number, tags, 0, null, game.getError());
+            return null;
+        }
+        if (tags.containsKey("FEN")) {
+            job.reject(number, tags, 0, null, "Games from a set-up position are not supported");
+            return null;
+        }
+        List<String> sans = game.getMoves();
+        short[] moves = new short[sans.size()];
+        ArrayList<String> board = Fen.parseBoard(Fen.START);
+        ArrayList<String> next = new ArrayList<>(board);
+        boolean whiteToMove = true;
+        int castling = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        for (int ply = 0; ply < sans.size(); ply++) {
+            String san = sans.get(ply);
+            ChessMove move = MoveParser.parse(san, whiteToMove, board);
+            String error = move == null ? "Unreadable or ambiguous move" : play(board, next, move, whiteToMove, castling);
+            if (error != null) {
+                job.reject(number, tags, ply, san, error);
+                return null;
+            }
+            ArrayList<String> played = next;  // Holds the position after the move
+            next = board;
+            board = played;
+            castling = updateCastling(castling, move.getSourceIndex());
+            castling = updateCastling(castling, move.getTargetIndex());
+            moves[ply] = StoredGame.encode(move);
+            whiteToMove = !whiteToMove;
+        }
+        job.moves.addAndGet(moves.length);
+        return new StoredGame(tags.getOrDefault("White", "?"), tags.getOrDefault("Black", "?"),
+                tags.getOrDefault("Event", "?"), tags.getOrDefault("Date", "????.??.??"), game.getResult(), moves);
+    }
+
+    /**
+     * Checks a move and plays it onto {@code after}, a scratch board.
+     *
+     * @return null if the move is legal, otherwise why it is not
+     */
+    private static String play(ArrayList<String> board, ArrayList<String> after, ChessMove move, boolean whiteToMove, int castling) {
+        int from = move.getSourceIndex();
+        int to = move.getTargetIndex();
+        String piece = board.get(from);
+        if (piece.isEmpty() || (piece.charAt(0) == 'w') != whiteToMove) {
+            return "No piece of the side to move on " + move.getFrom();
+        }
+        String target = board.get(to);
+        if (!target.isEmpty() && target.charAt(0) == piece.charAt(0)) {
+            return "Captures its own piece";
+        }
+        if (piece.charAt(1) == 'K' && Math.abs(to - from) == 2) {
+            String error = checkCastling(board, after, from, to, whiteToMove, castling);
+            if (error != null) {
+                return error;
+            }
+        } else if (!MoveValidator.isValidMove(piece, move.getFrom(), move.getTo(), board)) {
+            return "Illegal move";
+        }
+        after.clear();
+        after.addAll(board);
+        ChessUtils.applyMove(after, move);
+        return MoveValidator.isInCheck(whiteToMove, after) ? "Leaves the king in check" : null;
+    }
+
+    private static String checkCastling(ArrayList<String> board, ArrayList<String> scratch, int from, int to,
+                                        boolean whiteToMove, int castling) {
+        boolean kingside = to > from;
+        int right = whiteToMove ? (kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE) : (kingside ? BLACK_KINGSIDE : BLACK_QUEENSIDE);
+        if ((castling & right) == 0) {
+            return "Castling right already lost";
+        }
+        int rook = kingside ? from + 3 : from - 4;
+        if (!board.get(rook).equals(whiteToMove ? "wR" : "bR")) {
+            return "No rook to castle with";
+        }
+        for (int square = Math.min(from, rook) + 1; square < Math.max(from, rook); square++) {
+            if (!board.get(square).isEmpty()) {
+                return "Castling path is blocked";
+            }
+        }
+        if (MoveValidator.isInCheck(whiteToMove, board)) {
+            return "Castling out of check";
+        }
+        // The king may not pass through an attacked square; the destination is checked after the move
+        scratch.clear();
+        scratch.addAll(board);
+        scratch.set((from + to) / 2, scratch.get(from));
+        scratch.set(from, "");
+        return MoveValidator.isInCheck(whiteToMove, scratch) ? "Castling through check" : null;
+    }
+
+    private static int updateCastling(int castling, int square) {
+        switch (square) {
+            case 60: return castling & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+            case 4: return castling & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+            case 63: return castling & ~WHITE_KINGSIDE;
+            case 56: return castling & ~WHITE_QUEENSIDE;
+            case 7: return castling & ~BLACK_KINGSIDE;
+            case 0: return castling & ~BLACK_QUEENSIDE;
+            default: return castling;
+        }
+    }
+
+    /**
+     * Progress and outcome of one import.
+     */
+    public static final class ImportJob {
+        private final String id = UUID.randomUUID().toString();
+        private final long startedAt = System.nanoTime();
+        private final int maxErrors;
+        private final AtomicLong gamesRead = new AtomicLong();
+        private final AtomicLong gamesImported = new AtomicLong();
+        private final AtomicLong gamesRejected = new AtomicLong();
+        private final AtomicLong moves = new AtomicLong();
+        private final Deque<ImportError> errors = new ConcurrentLinkedDeque<>();
+        private volatile long finishedAt;
+        private volatile String failure;
+
+        private ImportJob(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void reject(long number, Map<String, String> tags, int ply, String san, String message) {
+            // Only the first errors are kept, so a bad file cannot fill the heap
+            if (gamesRejected.incrementAndGet() <= maxErrors) {
+                errors.add(new ImportError(number, tags.get("White"), tags.get("Black"), ply, san, message));
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isDone() {
+            return finishedAt != 0;
+        }
+
+        /**
+         * Gets why the import stopped early, if it did.
+         *
+         * @return The failure, or null
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        public long getGamesRead() {
+            return gamesRead.get();
+        }
+
+        public long getGamesImported() {
+            return gamesImported.get();
+        }
+
+        public long getGamesRejected() {
+            return gamesRejected.get();
+        }
+
+        public long getMoves() {
+            return moves.get();
+        }
+
+        public long getElapsedMillis() {
+            return ((finishedAt != 0 ? finishedAt : System.nanoTime()) - startedAt) / 1_000_000;
+        }
+
+        public long getMovesPerSecond() {
+            return moves.get() * 1000 / Math.max(1, getElapsedMillis());
+        }
+
+        /**
+         * Gets the first rejected games and why they were rejected.
+         *
+         * @return The errors, at most {@code chess.import.max-errors} of them
+         */
+        public Collection<ImportError> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Why one game was rejected.
+     */
+    public static final class ImportError {
+        private final long game;
+        private final String white;
+        private final String black;
+        private final int ply;
+        private final String move;
+        private final String message;
+
+        private ImportError(long game, String white, String black, int ply, String move, String message) {
+            this.game = game;
+            this.white = white;
+            this.black = black;
+            this.ply = ply;
+            this.move = move;
+            this.message = message;
+        }
+
+        /**
+         * Gets the game's position in the upload.
+         *
+         * @return The game number, starting at 1
+         */
+        public long getGame() {
+            return game;
+        }
+
+        public String getWhite() {
+            return white;
+        }
+
+        public String getBlack() {
+            return black;
+        }
+
+        /**
+         * Gets the half-move the game was rejected at.
+         *
+         * @return The ply, starting at 0
+         */
+        public int getPly() {
+            return ply;
+        }
+
+        public String getMove() {
+            return move;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.jeremy.chess.service;
+
+/**
+ * Published by {@link ChessService} when a lobby is removed, so services keeping
+ * per-lobby state can let it go.
+ */
+public class LobbyRemovedEvent {
+    private final String lobbyId;
+
+    /**
+     * Creates an event.
+     *
+     * @param lobbyId The ID of the removed lobby
+     */
+    public LobbyRemovedEvent(String lobbyId) {
+        this.lobbyId = lobbyId;
+    }
+
+    public String getLobbyId() {
+        return lobbyId;
+    }
+}
@@ -0,0 +1,219 @@
+package com.jeremy.chess.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.util.MoveParser;
+import com.jeremy.chess.util.MoveValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self-play soak test, active under the {@code match} profile. Plays games in parallel,
+ * one per worker, through {@link ChessService#makeMoveForSnapshot} exactly as moves from
+ * players arrive. Each game starts from an opening picked from a fixed list and then plays
+ * random legal moves, all drawn from a generator seeded per game, so a run with the same
+ * seed plays the same games. When the games are done a JSON report is written and the
+ * application exits; the exit code is non-zero if a move was rejected or throughput was
+ * below the configured floor.
+ */
+@Component
+@Profile("match")
+public class MatchRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(MatchRunner.class);
+    private static final String WHITE = "match-white";
+    private static final String BLACK = "match-black";
+    private static final String UNFINISHED = "Unfinished";
+
+    /** Opening lines in UCI notation, all playable under the server's rules. */
+    private static final String[][] OPENINGS = {
+            {},
+            {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6"},
+            {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5"},
+            {"e2e4", "c7c5", "g1f3", "d7d6", "d2d4", "c5d4", "f3d4"},
+            {"e2e4", "c7c5", "b1c3", "b8c6", "g2g3"},
+            {"e2e4", "e7e6", "d2d4", "d7d5", "b1c3", "g8f6"},
+            {"e2e4", "c7c6", "d2d4", "d7d5", "e4e5"},
+            {"e2e4", "d7d5", "e4d5", "d8d5", "b1c3"},
+            {"d2d4", "d7d5", "c2c4", "e7e6", "b1c3", "g8f6"},
+            {"d2d4", "d7d5", "c2c4", "c7c6", "g1f3"},
+            {"d2d4", "d7d5", "c2c4", "d5c4", "e2e3"},
+            {"d2d4", "g8f6", "c2c4", "e7e6", "b1c3", "f8b4"},
+            {"d2d4", "g8f6", "c2c4", "g7g6", "b1c3", "f8g7", "e2e4", "d7d6"},
+            {"d2d4", "g8f6", "c2c4", "c7c5", "d4d5", "b7b5"},
+            {"d2d4", "f7f5", "g2g3", "g8f6", "f1g2"},
+            {"c2c4", "e7e5", "b1c3", "g8f6", "g2g3"},
+            {"g1f3", "d7d5", "g2g3", "g8f6", "f1g2"},
+            {"b2b3", "e7e5", "c1b2", "b8c6"},
+            {"e2e4", "g7g6", "d2d4", "f8g7", "b1c3", "d7d6"},
+            {"e2e4", "g8f6", "e4e5", "f6d5", "d2d4", "d7d6"},
+    };
+
+    @Autowired
+    private ChessService chessService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Value("${chess.match.games:1000}")
+    private int games;
+
+    @Value("${chess.match.threads:0}")
+    private int threads;
+
+    @Value("${chess.match.seed:1}")
+    private long seed;
+
+    @Value("${chess.match.max-plies:400}")
+    private int maxPlies;
+
+    @Value("${chess.match.report:build/match-report.json}")
+    private String reportPath;
+
+    @Value("${chess.match.min-moves-per-second:0}")
+    private long minMovesPerSecond;
+
+    private final Map<String, LongAdder> results = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> endReasons = new ConcurrentHashMap<>();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder moveNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        logger.info("Playing {} games on {} threads with seed {}", games, poolSize, seed);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "chess-match-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        List<Future<?>> pending = new ArrayList<>(games);
+        for (int i = 0; i < games; i++) {
+            int game = i;
+            pending.add(workers.submit(() -> play(game)));
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        workers.shutdown();
+
+        Map<String, Object> report = report(poolSize, elapsedNanos);
+        File file = new File(reportPath);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+        logger.info("Match report written to {}: {}", file.getAbsolutePath(), objectMapper.writeValueAsString(report));
+
+        long movesPerSecond = (long) report.get("movesPerSecond");
+        int exitCode = errors.sum() > 0 ? 1 : movesPerSecond < minMovesPerSecond ? 2 : 0;
+        if (exitCode == 2) {
+            logger.error("Throughput of {} moves/s is below the floor of {}", movesPerSecond, minMovesPerSecond);
+        }
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    /**
+     * Plays one game to the end or to the ply limit and records its outcome.
+     *
+     * @param game The game's number, which together with the seed determines its moves
+     */
+    private void play(int game) {
+        Random random = new Random(seed * 1_000_003L + game);
+        Lobby lobby = chessService.createPairedLobby("Match " + game, WHITE, BLACK, 0, 0);
+        String lobbyId = lobby.getId();
+        try {
+            String[] opening = OPENINGS[random.nextInt(OPENINGS.length)];
+            int plies = 0;
+            while (!lobby.isGameOver() && plies < maxPlies) {
+                boolean white = lobby.isWhiteTurn();
+                ChessMove move;
+                if (plies < opening.length) {
+                    move = MoveParser.parse(opening[plies], white, lobby.getBoardState());
+                } else {
+                    List<ChessMove> legal = MoveValidator.getLegalMoves(white, lobby.getBoardState());
+                    move = legal.isEmpty() ? null : legal.get(random.nextInt(legal.size()));
+                }
+                if (move == null) {
+                    logger.error("Game {} in lobby {} has no move to play at ply {} but is not over", game, lobbyId, plies);
+                    errors.increment();
+                    return;
+                }
+
+                long start = System.nanoTime();
+                chessService.makeMoveForSnapshot(lobbyId, move, white ? WHITE : BLACK);
+                moveNanos.add(System.nanoTime() - start);
+                moves.increment();
+                if (lobby.getMoveNumber() != ++plies) {
+                    logger.error("Game {} in lobby {}: {}{} rejected at ply {}", game, lobbyId, move.getFrom(), move.getTo(), plies);
+                    errors.increment();
+                    return;
+                }
+            }
+            count(results, lobby.isGameOver() ? lobby.getWinningTeam() : UNFINISHED);
+            count(endReasons, lobby.isGameOver() ? lobby.getGameEndReason() : UNFINISHED);
+        } finally {
+            chessService.leaveLobby(lobbyId, WHITE);
+            chessService.leaveLobby(lobbyId, BLACK);
+        }
+    }
+
+    private static void count(Map<String, LongAdder> counters, String key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private Map<String, Object> report(int poolSize, long elapsedNanos) {
+        long moveCount = moves.sum();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("seed", seed);
+        report.put("games", games);
+        report.put("threads", poolSize);
+        report.put("maxPlies", maxPlies);
+        report.put("errors", errors.sum());
+        report.put("results", totals(results));
+        report.put("endReasons", totals(endReasons));
+        report.put("moves", moveCount);
+        report.put("averagePlies", games > 0 ? (double) moveCount / games : 0);
+        report.put("averageMoveMicros", moveCount > 0 ? moveNanos.sum() / 1000.0 / moveCount : 0);
+        report.put("movesPerSecond", elapsedNanos > 0 ? moveCount * 1_000_000_000L / elapsedNanos : 0L);
+        report.put("elapsedMillis", elapsedNanos / 1_000_000);
+        return report;
+    }
+
+    private static Map<String, Long> totals(Map<String, LongAdder> counters) {
+        Map<String, Long> totals = new TreeMap<>();
+        counters.forEach((key, counter) -> totals.put(key, counter.sum()));
+        return totals;
+    }
+}
@@ -0,0 +1,305 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.Lobby;
+import com.jeremy.chess.model.MatchRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quick-pairing queue, one pool per allowed time control. Enqueueing is a lock-free
+ * offer onto the pool's inbox; a single pairing thread moves new tickets into rating
+ * buckets every tick, pairs neighbours whose rating gap fits both players' search
+ * windows, and hands each pair a lobby with both colors already assigned. Windows
+ * widen the longer a player waits. Pools with no one waiting are dropped.
+ */
+@Service
+public class MatchmakingService {
+    private static final Logger logger = LoggerFactory.getLogger(MatchmakingService.class);
+
+    private static final int MIN_RATING = 0;
+    private static final int MAX_RATING = 4000;
+    private static final int BUCKET_WIDTH = 50;
+    private static final int BUCKET_COUNT = (MAX_RATING - MIN_RATING) / BUCKET_WIDTH + 1;
+
+    @Value("${chess.matchmaking.tick-ms:200}")
+    private long tickMillis;
+
+    @Value("${chess.matchmaking.initial-window:50}")
+    private int initialWindow;
+
+    @Value("${chess.matchmaking.window-growth-per-second:25}")
+    private int windowGrowthPerSecond;
+
+    @Value("${chess.matchmaking.max-window:600}")
+    private int maxWindow;
+
+    @Value("${chess.matchmaking.time-controls:0+0,60+0,180+0,180+2,300+0,300+3,600+0,600+5,900+10,1800+0}")
+    private String timeControlList;
+
+    @Autowired
+    private ChessService chessService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> ticketsBySession = new ConcurrentHashMap<>();
+    private Set<String> timeControls;  // "base+increment" in seconds
+    private ScheduledExecutorService pairingLoop;
+    private Timer waitTimer;
+
+    @PostConstruct
+    void start() {
+        timeControls = Set.of(timeControlList.replace(" ", "").split(","));
+        waitTimer = Timer.builder("chess.matchmaking.wait")
+                .description("Time from enqueue to pairing")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chess.matchmaking.queued", ticketsBySession, Map::size)
+                .description("Players waiting for a pairing")
+                .register(meterRegistry);
+        pairingLoop = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chess-matchmaking");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pairingLoop.scheduleWithFixedDelay(this::pairSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        pairingLoop.shutdownNow();
+    }
+
+    /**
+     * Puts a session in the queue, replacing any ticket it already holds.
+     *
+     * @param sessionId The WebSocket session ID of the player
+     * @param request The player's rating and time control
+     * @throws IllegalArgumentException If the time control is not one of the allowed ones
+     */
+    public void enqueue(String sessionId, MatchRequest request) {
+        long baseSeconds = request.getBaseSeconds();
+        long incrementSeconds = baseSeconds > 0 ? request.getIncrementSeconds() : 0;
+        String timeControl = baseSeconds + "+" + incrementSeconds;
+        if (!timeControls.contains(timeControl)) {
+            throw new IllegalArgumentException("Time control not offered: " + timeControl);
+        }
+        int rating = Math.max(MIN_RATING, Math.min(MAX_RATING, request.getRating()));
+        long baseMillis = TimeUnit.SECONDS.toMillis(baseSeconds);
+        long incrementMillis = TimeUnit.SECONDS.toMillis(incrementSeconds);
+        Ticket ticket = new Ticket(sessionId, rating, baseMillis, incrementMillis);
+        Ticket previous = ticketsBySession.put(sessionId, ticket);
+        if (previous != null) {
+            previous.active = false;
+        }
+        // Offered inside compute so the pairing thread cannot drop the pool in between
+        pools.compute(timeControl, (key, pool) -> {
+            Pool target = pool != null ? pool : new Pool();
+            target.offer(ticket);
+            return target;
+        });
+        logger.debug("Session {} queued at rating {} for {}+{} ms", sessionId, rating, baseMillis, incrementMillis);
+    }
+
+    /**
+     * Removes a session from the queue.
+     *
+     * @param sessionId The WebSocket session ID of the player
+     * @return true if the session was waiting
+     */
+    public boolean cancel(String sessionId) {
+        Ticket ticket = ticketsBySession.remove(sessionId);
+        if (ticket != null) {
+            ticket.active = false;
+            return true;
+        }
+        return false;
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        cancel(event.getSessionId());
+    }
+
+    private void pairSafely() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+                entry.getValue().pair(now);
+                pools.computeIfPresent(entry.getKey(), (key, pool) -> pool.isIdle() ? null : pool);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Pairing pass failed", e);
+        }
+    }
+
+    private int window(Ticket ticket, long now) {
+        long waitedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - ticket.enqueuedAt);
+        return (int) Math.min(maxWindow, initialWindow + waitedSeconds * windowGrowthPerSecond);
+    }
+
+    private void createGame(Ticket first, Ticket second, long now) {
+        boolean firstIsWhite = ThreadLocalRandom.current().nextBoolean();
+        Ticket white = firstIsWhite ? first : second;
+        Ticket black = firstIsWhite ? second : first;
+        Lobby lobby = chessService.createPairedLobby("Quick pairing " + white.rating + " vs " + black.rating,
+                white.sessionId, black.sessionId, white.baseMillis, white.incrementMillis);
+        waitTimer.record(now - first.enqueuedAt, TimeUnit.NANOSECONDS);
+        waitTimer.record(now - second.enqueuedAt, TimeUnit.NANOSECONDS);
+        notifyMatched(white, lobby, "white", black.rating);
+        notifyMatched(black, lobby, "black", white.rating);
+    }
+
+    private void notifyMatched(Ticket ticket, Lobby lobby, String color, int opponentRating) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(ticket.sessionId);
+        accessor.setLeaveMutable(true);
+        MessageHeaders headers = accessor.getMessageHeaders();
+        messagingTemplate.convertAndSendToUser(ticket.sessionId, "/queue/match", Map.of(
+                "lobbyId", lobby.getId(),
+                "color", color,
+                "opponentRating", opponentRating
+        ), headers);
+    }
+
+    /**
+     * Players waiting for one time control. Any thread offers to the inbox; only the
+     * pairing thread touches the buckets, so they need no locking.
+     */
+    private final class Pool {
+        private final Queue<Ticket> inbox = new ConcurrentLinkedQueue<>();
+        @SuppressWarnings("unchecked")
+        private final List<Ticket>[] buckets = new List[BUCKET_COUNT];
+        private final BitSet occupied = new BitSet(BUCKET_COUNT);
+
+        private void offer(Ticket ticket) {
+            inbox.offer(ticket);
+        }
+
+        /**
+         * Checks whether no one is waiting. Called by the pairing thread inside compute,
+         * which keeps offers out while it looks.
+         */
+        private boolean isIdle() {
+            return inbox.isEmpty() && occupied.isEmpty();
+        }
+
+        private void pair(long now) {
+            Ticket ticket;
+            while ((ticket = inbox.poll()) != null) {
+                int index = (ticket.rating - MIN_RATING) / BUCKET_WIDTH;
+                if (buckets[index] == null) {
+                    buckets[index] = new ArrayList<>();
+                }
+                buckets[index].add(ticket);
+                occupied.set(index);
+            }
+
+            // Buckets are walked in rating order and only sorted within themselves, so the
+            // unpaired top of one bucket meets the bottom of the next occupied one
+            Ticket carried = null;
+            int carriedIndex = -1;
+            for (int index = occupied.nextSetBit(0); index >= 0; index = occupied.nextSetBit(index + 1)) {
+                List<Ticket> bucket = buckets[index];
+                bucket.removeIf(waiting -> !waiting.active);
+                bucket.sort(Comparator.comparingInt(waiting -> waiting.rating));
+                List<Ticket> kept = new ArrayList<>(bucket.size());
+                Ticket previous = carried;
+                for (Ticket current : bucket) {
+                    if (previous != null && fits(previous, current, now) && claim(previous, current)) {
+                        createGame(previous, current, now);
+                        if (previous == carried) {
+                            List<Ticket> below = buckets[carriedIndex];
+                            below.remove(below.size() - 1);
+                            if (below.isEmpty()) {
+                                occupied.clear(carriedIndex);
+                            }
+                        } else {
+                            kept.remove(kept.size() - 1);
+                        }
+                        previous = null;
+                    } else {
+                        kept.add(current);
+                        previous = current;
+                    }
+                }
+                buckets[index] = kept;
+                if (kept.isEmpty()) {
+                    occupied.clear(index);
+                }
+                if (previous != carried) {  // Otherwise the bucket held no one and the carry goes on
+                    carried = previous;
+                    carriedIndex = index;
+                }
+            }
+        }
+
+        private boolean fits(Ticket lower, Ticket higher, long now) {
+            return higher.rating - lower.rating <= Math.min(window(lower, now), window(higher, now));
+        }
+
+        /**
+         * Takes both tickets out of the queue, unless either player left in the meantime.
+         */
+        private boolean claim(Ticket first, Ticket second) {
+            if (!ticketsBySession.remove(first.sessionId, first)) {
+                return false;
+            }
+            if (!ticketsBySession.remove(second.sessionId, second)) {
+                ticketsBySession.putIfAbsent(first.sessionId, first);
+                return false;
+            }
+            first.active = false;
+            second.active = false;
+            return true;
+        }
+    }
+
+    private static final class Ticket {
+        private final String sessionId;
+        private final int rating;
+        private final long baseMillis;
+        private final long incrementMillis;
+        private final long enqueuedAt = System.nanoTime();
+        private volatile boolean active = true;
+
+        private Ticket(String sessionId, int rating, long baseMillis, long incrementMillis) {
+            this.sessionId = sessionId;
+            this.rating = rating;
+            this.baseMillis = baseMillis;
+            this.incrementMillis = incrementMillis;
+        }
+    }
+}
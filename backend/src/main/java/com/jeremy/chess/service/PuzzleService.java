@@ -0,0 +1,224 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.Board;
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.StoredGame;
+import com.jeremy.chess.util.ChessUtils;
+import com.jeremy.chess.util.MoveValidator;
+import com.jeremy.chess.util.PuzzleDatabase;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Puzzle mode. Puzzles come from a memory-mapped {@link PuzzleDatabase}, picked near the
+ * solver's rating with a binary search over the rating-sorted records. Each WebSocket
+ * session has at most one attempt in progress: the puzzle's index, the ply reached and
+ * a board. Attempts are private to their session, so nothing is broadcast and no lobby
+ * is listed. The database is optional; without one no puzzles are served.
+ */
+@Service
+@Lazy(false) // Stays eager under the faststart profile; loads puzzles at startup, not on the first puzzle request
+public class PuzzleService {
+    private static final Logger logger = LoggerFactory.getLogger(PuzzleService.class);
+
+    /** Destination puzzles and move results are sent to, as seen by the client. */
+    public static final String PUZZLE_DESTINATION = "/queue/puzzle";
+
+    @Value("${chess.puzzles.file:./data/puzzles.bin}")
+    private String puzzlesFile;
+
+    @Value("${chess.puzzles.rating-window:100}")
+    private int ratingWindow;
+
+    @Value("${chess.puzzles.default-rating:1500}")
+    private int defaultRating;
+
+    @Autowired
+    private RatingService ratingService;
+
+    private PuzzleDatabase database;
+    private final Map<String, Attempt> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * The outcome of one solution move.
+     */
+    public static final class Result {
+        private final boolean correct;
+        private final boolean solved;
+        private final String reply;
+
+        private Result(boolean correct, boolean solved, String reply) {
+            this.correct = correct;
+            this.solved = solved;
+            this.reply = reply;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /**
+         * Gets the opponent's answer to a correct move.
+         *
+         * @return The move in UCI notation, or null if the puzzle is over
+         */
+        public String getReply() {
+            return reply;
+        }
+    }
+
+    /**
+     * One session's attempt at a puzzle. Solution moves are read from the mapped record
+     * as they are needed, so the attempt itself holds only a position.
+     */
+    private static final class Attempt {
+        private final long index;
+        private final Board board;
+        private int ply;
+
+        private Attempt(long index, Board board) {
+            this.index = index;
+            this.board = board;
+        }
+    }
+
+    @PostConstruct
+    void open() {
+        Path path = Paths.get(puzzlesFile);
+        if (!Files.exists(path)) {
+            logger.info("No puzzle database at {}", path);
+            return;
+        }
+        try {
+            database = PuzzleDatabase.open(path);
+            logger.info("Mapped puzzle database {} with {} puzzles", path, database.size());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to open puzzle database {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    /**
+     * Starts a new puzzle for a session, replacing any attempt in progress.
+     *
+     * @param sessionId The WebSocket session ID of the solver
+     * @param rating The rating to pick near, or null to use the solver's own rating
+     * @return The puzzle, or null if there is no puzzle database
+     */
+    public PuzzleDatabase.Puzzle next(String sessionId, Integer rating) {
+        if (database == null || database.size() == 0) {
+            return null;
+        }
+        long index = pick(rating != null ? rating : ratingOf(sessionId));
+        Board board = new Board(Board.START);
+        database.readBoard(index, board);
+        attempts.put(sessionId, new Attempt(index, board));
+        return database.getPuzzle(index);
+    }
+
+    /**
+     * Plays a solver's move in their current puzzle. A wrong move ends the attempt; a
+     * right one is answered with the opponent's next move. On the last ply any move that
+     * mates is accepted, since puzzles often have more than one.
+     *
+     * @param sessionId The WebSocket session ID of the solver
+     * @param move The move
+     * @return The outcome, or null if the session has no puzzle in progress
+     */
+    public Result move(String sessionId, ChessMove move) {
+        Attempt attempt = attempts.get(sessionId);
+        if (attempt == null) {
+            return null;
+        }
+        synchronized (attempt) {
+            long index = attempt.index;
+            int plies = database.getSolutionPlies(index);
+            boolean white = database.isWhiteToMove(index);
+            if (attempt.ply >= plies || !PuzzleDatabase.isLegal(attempt.board, white, move)) {
+                attempts.remove(sessionId, attempt);
+                return new Result(false, false, null);
+            }
+            boolean last = attempt.ply == plies - 1;
+            boolean correct = StoredGame.encode(move) == database.getSolutionMove(index, attempt.ply);
+            ChessUtils.applyMove(attempt.board, move);
+            if (!correct && !(last && isMate(attempt.board, !white))) {
+                attempts.remove(sessionId, attempt);
+                return new Result(false, false, null);
+            }
+            attempt.ply++;
+            if (attempt.ply >= plies) {
+                attempts.remove(sessionId, attempt);
+                return new Result(true, true, null);
+            }
+
+            ChessMove reply = StoredGame.decode(database.getSolutionMove(index, attempt.ply++));
+            ChessUtils.applyMove(attempt.board, reply);
+            String uci = reply.getFrom() + reply.getTo() + (reply.getPromotion() != null ? reply.getPromotion().toLowerCase() : "");
+            return new Result(true, false, uci);
+        }
+    }
+
+    /**
+     * Gets the number of puzzles available.
+     *
+     * @return The puzzle count, 0 without a database
+     */
+    public long getPuzzleCount() {
+        return database != null ? database.size() : 0;
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        attempts.remove(event.getSessionId());
+    }
+
+    /**
+     * Picks a random puzzle rated within the window around a rating, or the nearest
+     * one if the window is empty.
+     */
+    private long pick(int rating) {
+        long low = database.lowerBound(rating - ratingWindow);
+        long high = database.lowerBound(rating + ratingWindow + 1);
+        if (low < high) {
+            return ThreadLocalRandom.current().nextLong(low, high);
+        }
+        long above = Math.min(low, database.size() - 1);
+        long below = Math.max(low - 1, 0);
+        return Math.abs(database.getRating(above) - rating) <= Math.abs(database.getRating(below) - rating) ? above : below;
+    }
+
+    private int ratingOf(String sessionId) {
+        RatingService.LeaderboardEntry entry = ratingService.getEntry(sessionId);
+        return entry != null ? (int) Math.round(entry.getRating()) : defaultRating;
+    }
+
+    private static boolean isMate(Board board, boolean whiteToMove) {
+        return MoveValidator.isInCheck(whiteToMove, board) && MoveValidator.getLegalMoves(whiteToMove, board).isEmpty();
+    }
+}
@@ -0,0 +1,458 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.util.Glicko2;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps Glicko-2 ratings for players, updated as games end, and an in-memory
+ * leaderboard. The leaderboard is a concurrent skip list ordered by rating, so
+ * top-N reads are lock-free; ranks come from a Fenwick tree of players per rating
+ * point. Ratings are flushed to a CSV file in the background, and every rated
+ * result is appended to an archive that {@link #recompute} can replay.
+ *
+ * <p>Players are identified by the session they played from, so a reconnect starts
+ * a new 1500-rated player. Ratings of players who have not finished a game for
+ * {@code chess.ratings.retention-days} are dropped, which keeps the leaderboard and
+ * the ratings file from filling up with sessions that are gone.
+ */
+@Service
+@Lazy(false) // Stays eager under the faststart profile; loads ratings at startup, not on the first finished game
+public class RatingService {
+    private static final Logger logger = LoggerFactory.getLogger(RatingService.class);
+
+    private static final int MAX_RATING_POINT = 5000;
+    private static final Comparator<LeaderboardEntry> LEADERBOARD_ORDER =
+            Comparator.comparingDouble(LeaderboardEntry::getRating).reversed()
+                    .thenComparing(LeaderboardEntry::getPlayerId);
+
+    @Value("${chess.ratings.file:./data/ratings.csv}")
+    private String ratingsFile;
+
+    @Value("${chess.ratings.archive:./data/results.csv}")
+    private String archiveFile;
+
+    @Value("${chess.ratings.flush-seconds:10}")
+    private long flushSeconds;
+
+    @Value("${chess.ratings.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${chess.ratings.backfill-period-hours:24}")
+    private long backfillPeriodHours;
+
+    @Value("${chess.ratings.retention-days:30}")
+    private long retentionDays;
+
+    private final Map<String, PlayerRating> ratings = new ConcurrentHashMap<>();
+    private final NavigableSet<LeaderboardEntry> leaderboard = new ConcurrentSkipListSet<>(LEADERBOARD_ORDER);
+    private final long[] ratingCounts = new long[MAX_RATING_POINT + 2];  // Fenwick tree, 1-based
+    private final Queue<String> pendingResults = new ConcurrentLinkedQueue<>();
+    private volatile boolean dirty = false;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void start() {
+        if (backfillOnStartup) {
+            recompute(Paths.get(archiveFile), Duration.ofHours(backfillPeriodHours));
+        } else {
+            load();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chess-ratings-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Rates both players of a finished game.
+     */
+    @EventListener
+    public void onGameEnded(GameEndedEvent event) {
+        String white = event.getWhitePlayerId();
+        String black = event.getBlackPlayerId();
+        if (white == null || black == null || white.equals(black) || event.getWinningTeam() == null) {
+            return;
+        }
+        double whiteScore = "White".equals(event.getWinningTeam()) ? 1.0
+                : "Black".equals(event.getWinningTeam()) ? 0.0 : 0.5;
+        recordResult(white, black, whiteScore);
+        pendingResults.add(System.currentTimeMillis() + "," + white + "," + black + "," + whiteScore);
+    }
+
+    /**
+     * Updates both players' ratings for one game, treating the game as its own rating period.
+     *
+     * @param white The white player's ID
+     * @param black The black player's ID
+     * @param whiteScore 1 if white won, 0.5 for a draw, 0 if black won
+     */
+    public synchronized void recordResult(String white, String black, double whiteScore) {
+        PlayerRating whiteBefore = getOrDefault(white);
+        PlayerRating blackBefore = getOrDefault(black);
+        Glicko2.Rating whiteAfter = Glicko2.rate(whiteBefore.rating,
+                List.of(new Glicko2.Result(blackBefore.rating, whiteScore)));
+        Glicko2.Rating blackAfter = Glicko2.rate(blackBefore.rating,
+                List.of(new Glicko2.Result(whiteBefore.rating, 1.0 - whiteScore)));
+        long now = System.currentTimeMillis();
+        put(new PlayerRating(white, whiteAfter, whiteBefore.games + 1, now));
+        put(new PlayerRating(black, blackAfter, blackBefore.games + 1, now));
+        dirty = true;
+        logger.info("Rated game {} vs {} ({}): {} -> {}, {} -> {}", white, black, whiteScore,
+                Math.round(whiteBefore.rating.getRating()), Math.round(whiteAfter.getRating()),
+                Math.round(blackBefore.rating.getRating()), Math.round(blackAfter.getRating()));
+    }
+
+    /**
+     * Gets the highest-rated players.
+     *
+     * @param limit The maximum number of entries to return
+     * @return Leaderboard entries, best first
+     */
+    public List<LeaderboardEntry> getTop(int limit) {
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(limit, 100));
+        for (LeaderboardEntry entry : leaderboard) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    /**
+     * Gets a player's rating and rank.
+     *
+     * @param playerId The ID of the player
+     * @return The player's entry, or null if the player has never been rated
+     */
+    public LeaderboardEntry getEntry(String playerId) {
+        PlayerRating rating = ratings.get(playerId);
+        return rating != null ? new LeaderboardEntry(rating, getRank(rating)) : null;
+    }
+
+    /**
+     * Replays an archive of results to rebuild every rating from scratch. Results are
+     * grouped into consecutive rating periods; periods are applied in order, and the
+     * players within a period are rated in parallel against the ratings at its start.
+     *
+     * @param archive A results archive in the format written by this service
+     * @param period The length of one rating period
+     */
+    public synchronized void recompute(Path archive, Duration period) {
+        List<long[]> times = new ArrayList<>();
+        List<String[]> games = new ArrayList<>();
+        if (Files.exists(archive)) {
+            try (BufferedReader reader = Files.newBufferedReader(archive, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",");
+                    if (fields.length == 4) {
+                        times.add(new long[] { Long.parseLong(fields[0]), games.size() });
+                        games.add(fields);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.error("Failed to read results archive {}: {}", archive, e.getMessage());
+                return;
+            }
+        }
+        times.sort(Comparator.comparingLong(entry -> entry[0]));
+
+        Map<String, Glicko2.Rating> current = new HashMap<>();
+        Map<String, Integer> gameCounts = new HashMap<>();
+        Map<String, Long> lastPlayed = new HashMap<>();
+        long periodMillis = period.toMillis();
+        int i = 0;
+        int periods = 0;
+        while (i < times.size()) {
+            long periodEnd = times.get(i)[0] + periodMillis;
+            Map<String, List<Glicko2.Result>> resultsByPlayer = new HashMap<>();
+            for (; i < times.size() && times.get(i)[0] < periodEnd; i++) {
+                String[] game = games.get((int) times.get(i)[1]);
+                String white = game[1];
+                String black = game[2];
+                double whiteScore = Double.parseDouble(game[3]);
+                Glicko2.Rating whiteRating = current.getOrDefault(white, Glicko2.initialRating());
+                Glicko2.Rating blackRating = current.getOrDefault(black, Glicko2.initialRating());
+                resultsByPlayer.computeIfAbsent(white, id -> new ArrayList<>()).add(new Glicko2.Result(blackRating, whiteScore));
+                resultsByPlayer.computeIfAbsent(black, id -> new ArrayList<>()).add(new Glicko2.Result(whiteRating, 1.0 - whiteScore));
+                gameCounts.merge(white, 1, Integer::sum);
+                gameCounts.merge(black, 1, Integer::sum);
+                lastPlayed.merge(white, times.get(i)[0], Math::max);
+                lastPlayed.merge(black, times.get(i)[0], Math::max);
+            }
+            for (String player : resultsByPlayer.keySet()) {
+                current.putIfAbsent(player, Glicko2.initialRating());
+            }
+            // Every player's new rating depends only on ratings at the start of the period
+            Map<String, Glicko2.Rating> start = current;
+            current = start.entrySet().parallelStream().collect(ConcurrentHashMap::new,
+                    (next, entry) -> next.put(entry.getKey(), Glicko2.rate(entry.getValue(),
+                            resultsByPlayer.getOrDefault(entry.getKey(), List.of()))),
+                    Map::putAll);
+            periods++;
+        }
+
+        ratings.clear();
+        leaderboard.clear();
+        Arrays.fill(ratingCounts, 0);
+        for (Map.Entry<String, Glicko2.Rating> entry : current.entrySet()) {
+            put(new PlayerRating(entry.getKey(), entry.getValue(), gameCounts.getOrDefault(entry.getKey(), 0),
+                    lastPlayed.getOrDefault(entry.getKey(), 0L)));
+        }
+        prune();
+        dirty = true;
+        logger.info("Recomputed {} ratings from {} results in {} rating periods", ratings.size(), games.size(), periods);
+    }
+
+    private PlayerRating getOrDefault(String playerId) {
+        PlayerRating rating = ratings.get(playerId);
+        return rating != null ? rating : new PlayerRating(playerId, Glicko2.initialRating(), 0, 0);
+    }
+
+    /**
+     * Drops the ratings of players who have not finished a game within the retention period.
+     */
+    private synchronized void prune() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+        int pruned = 0;
+        for (PlayerRating rating : ratings.values()) {
+            if (rating.lastPlayed < cutoff && ratings.remove(rating.playerId, rating)) {
+                leaderboard.remove(new LeaderboardEntry(rating, 0));
+                addCount(ratingPoint(rating), -1);
+                pruned++;
+            }
+        }
+        if (pruned > 0) {
+            dirty = true;
+            logger.info("Dropped {} ratings idle for over {} days", pruned, retentionDays);
+        }
+    }
+
+    private void put(PlayerRating rating) {
+        PlayerRating previous = ratings.put(rating.playerId, rating);
+        if (previous != null) {
+            leaderboard.remove(new LeaderboardEntry(previous, 0));
+            addCount(ratingPoint(previous), -1);
+        }
+        leaderboard.add(new LeaderboardEntry(rating, 0));
+        addCount(ratingPoint(rating), 1);
+    }
+
+    /**
+     * Counts the players rated strictly higher. Players in higher rating points come
+     * from the Fenwick tree in O(log n); only ties within the same point are walked.
+     */
+    private synchronized int getRank(PlayerRating rating) {
+        int point = ratingPoint(rating);
+        long above = countUpTo(MAX_RATING_POINT) - countUpTo(point);
+        // Sorts just after every entry rated point + 1 or higher
+        LeaderboardEntry pointTop = new LeaderboardEntry("", Math.nextDown(point + 1.0), 0, 0, 0, 0);
+        LeaderboardEntry self = new LeaderboardEntry(rating, 0);
+        long samePointAhead = leaderboard.subSet(pointTop, false, self, false).size();
+        return (int) (above + samePointAhead) + 1;
+    }
+
+    private static int ratingPoint(PlayerRating rating) {
+        return (int) Math.max(0, Math.min(MAX_RATING_POINT, Math.floor(rating.rating.getRating())));
+    }
+
+    private void addCount(int point, long delta) {
+        for (int i = point + 1; i < ratingCounts.length; i += i & -i) {
+            ratingCounts[i] += delta;
+        }
+    }
+
+    private long countUpTo(int point) {
+        long count = 0;
+        for (int i = point + 1; i > 0; i -= i & -i) {
+            count += ratingCounts[i];
+        }
+        return count;
+    }
+
+    private void load() {
+        Path path = Paths.get(ratingsFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            synchronized (this) {
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",");
+                    if (fields.length == 5 || fields.length == 6) {
+                        // Files written before last-played times were kept count as played now
+                        long lastPlayed = fields.length == 6 ? Long.parseLong(fields[5]) : System.currentTimeMillis();
+                        put(new PlayerRating(fields[0], new Glicko2.Rating(Double.parseDouble(fields[1]),
+                                Double.parseDouble(fields[2]), Double.parseDouble(fields[3])), Integer.parseInt(fields[4]),
+                                lastPlayed));
+                    }
+                }
+            }
+            logger.info("Loaded {} ratings from {}", ratings.size(), path);
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Failed to load ratings from {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void flush() {
+        try {
+            prune();
+            appendResults();
+            if (dirty) {
+                dirty = false;
+                writeRatings();
+            }
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("Failed to persist ratings: {}", e.getMessage());
+        }
+    }
+
+    private void appendResults() throws IOException {
+        if (pendingResults.isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(archiveFile);
+        createParent(path);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            String line;
+            while ((line = pendingResults.poll()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    private void writeRatings() throws IOException {
+        Path path = Paths.get(ratingsFile);
+        createParent(path);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (PlayerRating rating : ratings.values()) {
+                writer.write(rating.playerId + "," + rating.rating.getRating() + "," + rating.rating.getDeviation()
+                        + "," + rating.rating.getVolatility() + "," + rating.games + "," + rating.lastPlayed);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void createParent(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    private static final class PlayerRating {
+        private final String playerId;
+        private final Glicko2.Rating rating;
+        private final int games;
+        private final long lastPlayed;  // Epoch millis of the last rated game
+
+        private PlayerRating(String playerId, Glicko2.Rating rating, int games, long lastPlayed) {
+            this.playerId = playerId;
+            this.rating = rating;
+            this.games = games;
+            this.lastPlayed = lastPlayed;
+        }
+    }
+
+    /**
+     * A player's position on the leaderboard.
+     */
+    public static final class LeaderboardEntry {
+        private final String playerId;
+        private final double rating;
+        private final double deviation;
+        private final double volatility;
+        private final int games;
+        private final int rank;
+
+        private LeaderboardEntry(PlayerRating rating, int rank) {
+            this(rating.playerId, rating.rating.getRating(), rating.rating.getDeviation(),
+                    rating.rating.getVolatility(), rating.games, rank);
+        }
+
+        private LeaderboardEntry(String playerId, double rating, double deviation, double volatility, int games, int rank) {
+            this.playerId = playerId;
+            this.rating = rating;
+            this.deviation = deviation;
+            this.volatility = volatility;
+            this.games = games;
+            this.rank = rank;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        public double getDeviation() {
+            return deviation;
+        }
+
+        public double getVolatility() {
+            return volatility;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the 1-based rank, or 0 when the entry was listed without computing it.
+         *
+         * @return The rank
+         */
+        public int getRank() {
+            return rank;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.jeremy.chess.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers game state to spectators with conflation. Each spectator has room for
+ * one frame on the wire and one pending frame; a newer state replaces the pending
+ * one, so a slow spectator skips intermediate positions instead of backing up the
+ * outbound channel. Players are unaffected and keep receiving every message on
+ * {@code /topic/game}.
+ */
+@Service
+public class SpectatorService {
+    private static final Logger logger = LoggerFactory.getLogger(SpectatorService.class);
+
+    /** Destination spectators subscribe to, as seen by the client. */
+    public static final String SPECTATE_DESTINATION = "/queue/spectate";
+
+    private static final long SLOT_FREE = Long.MIN_VALUE;
+
+    /** A frame not confirmed within this time is assumed lost, e.g. when the session's send buffer is stuck. */
+    @Value("${chess.spectator.in-flight-timeout-ms:5000}")
+    private long inFlightTimeoutMillis;
+
+    private final Map<String, Map<String, Spectator>> spectatorsByLobby = new ConcurrentHashMap<>();
+    private final Map<String, Spectator> spectatorsBySession = new ConcurrentHashMap<>();
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter sentFrames;
+    private Counter droppedFrames;
+
+    @PostConstruct
+    void registerMetrics() {
+        sentFrames = Counter.builder("chess.spectator.frames")
+                .description("State frames delivered to spectators")
+                .tag("outcome", "sent")
+                .register(meterRegistry);
+        droppedFrames = Counter.builder("chess.spectator.frames")
+                .description("State frames superseded before a slow spectator could receive them")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        Gauge.builder("chess.spectators", spectatorsBySession, Map::size)
+                .description("Connected spectators")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers a session as a spectator of a lobby. A session watches one lobby at a time.
+     *
+     * @param lobbyId The ID of the lobby to watch
+     * @param sessionId The WebSocket session ID of the spectator
+     * @param currentState The serialized current state to send straight away, or null
+     */
+    public void addSpectator(String lobbyId, String sessionId, byte[] currentState) {
+        removeSpectator(sessionId);
+        Spectator spectator = new Spectator(lobbyId, sessionId);
+        spectatorsBySession.put(sessionId, spectator);
+        spectatorsByLobby.computeIfAbsent(lobbyId, id -> new ConcurrentHashMap<>()).put(sessionId, spectator);
+        logger.info("Session {} is spectating lobby {}", sessionId, lobbyId);
+        if (currentState != null) {
+            spectator.offer(currentState);
+        }
+    }
+
+    /**
+     * Stops a session from spectating.
+     *
+     * @param sessionId The WebSocket session ID of the spectator
+     */
+    public void removeSpectator(String sessionId) {
+        Spectator spectator = spectatorsBySession.remove(sessionId);
+        if (spectator == null) {
+            return;
+        }
+        spectatorsByLobby.computeIfPresent(spectator.lobbyId, (id, spectators) -> {
+            spectators.remove(sessionId);
+            return spectators.isEmpty() ? null : spectators;
+        });
+        logger.info("Session {} stopped spectating lobby {}", sessionId, spectator.lobbyId);
+    }
+
+    /**
+     * Publishes a new state of a lobby to its spectators, conflating for any that are behind.
+     *
+     * @param lobbyId The ID of the lobby
+     * @param state The serialized state message
+     */
+    public void publish(String lobbyId, byte[] state) {
+        Map<String, Spectator> spectators = spectatorsByLobby.get(lobbyId);
+        if (spectators == null) {
+            return;
+        }
+        for (Spectator spectator : spectators.values()) {
+            spectator.offer(state);
+        }
+    }
+
+    /**
+     * Called once a spectator frame has been written to the session, freeing its slot
+     * for the next pending frame.
+     *
+     * @param sessionId The WebSocket session ID of the spectator
+     */
+    public void onDelivered(String sessionId) {
+        Spectator spectator = spectatorsBySession.get(sessionId);
+        if (spectator != null) {
+            spectator.inFlightSince.set(SLOT_FREE);
+            spectator.drain();
+        }
+    }
+
+    /**
+     * Checks whether an outbound destination is a spectator queue.
+     *
+     * @param destination The resolved destination of an outbound message
+     * @return true if the message is a spectator frame
+     */
+    public static boolean isSpectatorDestination(String destination) {
+        return destination != null && destination.startsWith(SPECTATE_DESTINATION);
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        removeSpectator(event.getSessionId());
+    }
+
+    private void send(String sessionId, byte[] state) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send("/user/" + sessionId + SPECTATE_DESTINATION,
+                MessageBuilder.createMessage(state, accessor.getMessageHeaders()));
+    }
+
+    /**
+     * One spectator's delivery slot: at most one frame in flight and one pending.
+     */
+    private final class Spectator {
+        private final String lobbyId;
+        private final String sessionId;
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
+        private final AtomicLong inFlightSince = new AtomicLong(SLOT_FREE);
+
+        private Spectator(String lobbyId, String sessionId) {
+            this.lobbyId = lobbyId;
+            this.sessionId = sessionId;
+        }
+
+        private void offer(byte[] state) {
+            if (pending.getAndSet(state) != null) {
+                droppedFrames.increment();
+            }
+            drain();
+        }
+
+        private void drain() {
+            long since = inFlightSince.get();
+            if (since != SLOT_FREE && System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(inFlightTimeoutMillis)) {
+                inFlightSince.compareAndSet(since, SLOT_FREE);
+            }
+            // Re-check after releasing the slot so a frame offered concurrently is not stranded
+            while (pending.get() != null && inFlightSince.compareAndSet(SLOT_FREE, System.nanoTime())) {
+                byte[] state = pending.getAndSet(null);
+                if (state == null) {
+                    inFlightSince.set(SLOT_FREE);
+                    continue;
+                }
+                try {
+                    send(sessionId, state);
+                    sentFrames.increment();
+                } catch (RuntimeException e) {
+                    inFlightSince.set(SLOT_FREE);
+                    logger.warn("Failed to send state to spectator {}: {}", sessionId, e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+}
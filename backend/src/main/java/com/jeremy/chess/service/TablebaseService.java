@@ -0,0 +1,59 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.util.Tablebase;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Probes the endgame tablebase files generated by
+ * {@link com.jeremy.chess.util.TablebaseGenerator}. Without files every probe misses.
+ */
+@Service
+public class TablebaseService {
+    private static final Logger logger = LoggerFactory.getLogger(TablebaseService.class);
+
+    @Value("${chess.tablebase.dir:./data/tablebases}")
+    private String directory;
+
+    @Value("${chess.tablebase.adjudicate:true}")
+    private boolean adjudicate;
+
+    private Tablebase tablebase;
+
+    @PostConstruct
+    void open() {
+        try {
+            tablebase = Tablebase.open(Paths.get(directory));
+            logger.info("Mapped {} endgame tables from {}", tablebase.size(), directory);
+        } catch (IOException e) {
+            logger.error("Failed to map endgame tables from {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param boardState The board, a8 first
+     * @param whiteToMove Whether it is white's turn
+     * @return The result, or null if the position is not covered
+     */
+    public Tablebase.Result probe(List<String> boardState, boolean whiteToMove) {
+        return tablebase != null ? tablebase.probe(boardState, whiteToMove) : null;
+    }
+
+    /**
+     * Checks whether games should end as soon as they reach a solved ending.
+     *
+     * @return true to adjudicate tablebase positions
+     */
+    public boolean isAdjudicating() {
+        return adjudicate;
+    }
+}
@@ -1,5 +1,8 @@
 package com.jeremy.chess.util;
 
+import com.jeremy.chess.model.ChessMove;
+import java.util.List;
+
 /**
  * Utility class for chess-related operations.
  * Provides methods for converting between chess notation and board indices.
@@ -36,4 +39,33 @@ public class ChessUtils {
         int rank = 8 - (index / 8);
         return String.valueOf((char)('a' + file)) + rank;
     }
-}
\ No newline at end of file
+
+    /**
+     * Plays a move on a board without validating it. Handles promotion, en passant
+     * and castling, which is given as the king's two-square move.
+     * 
+     * @param boardState The board to update, a8 first
+     * @param move The move to play
+     */
+    public static void applyMove(List<String> boardState, ChessMove move) {
+        int from = notationToIndex(move.getFrom());
+        int to = notationToIndex(move.getTo());
+        String piece = boardState.get(from);
+        char color = piece.charAt(0);
+        char type = piece.charAt(1);
+
+        if (type == 'P' && from % 8 != to % 8 && boardState.get(to).isEmpty()) {
+            // En passant: the captured pawn is beside the moving one
+            boardState.set(from - from % 8 + to % 8, "");
+        }
+        if (type == 'K' && Math.abs(to - from) == 2) {
+            boolean kingside = to > from;
+            int rookFrom = kingside ? from + 3 : from - 4;
+            int rookTo = kingside ? from + 1 : from - 1;
+            boardState.set(rookTo, boardState.get(rookFrom));
+            boardState.set(rookFrom, "");
+        }
+        boardState.set(from, "");
+        boardState.set(to, move.getPromotion() != null && type == 'P' ? color + move.getPromotion() : piece);
+    }
+}
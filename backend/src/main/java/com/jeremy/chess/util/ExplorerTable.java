@@ -0,0 +1,222 @@
+package com.jeremy.chess.util;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Files;
+
+/**
+ * Off-heap open-addressing hash table from 64-bit position keys to white win, draw
+ * and black win counts. Slots live in one direct buffer, so millions of positions
+ * add no objects for the garbage collector to trace. Writers are serialized; readers
+ * take no lock and may see counts that are one update behind.
+ */
+public class ExplorerTable {
+    private static final int SLOT_SIZE = 24;  // key, white wins, draws, black wins, padding
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+    private static final long FILE_MAGIC = 0x4558504C4F524552L;  // "EXPLORER"
+    // Publishes a slot's key with release semantics, so readers that see the key see its counts
+    private static final VarHandle KEY = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private volatile ByteBuffer slots;
+    private volatile int capacity;
+    private int size;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param initialCapacity The expected number of positions; rounded up to a power of two
+     */
+    public ExplorerTable(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(MAX_CAPACITY, initialCapacity)) - 1) << 1;
+        this.slots = allocate(capacity);
+        this.capacity = capacity;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Adds game results to a position.
+     *
+     * @param key The position key; must not be 0
+     * @param whiteWins The number of white wins to add
+     * @param draws The number of draws to add
+     * @param blackWins The number of black wins to add
+     */
+    public synchronized void add(long key, int whiteWins, int draws, int blackWins) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+        if (size + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+        ByteBuffer buffer = slots;
+        int mask = capacity - 1;
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_SIZE;
+            long existing = buffer.getLong(offset);
+            if (existing == key) {
+                buffer.putInt(offset + 8, buffer.getInt(offset + 8) + whiteWins);
+                buffer.putInt(offset + 12, buffer.getInt(offset + 12) + draws);
+                buffer.putInt(offset + 16, buffer.getInt(offset + 16) + blackWins);
+                return;
+            }
+            if (existing == 0) {
+                buffer.putInt(offset + 8, whiteWins);
+                buffer.putInt(offset + 12, draws);
+                buffer.putInt(offset + 16, blackWins);
+                KEY.setRelease(buffer, offset, key);
+                size++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds one game result to many positions in a single critical section.
+     *
+     * @param keys The position keys
+     * @param results The result for each key: 0 for a white win, 1 for a draw, 2 for a black win
+     * @param count The number of keys to add
+     */
+    public synchronized void addAll(long[] keys, byte[] results, int count) {
+        for (int i = 0; i < count; i++) {
+            byte result = results[i];
+            add(keys[i], result == 0 ? 1 : 0, result == 1 ? 1 : 0, result == 2 ? 1 : 0);
+        }
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The position key
+     * @return The white win, draw and black win counts, or null if the position was never reached
+     */
+    public int[] get(long key) {
+        ByteBuffer buffer = slots;
+        int mask = buffer.capacity() / SLOT_SIZE - 1;
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_SIZE;
+            long existing = (long) KEY.getAcquire(buffer, offset);
+            if (existing == key && key != 0) {
+                return new int[] { buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16) };
+            }
+            if (existing == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of positions in the table.
+     *
+     * @return The position count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int index(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & mask;
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Explorer table is full");
+        }
+        int newCapacity = capacity << 1;
+        int mask = newCapacity - 1;
+        ByteBuffer old = slots;
+        ByteBuffer grown = allocate(newCapacity);
+        for (int offset = 0; offset < capacity * SLOT_SIZE; offset += SLOT_SIZE) {
+            long key = old.getLong(offset);
+            if (key == 0) {
+                continue;
+            }
+            int slot = index(key, mask);
+            while (grown.getLong(slot * SLOT_SIZE) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            int target = slot * SLOT_SIZE;
+            grown.putLong(target, key);
+            grown.putInt(target + 8, old.getInt(offset + 8));
+            grown.putInt(target + 12, old.getInt(offset + 12));
+            grown.putInt(target + 16, old.getInt(offset + 16));
+        }
+        // Readers holding the old buffer still get consistent, if stale, answers;
+        // the volatile write publishes the copied slots to readers of the new one
+        slots = grown;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Writes the table to a file, replacing it atomically.
+     *
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized void writeTo(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.nativeOrder());
+            header.putLong(FILE_MAGIC).putInt(capacity).putInt(size).flip();
+            writeFully(channel, header);
+            writeFully(channel, slots.duplicate().clear());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a table written by {@link #writeTo}.
+     *
+     * @param path The file to read
+     * @return The table
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file is not an explorer table from this platform
+     */
+    public static ExplorerTable readFrom(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.nativeOrder());
+            readFully(channel, header);
+            header.flip();
+            if (header.getLong() != FILE_MAGIC) {
+                throw new IllegalArgumentException("Not an explorer table: " + path);
+            }
+            int capacity = header.getInt();
+            int size = header.getInt();
+            if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY
+                    || channel.size() != 16L + (long) capacity * SLOT_SIZE) {
+                throw new IllegalArgumentException("Corrupt explorer table: " + path);
+            }
+            ExplorerTable table = new ExplorerTable(capacity);
+            readFully(channel, table.slots.duplicate().clear());
+            table.size = size;
+            return table;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jeremy.chess.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion between board states and Forsyth-Edwards Notation. Only the piece
+ * placement and side to move are used, since lobbies keep no castling or en passant state.
+ */
+public class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Parses the piece placement field of a FEN string.
+     *
+     * @param fen The FEN string
+     * @return The board, a8 first, with pieces such as "wP" and "" for empty squares
+     * @throws IllegalArgumentException If the placement is malformed
+     */
+    public static ArrayList<String> parseBoard(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("Missing FEN");
+        }
+        String trimmed = fen.trim();
+        int end = trimmed.indexOf(' ');
+        String placement = end < 0 ? trimmed : trimmed.substring(0, end);
+
+        ArrayList<String> board = new ArrayList<>(64);
+        int rankSquares = 0;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/') {
+                if (rankSquares != 8) {
+                    throw new IllegalArgumentException("Invalid FEN rank: " + placement);
+                }
+                rankSquares = 0;
+            } else if (c >= '1' && c <= '8') {
+                for (int j = 0; j < c - '0'; j++) {
+                    board.add("");
+                }
+                rankSquares += c - '0';
+            } else {
+                char type = Character.toUpperCase(c);
+                if ("PNBRQK".indexOf(type) < 0) {
+                    throw new IllegalArgumentException("Invalid FEN piece: " + c);
+                }
+                board.add((Character.isUpperCase(c) ? "w" : "b") + type);
+                rankSquares++;
+            }
+            if (rankSquares > 8) {
+                throw new IllegalArgumentException("Invalid FEN rank: " + placement);
+            }
+        }
+        if (board.size() != 64 || rankSquares != 8) {
+            throw new IllegalArgumentException("Invalid FEN placement: " + placement);
+        }
+        return board;
+    }
+
+    /**
+     * Parses the side to move field of a FEN string.
+     *
+     * @param fen The FEN string
+     * @return true if white is to move; white is assumed when the field is missing
+     */
+    public static boolean parseWhiteToMove(String fen) {
+        String[] fields = fen.trim().split(" ");
+        return fields.length < 2 || !fields[1].equals("b");
+    }
+
+    /**
+     * Formats a position as FEN. Castling rights are inferred from kings and rooks on
+     * their home squares; the en passant and move counter fields are placeholders.
+     *
+     * @param boardState The board, a8 first
+     * @param whiteToMove Whether it is white's turn
+     * @return The FEN string
+     */
+    public static String format(List<String> boardState, boolean whiteToMove) {
+        StringBuilder fen = new StringBuilder(80);
+        for (int rank = 0; rank < 8; rank++) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                String piece = boardState.get(rank * 8 + file);
+                if (piece.isEmpty()) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char type = piece.charAt(1);
+                fen.append(piece.charAt(0) == 'w' ? type : Character.toLowerCase(type));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank < 7) {
+                fen.append('/');
+            }
+        }
+        fen.append(whiteToMove ? " w " : " b ");
+        int length = fen.length();
+        if ("wK".equals(boardState.get(60))) {
+            if ("wR".equals(boardState.get(63))) fen.append('K');
+            if ("wR".equals(boardState.get(56))) fen.append('Q');
+        }
+        if ("bK".equals(boardState.get(4))) {
+            if ("bR".equals(boardState.get(7))) fen.append('k');
+            if ("bR".equals(boardState.get(0))) fen.append('q');
+        }
+        if (fen.length() == length) {
+            fen.append('-');
+        }
+        return fen.append(" - 0 1").toString();
+    }
+}
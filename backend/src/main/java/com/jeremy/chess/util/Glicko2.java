@@ -0,0 +1,164 @@
+package com.jeremy.chess.util;
+
+import java.util.List;
+
+/**
+ * Glicko-2 rating calculation as described by Mark Glickman in "Example of the
+ * Glicko-2 system". Ratings are on the familiar Glicko scale (1500 / 350 / 0.06
+ * for a new player) and converted internally.
+ */
+public class Glicko2 {
+    public static final double DEFAULT_RATING = 1500.0;
+    public static final double DEFAULT_DEVIATION = 350.0;
+    public static final double DEFAULT_VOLATILITY = 0.06;
+
+    private static final double SCALE = 173.7178;
+    private static final double TAU = 0.5;  // Constrains volatility change over time
+    private static final double EPSILON = 0.000001;
+    private static final double MIN_DEVIATION = 30.0;
+
+    /**
+     * An immutable rating.
+     */
+    public static final class Rating {
+        private final double rating;
+        private final double deviation;
+        private final double volatility;
+
+        public Rating(double rating, double deviation, double volatility) {
+            this.rating = rating;
+            this.deviation = deviation;
+            this.volatility = volatility;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        public double getDeviation() {
+            return deviation;
+        }
+
+        public double getVolatility() {
+            return volatility;
+        }
+    }
+
+    /**
+     * One game from a player's point of view.
+     */
+    public static final class Result {
+        private final Rating opponent;
+        private final double score;
+
+        /**
+         * Creates a result.
+         *
+         * @param opponent The opponent's rating at the start of the rating period
+         * @param score 1 for a win, 0.5 for a draw, 0 for a loss
+         */
+        public Result(Rating opponent, double score) {
+            this.opponent = opponent;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Gets the rating of a player who has not played yet.
+     *
+     * @return The default rating
+     */
+    public static Rating initialRating() {
+        return new Rating(DEFAULT_RATING, DEFAULT_DEVIATION, DEFAULT_VOLATILITY);
+    }
+
+    /**
+     * Rates a player over one rating period.
+     *
+     * @param player The player's rating at the start of the period
+     * @param results The player's games in the period; may be empty
+     * @return The player's rating at the end of the period
+     */
+    public static Rating rate(Rating player, List<Result> results) {
+        double mu = (player.rating - DEFAULT_RATING) / SCALE;
+        double phi = player.deviation / SCALE;
+        double sigma = player.volatility;
+
+        if (results.isEmpty()) {
+            // Only the deviation grows while a player is inactive
+            double phiStar = Math.sqrt(phi * phi + sigma * sigma);
+            return new Rating(player.rating, Math.min(DEFAULT_DEVIATION, phiStar * SCALE), sigma);
+        }
+
+        double vInverse = 0;
+        double scoreSum = 0;
+        for (Result result : results) {
+            double muJ = (result.opponent.rating - DEFAULT_RATING) / SCALE;
+            double gJ = g(result.opponent.deviation / SCALE);
+            double e = expectedScore(mu, muJ, gJ);
+            vInverse += gJ * gJ * e * (1 - e);
+            scoreSum += gJ * (result.score - e);
+        }
+        double v = 1 / vInverse;
+        double delta = v * scoreSum;
+
+        double newSigma = newVolatility(phi, sigma, v, delta);
+        double phiStar = Math.sqrt(phi * phi + newSigma * newSigma);
+        double newPhi = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / v);
+        double newMu = mu + newPhi * newPhi * scoreSum;
+
+        return new Rating(newMu * SCALE + DEFAULT_RATING,
+                Math.max(MIN_DEVIATION, Math.min(DEFAULT_DEVIATION, newPhi * SCALE)), newSigma);
+    }
+
+    private static double g(double phi) {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    private static double expectedScore(double mu, double muJ, double gJ) {
+        return 1 / (1 + Math.exp(-gJ * (mu - muJ)));
+    }
+
+    /**
+     * Solves for the new volatility with the Illinois variant of regula falsi (step 5 of the paper).
+     */
+    private static double newVolatility(double phi, double sigma, double v, double delta) {
+        double a = Math.log(sigma * sigma);
+        double deltaSquared = delta * delta;
+        double phiSquared = phi * phi;
+
+        double lower = a;
+        double upper;
+        if (deltaSquared > phiSquared + v) {
+            upper = Math.log(deltaSquared - phiSquared - v);
+        } else {
+            int k = 1;
+            while (f(a - k * TAU, a, deltaSquared, phiSquared, v) < 0) {
+                k++;
+            }
+            upper = a - k * TAU;
+        }
+
+        double fLower = f(lower, a, deltaSquared, phiSquared, v);
+        double fUpper = f(upper, a, deltaSquared, phiSquared, v);
+        while (Math.abs(upper - lower) > EPSILON) {
+            double c = lower + (lower - upper) * fLower / (fUpper - fLower);
+            double fC = f(c, a, deltaSquared, phiSquared, v);
+            if (fC * fUpper <= 0) {
+                lower = upper;
+                fLower = fUpper;
+            } else {
+                fLower = fLower / 2;
+            }
+            upper = c;
+            fUpper = fC;
+        }
+        return Math.exp(lower / 2);
+    }
+
+    private static double f(double x, double a, double deltaSquared, double phiSquared, double v) {
+        double ex = Math.exp(x);
+        double denominator = phiSquared + v + ex;
+        return ex * (deltaSquared - phiSquared - v - ex) / (2 * denominator * denominator) - (x - a) / (TAU * TAU);
+    }
+}
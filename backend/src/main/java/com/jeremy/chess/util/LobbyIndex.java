@@ -0,0 +1,249 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.Lobby;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lobbies ordered by creation, for browsing a page at a time. Every lobby gets a sequence
+ * number when it is added; the index keeps one concurrent skip list of all lobbies by that
+ * number and one per {@link Status}, so a page of, say, open lobbies starts with a seek to
+ * the cursor and then reads only the page. Names are indexed separately, lowercased, so a
+ * name prefix is answered by reading just the lobbies whose names match.
+ *
+ * <p>The index does not watch lobbies: the owner calls {@link #update(Lobby)} after a
+ * change that can move a lobby to another status, i.e. a seat being claimed or freed or
+ * the game ending. Pages are weakly consistent; a lobby changing status while a client
+ * pages through may be skipped or seen twice.
+ */
+public class LobbyIndex {
+
+    /**
+     * Where a lobby is in its life, as far as someone browsing for a game cares.
+     */
+    public enum Status {
+        /** A seat is free and the game is not over. */
+        OPEN,
+        /** Both seats are taken and the game is not over. */
+        IN_PROGRESS,
+        /** The game is over. */
+        FINISHED;
+
+        /**
+         * Parses a status, ignoring case.
+         *
+         * @param value "open", "in_progress" or "finished"
+         * @return The status
+         * @throws IllegalArgumentException If the value is not a status
+         */
+        public static Status parse(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+
+        static Status of(Lobby lobby) {
+            if (lobby.isGameOver()) {
+                return FINISHED;
+            }
+            return lobby.getWhitePlayerId() == null || lobby.getBlackPlayerId() == null ? OPEN : IN_PROGRESS;
+        }
+    }
+
+    /**
+     * One page of lobbies.
+     */
+    public static final class Page {
+        private final List<Lobby> lobbies;
+        private final String nextCursor;
+
+        private Page(List<Lobby> lobbies, String nextCursor) {
+            this.lobbies = lobbies;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Lobby> getLobbies() {
+            return lobbies;
+        }
+
+        /**
+         * Gets the cursor to pass for the following page.
+         *
+         * @return The cursor, or null if this is the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final String name;  // Lowercased
+        private final Lobby lobby;
+        private volatile Status status;  // Changed under the entry's lock; null once removed
+
+        private Entry(long sequence, Lobby lobby) {
+            this.sequence = sequence;
+            this.name = lobby.getName() != null ? lobby.getName().toLowerCase() : "";
+            this.lobby = lobby;
+        }
+
+        private Entry(long sequence, String name) {  // Search key for the name index
+            this.sequence = sequence;
+            this.name = name;
+            this.lobby = null;
+        }
+    }
+
+    private static final Comparator<Entry> NAME_ORDER =
+            Comparator.<Entry, String>comparing(entry -> entry.name).thenComparingLong(entry -> entry.sequence);
+
+    private final AtomicLong sequences = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Entry> all = new ConcurrentSkipListMap<>();
+    private final Map<Status, NavigableMap<Long, Entry>> byStatus = new EnumMap<>(Status.class);  // Filled once, then only read
+    private final NavigableSet<Entry> byName = new ConcurrentSkipListSet<>(NAME_ORDER);
+
+    public LobbyIndex() {
+        for (Status status : Status.values()) {
+            byStatus.put(status, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Adds a lobby after every lobby already indexed.
+     *
+     * @param lobby The lobby
+     */
+    public void add(Lobby lobby) {
+        Entry entry = new Entry(sequences.incrementAndGet(), lobby);
+        synchronized (entry) {
+            if (entries.putIfAbsent(lobby.getId(), entry) != null) {
+                return;
+            }
+            entry.status = Status.of(lobby);
+            all.put(entry.sequence, entry);
+            byStatus.get(entry.status).put(entry.sequence, entry);
+            byName.add(entry);
+        }
+    }
+
+    /**
+     * Moves a lobby to the status it has now. Cheap when the status did not change.
+     *
+     * @param lobby The lobby
+     */
+    public void update(Lobby lobby) {
+        Entry entry = entries.get(lobby.getId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            Status status = Status.of(lobby);
+            if (entry.status == null || entry.status == status) {
+                return;
+            }
+            byStatus.get(status).put(entry.sequence, entry);
+            byStatus.get(entry.status).remove(entry.sequence);
+            entry.status = status;
+        }
+    }
+
+    /**
+     * Removes a lobby.
+     *
+     * @param lobbyId The ID of the lobby
+     */
+    public void remove(String lobbyId) {
+        Entry entry = entries.remove(lobbyId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            all.remove(entry.sequence);
+            byStatus.get(entry.status).remove(entry.sequence);
+            byName.remove(entry);
+            entry.status = null;
+        }
+    }
+
+    /**
+     * Reads a page of lobbies. Without a name prefix the page costs a seek plus its own
+     * length; with one it costs the number of lobbies whose names match.
+     *
+     * @param status The status to keep, or null for any
+     * @param namePrefix The start of the names to keep, ignoring case, or null for any
+     * @param cursor The cursor from the previous page, or null for the first page
+     * @param limit The most lobbies to return
+     * @param newestFirst Whether to list the newest lobbies first rather than the oldest
+     * @return The page
+     * @throws IllegalArgumentException If the cursor is malformed
+     */
+    public Page find(Status status, String namePrefix, String cursor, int limit, boolean newestFirst) {
+        Long after = cursor != null ? decodeCursor(cursor) : null;
+        NavigableMap<Long, Entry> source = status != null ? byStatus.get(status) : all;
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            source = matchingNames(namePrefix.toLowerCase(), status);
+        }
+        if (after != null) {
+            source = newestFirst ? source.headMap(after, false) : source.tailMap(after, false);
+        }
+        if (newestFirst) {
+            source = source.descendingMap();
+        }
+
+        List<Lobby> lobbies = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Entry> iterator = source.values().iterator();
+        Entry last = null;
+        while (lobbies.size() < limit && iterator.hasNext()) {
+            last = iterator.next();
+            lobbies.add(last.lobby);
+        }
+        String next = iterator.hasNext() && last != null ? encodeCursor(last.sequence) : null;
+        return new Page(lobbies, next);
+    }
+
+    /**
+     * Gets the number of lobbies indexed.
+     *
+     * @return The lobby count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private NavigableMap<Long, Entry> matchingNames(String prefix, Status status) {
+        NavigableMap<Long, Entry> matches = new TreeMap<>();
+        for (Entry entry : byName.tailSet(new Entry(Long.MIN_VALUE, prefix), true)) {
+            if (!entry.name.startsWith(prefix)) {
+                break;
+            }
+            if (status == null || entry.status == status) {
+                matches.put(entry.sequence, entry);
+            }
+        }
+        return matches;
+    }
+
+    private static String encodeCursor(long sequence) {
+        return Long.toString(sequence, 36);
+    }
+
+    private static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor, 36);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -2,97 +2,404 @@ package com.jeremy.chess.util;
 
 import com.jeremy.chess.model.ChessMove;
 import com.jeremy.chess.model.Lobby;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Utility class for parsing natural language chess moves into ChessMove objects.
- * 
+ * Utility class for parsing typed chess moves into ChessMove objects. Understands
+ * Standard Algebraic Notation ("Nbd7", "exd8=Q+", "O-O"), UCI and long algebraic
+ * notation ("e7e8q", "e2-e4") and natural language ("Knight to c3").
+ *
+ * <p>Parsing makes a single pass over the characters with no regular expressions
+ * and no intermediate strings; the only allocation is the returned move.
+ *
  * @author Jeremy Kiley
  * @author ChatGPT
  */
 public class MoveParser {
-    private static final Map<String, String> PIECE_NAMES = new HashMap<>();
+    private static final String[] PIECE_NAMES = { "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING", "PAWN" };
+    private static final char[] PIECE_TYPES = { 'N', 'B', 'R', 'Q', 'K', 'P' };
+    private static final String[] SQUARES = new String[64];
+    private static final String[] PROMOTIONS = { "Q", "R", "B", "N" };
     static {
-        PIECE_NAMES.put("KNIGHT", "N");
-        PIECE_NAMES.put("BISHOP", "B");
-        PIECE_NAMES.put("ROOK", "R");
-        PIECE_NAMES.put("QUEEN", "Q");
-        PIECE_NAMES.put("KING", "K");
-        PIECE_NAMES.put("PAWN", "P");
+        for (int i = 0; i < 64; i++) {
+            SQUARES[i] = ChessUtils.indexToNotation(i);
+        }
     }
 
     /**
-     * Parses a natural language command into a ChessMove object.
-     * 
+     * Parses a natural language command into a ChessMove object. Any other
+     * notation understood by {@link #parse} is accepted as well.
+     *
      * @param command The natural language command (e.g., "Knight to c3")
      * @param isWhite Whether the move is for the white player
      * @param lobby The current game lobby containing the board state
      * @return A ChessMove object if the command is valid, null otherwise
      */
     public static ChessMove parseNaturalLanguage(String command, boolean isWhite, Lobby lobby) {
-        command = command.toUpperCase().trim();
-        
-        // Pattern for commands like "Knight to c3" or "Pawn to e4"
-        Pattern pattern = Pattern.compile("(KNIGHT|BISHOP|ROOK|QUEEN|KING|PAWN)\\s+TO\\s+([A-H][1-8])");
-        Matcher matcher = pattern.matcher(command);
-        
-        if (matcher.find()) {
-            String piece = matcher.group(1);
-            String targetSquare = matcher.group(2).toLowerCase();
-            
-            // Find the source square by looking for the specified piece
-            String sourceSquare = findSourceSquare(piece, targetSquare, isWhite, lobby);
-            if (sourceSquare != null) {
-                return new ChessMove(sourceSquare, targetSquare, null);
-            }
-        }
-        
-        return null;
+        return parse(command, isWhite, lobby.getBoardState());
     }
 
     /**
-     * Finds the source square for a piece given its target square.
-     * 
-     * @param pieceName The name of the piece (e.g., "KNIGHT")
-     * @param targetSquare The target square in chess notation
+     * Parses a move in any supported notation and resolves it against a board.
+     *
+     * @param text The move, e.g. "Nbd7", "e7e8q", "O-O" or "Knight to c3"
      * @param isWhite Whether the move is for the white player
-     * @param lobby The current game lobby containing the board state
-     * @return The source square in chess notation, or null if not found
+     * @param boardState The board before the move, a8 first
+     * @return A ChessMove object if the text is a move that one piece can make, null otherwise.
+     *         Castling is returned as the king's two-square move.
+     */
+    public static ChessMove parse(CharSequence text, boolean isWhite, List<String> boardState) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSuffix(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < 2) {
+            return null;
+        }
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0') {
+            return parseCastling(text, start, end, isWhite, boardState);
+        }
+        int piece = matchPieceName(text, start, end);
+        if (piece >= 0) {
+            return parseNaturalLanguage(text, start + PIECE_NAMES[piece].length(), end, PIECE_TYPES[piece], isWhite, boardState);
+        }
+        return parseAlgebraic(text, start, end, isWhite, boardState);
+    }
+
+    /**
+     * Parses SAN and UCI, which differ only in how much of the source square they give.
+     */
+    private static ChessMove parseAlgebraic(CharSequence text, int start, int end, boolean isWhite, List<String> boardState) {
+        char type = 'P';
+        int i = start;
+        char first = text.charAt(i);
+        if (first == 'N' || first == 'B' || first == 'R' || first == 'Q' || first == 'K') {
+            type = first;
+            i++;
+        }
+
+        // A trailing piece letter after a rank is a promotion: "e8=Q", "e8Q" or UCI "e7e8q"
+        int promotion = -1;
+        if (end - i >= 3 && isRank(text.charAt(end - 2)) || end - i >= 4 && text.charAt(end - 2) == '=') {
+            promotion = promotionIndex(text.charAt(end - 1));
+            if (promotion >= 0) {
+                end -= text.charAt(end - 2) == '=' ? 2 : 1;
+            }
+        }
+        // The target square always comes last
+        if (end - i < 2 || !isFile(text.charAt(end - 2)) || !isRank(text.charAt(end - 1))) {
+            return null;
+        }
+
+        int firstFile = -1;
+        int firstRank = -1;
+        int files = 0;
+        int ranks = 0;
+        for (; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (isFile(c) && files++ == 0) {
+                firstFile = c - 'a';
+            } else if (isRank(c) && ranks++ == 0) {
+                firstRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-' || files > 1 || ranks > 1) {
+                return null;
+            }
+        }
+        int target = toIndex(text.charAt(end - 2) - 'a', text.charAt(end - 1) - '1');
+        if (type == 'P' && files == 1 && ranks == 1) {
+            // UCI names the source square rather than the piece
+            String piece = boardState.get(toIndex(firstFile, firstRank));
+            if (piece.length() == 2) {
+                type = piece.charAt(1);
+            }
+        } else if (type == 'P' && firstFile < 0) {
+            firstFile = target % 8;  // Pawn pushes stay on their file
+        }
+        if (promotion >= 0 && type != 'P') {
+            return null;
+        }
+        return resolve(type, isWhite, target, firstFile, firstRank, promotion, true, boardState);
+    }
+
+    /**
+     * Parses the rest of "Knight to c3" after the piece name.
+     */
+    private static ChessMove parseNaturalLanguage(CharSequence text, int i, int end, char type,
+                                                  boolean isWhite, List<String> boardState) {
+        int afterSpace = skipSpaces(text, i, end);
+        if (afterSpace == i || afterSpace + 2 > end
+                || Character.toUpperCase(text.charAt(afterSpace)) != 'T'
+                || Character.toUpperCase(text.charAt(afterSpace + 1)) != 'O') {
+            return null;
+        }
+        int square = skipSpaces(text, afterSpace + 2, end);
+        if (square == afterSpace + 2 || square + 2 != end) {
+            return null;
+        }
+        char file = Character.toLowerCase(text.charAt(square));
+        char rank = text.charAt(square + 1);
+        if (!isFile(file) || !isRank(rank)) {
+            return null;
+        }
+        // Natural language cannot disambiguate, so the first piece that can move is used
+        return resolve(type, isWhite, toIndex(file - 'a', rank - '1'), -1, -1, -1, false, boardState);
+    }
+
+    private static ChessMove parseCastling(CharSequence text, int start, int end, boolean isWhite, List<String> boardState) {
+        char letter = text.charAt(start);
+        int length = end - start;
+        if (length != 3 && length != 5) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != ((i - start) % 2 == 0 ? letter : '-')) {
+                return null;
+            }
+        }
+        int king = isWhite ? 60 : 4;
+        if (!isPiece(boardState.get(king), isWhite ? 'w' : 'b', 'K')) {
+            return null;
+        }
+        return new ChessMove(SQUARES[king], SQUARES[length == 3 ? king + 2 : king - 2], null);
+    }
+
+    /**
+     * Finds the piece that makes a move.
+     *
+     * @param unique Whether more than one candidate makes the move ambiguous, as in SAN
+     * @return The move, or null if no piece (or, when unique is set, more than one) can make it
+     */
+    private static ChessMove resolve(char type, boolean isWhite, int target, int fromFile, int fromRank,
+                                     int promotion, boolean unique, List<String> boardState) {
+        char color = isWhite ? 'w' : 'b';
+        String captured = boardState.get(target);
+        if (!captured.isEmpty() && captured.charAt(0) == color) {
+            return null;
+        }
+        int source = -1;
+        int candidates = 0;
+        for (int from = 0; from < 64; from++) {
+            if (!isPiece(boardState.get(from), color, type)
+                    || (fromFile >= 0 && from % 8 != fromFile) || (fromRank >= 0 && 7 - from / 8 != fromRank)
+                    || !canReach(type, color, from, target, boardState)) {
+                continue;
+            }
+            if (candidates++ == 0) {
+                source = from;
+                continue;
+            }
+            // Only when several pieces fit does a pin decide between them
+            if (leavesKingAttacked(from, target, color, boardState)) {
+                candidates--;
+            } else if (leavesKingAttacked(source, target, color, boardState)) {
+                candidates--;
+                source = from;
+            } else if (unique) {
+                return null;
+            } else {
+                candidates--;
+            }
+        }
+        if (source < 0) {
+            return null;
+        }
+        return new ChessMove(SQUARES[source], SQUARES[target], promotion >= 0 ? PROMOTIONS[promotion] : null);
+    }
+
+    /**
+     * Checks if a piece could move from one square to another, ignoring checks.
+     * Matches {@link MoveValidator}, including its en passant rule.
+     */
+    private static boolean canReach(char type, char color, int from, int to, List<String> boardState) {
+        int fileDelta = to % 8 - from % 8;
+        int rankDelta = from / 8 - to / 8;  // Positive towards rank 8
+        int absFile = Math.abs(fileDelta);
+        int absRank = Math.abs(rankDelta);
+        switch (type) {
+            case 'P': {
+                int forward = color == 'w' ? 1 : -1;
+                boolean empty = boardState.get(to).isEmpty();
+                if (fileDelta == 0) {
+                    if (!empty) return false;
+                    if (rankDelta == forward) return true;
+                    int homeRank = color == 'w' ? 6 : 1;
+                    return rankDelta == 2 * forward && from / 8 == homeRank && boardState.get(from - 8 * forward).isEmpty();
+                }
+                if (absFile != 1 || rankDelta != forward) return false;
+                if (!empty) return true;
+                String passed = boardState.get(to + 8 * forward);
+                return passed.length() == 2 && passed.charAt(0) != color && passed.charAt(1) == 'P';
+            }
+            case 'N': return absFile * absRank == 2;
+            case 'K': return absFile <= 1 && absRank <= 1 && from != to;
+            case 'R': if (fileDelta != 0 && rankDelta != 0) return false; break;
+            case 'B': if (absFile != absRank) return false; break;
+            case 'Q': if (fileDelta != 0 && rankDelta != 0 && absFile != absRank) return false; break;
+            default: return false;
+        }
+        if (from == to) {
+            return false;
+        }
+        int step = -Integer.signum(rankDelta) * 8 + Integer.signum(fileDelta);
+        for (int square = from + step; square != to; square += step) {
+            if (!boardState.get(square).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if moving a piece would expose its own king, by looking along every line
+     * from the king as if the move had been made.
      */
-    private static String findSourceSquare(String pieceName, String targetSquare, boolean isWhite, Lobby lobby) {
-        ArrayList<String> boardState = lobby.getBoardState();
-        String pieceType = PIECE_NAMES.get(pieceName);
-        char pieceColor = isWhite ? 'w' : 'b';
-        String pieceString = pieceColor + pieceType;
-
-        // Find all pieces of the specified type and color
-        for (int i = 0; i < boardState.size(); i++) {
-            String piece = boardState.get(i);
-            if (piece.equals(pieceString)) {
-                String sourceSquare = ChessUtils.indexToNotation(i);
-                // Check if this piece can legally move to the target square
-                if (MoveValidator.isValidMove(pieceString, sourceSquare, targetSquare, boardState)) {
-                    return sourceSquare;
+    private static boolean leavesKingAttacked(int from, int to, char color, List<String> boardState) {
+        int king = -1;
+        for (int i = 0; i < 64; i++) {
+            if (isPiece(boardState.get(i), color, 'K')) {
+                king = i;
+                break;
+            }
+        }
+        if (king < 0) {
+            return false;
+        }
+        if (king == from) {
+            king = to;
+        }
+        char enemy = color == 'w' ? 'b' : 'w';
+        for (int fileStep = -1; fileStep <= 1; fileStep++) {
+            for (int rankStep = -1; rankStep <= 1; rankStep++) {
+                if (fileStep == 0 && rankStep == 0) {
+                    continue;
                 }
+                boolean diagonal = fileStep != 0 && rankStep != 0;
+                int file = king % 8 + fileStep;
+                int rank = king / 8 + rankStep;
+                for (; file >= 0 && file < 8 && rank >= 0 && rank < 8; file += fileStep, rank += rankStep) {
+                    int square = rank * 8 + file;
+                    if (square == to) {
+                        break;  // The moved piece blocks the line
+                    }
+                    String piece = square == from ? "" : boardState.get(square);
+                    if (piece.isEmpty()) {
+                        continue;
+                    }
+                    if (piece.charAt(0) == enemy) {
+                        char type = piece.charAt(1);
+                        if (type == 'Q' || type == (diagonal ? 'B' : 'R')) {
+                            return true;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        // Knights and pawns cannot be blocked, so a move only matters if it captures them
+        for (int square = 0; square < 64; square++) {
+            String piece = boardState.get(square);
+            if (square == to || piece.length() != 2 || piece.charAt(0) != enemy) {
+                continue;
+            }
+            int absFile = Math.abs(square % 8 - king % 8);
+            int rankDelta = king / 8 - square / 8;
+            if (piece.charAt(1) == 'N' && absFile * Math.abs(rankDelta) == 2) {
+                return true;
+            }
+            if (piece.charAt(1) == 'P' && absFile == 1 && rankDelta == (enemy == 'w' ? -1 : 1)) {
+                return true;
             }
         }
-        
-        return null;
+        return false;
     }
 
     /**
-     * Checks if a message is a natural language chess command.
-     * 
+     * Checks if a message is a natural language chess command, e.g. "Knight to c3".
+     *
      * @param message The message to check
      * @return true if the message is a natural language command, false otherwise
      */
     public static boolean isNaturalLanguageCommand(String message) {
-        String upperMessage = message.toUpperCase().trim();
-        return upperMessage.contains(" TO ") && 
-               PIECE_NAMES.keySet().stream().anyMatch(piece -> upperMessage.contains(piece));
+        int start = skipSpaces(message, 0, message.length());
+        int end = message.length();
+        while (end > start && Character.isWhitespace(message.charAt(end - 1))) {
+            end--;
+        }
+        int piece = matchPieceName(message, start, end);
+        if (piece < 0) {
+            return false;
+        }
+        int afterSpace = skipSpaces(message, start + PIECE_NAMES[piece].length(), end);
+        return afterSpace + 2 <= end
+                && Character.toUpperCase(message.charAt(afterSpace)) == 'T'
+                && Character.toUpperCase(message.charAt(afterSpace + 1)) == 'O';
+    }
+
+    /**
+     * Matches a piece name, case-insensitively, followed by whitespace.
+     *
+     * @return The index into PIECE_NAMES, or -1
+     */
+    private static int matchPieceName(CharSequence text, int start, int end) {
+        for (int piece = 0; piece < PIECE_NAMES.length; piece++) {
+            String name = PIECE_NAMES[piece];
+            int after = start + name.length();
+            if (after >= end || !Character.isWhitespace(text.charAt(after))) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && Character.toUpperCase(text.charAt(start + i)) == name.charAt(i)) {
+                i++;
+            }
+            if (i == name.length()) {
+                return piece;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end) {
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int promotionIndex(char c) {
+        switch (c) {
+            case 'Q': case 'q': return 0;
+            case 'R': case 'r': return 1;
+            case 'B': case 'b': return 2;
+            case 'N': case 'n': return 3;
+            default: return -1;
+        }
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?' || Character.isWhitespace(c);
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static boolean isPiece(String piece, char color, char type) {
+        return piece.length() == 2 && piece.charAt(0) == color && piece.charAt(1) == type;
+    }
+
+    /**
+     * Converts a file and rank (both 0-7, a1 = 0/0) to a board index (a8 = 0).
+     */
+    private static int toIndex(int file, int rank) {
+        return (7 - rank) * 8 + file;
     }
-} 
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.jeremy.chess.util;
 
+import com.jeremy.chess.model.ChessMove;
+
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Utility class for validating chess moves according to standard chess rules.
@@ -19,7 +22,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the move is valid, false otherwise
      */
-    public static boolean isValidMove(String piece, String from, String to, ArrayList<String> boardState) {
+    public static boolean isValidMove(String piece, String from, String to, List<String> boardState) {
         switch (piece.charAt(1)) {
             case 'P': return isValidPawnMove(piece, from, to, boardState);
             case 'R': return isValidRookMove(piece, from, to, boardState);
@@ -40,7 +43,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the pawn move is valid, false otherwise
      */
-    private static boolean isValidPawnMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidPawnMove(String piece, String from, String to, List<String> boardState) {
         int fromIndex = ChessUtils.notationToIndex(from);
         int toIndex = ChessUtils.notationToIndex(to);
         int direction = piece.charAt(0) == 'w' ? -1 : 1;
@@ -57,7 +60,7 @@ public class MoveValidator {
         }
 
         // Capture move
-        if (toIndex == fromIndex + 7 * direction || toIndex == fromIndex + 9 * direction) {
+        if ((toIndex == fromIndex + 7 * direction || toIndex == fromIndex + 9 * direction) && Math.abs(fromIndex % 8 - toIndex % 8) == 1) {
             // Regular capture
             if (!boardState.get(toIndex).isEmpty() && boardState.get(toIndex).charAt(0) != piece.charAt(0)) {
                 return true;
@@ -84,7 +87,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the rook move is valid, false otherwise
      */
-    private static boolean isValidRookMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidRookMove(String piece, String from, String to, List<String> boardState) {
         int fromIndex = ChessUtils.notationToIndex(from);
         int toIndex = ChessUtils.notationToIndex(to);
 
@@ -120,7 +123,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the knight move is valid, false otherwise
      */
-    private static boolean isValidKnightMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidKnightMove(String piece, String from, String to, List<String> boardState) {
         int fromIndex = ChessUtils.notationToIndex(from);
         int toIndex = ChessUtils.notationToIndex(to);
         int rowDiff = Math.abs(fromIndex / 8 - toIndex / 8);
@@ -138,7 +141,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the bishop move is valid, false otherwise
      */
-    private static boolean isValidBishopMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidBishopMove(String piece, String from, String to, List<String> boardState) {
         int fromIndex = ChessUtils.notationToIndex(from);
         int toIndex = ChessUtils.notationToIndex(to);
         int rowDiff = Math.abs(fromIndex / 8 - toIndex / 8);
@@ -166,7 +169,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the queen move is valid, false otherwise
      */
-    private static boolean isValidQueenMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidQueenMove(String piece, String from, String to, List<String> boardState) {
         return isValidRookMove(piece, from, to, boardState) || isValidBishopMove(piece, from, to, boardState);
     }
 
@@ -179,7 +182,7 @@ public class MoveValidator {
      * @param boardState The current state of the chess board
      * @return true if the king move is valid, false otherwise
      */
-    private static boolean isValidKingMove(String piece, String from, String to, ArrayList<String> boardState) {
+    private static boolean isValidKingMove(String piece, String from, String to, List<String> boardState) {
         int fromIndex = ChessUtils.notationToIndex(from);
         int toIndex = ChessUtils.notationToIndex(to);
         int rowDiff = Math.abs(fromIndex / 8 - toIndex / 8);
@@ -187,4 +190,59 @@ public class MoveValidator {
 
         return rowDiff <= 1 && colDiff <= 1;
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if a side's king is attacked on a given board.
+     * 
+     * @param isWhite Whether to check the white king
+     * @param board The board state to check
+     * @return true if the king is attacked, false otherwise (including when there is no king)
+     */
+    public static boolean isInCheck(boolean isWhite, List<String> board) {
+        int kingIndex = board.indexOf(isWhite ? "wK" : "bK");
+        if (kingIndex == -1) return false;
+
+        String kingSquare = ChessUtils.indexToNotation(kingIndex);
+        for (int i = 0; i < board.size(); i++) {
+            String piece = board.get(i);
+            if (!piece.isEmpty() && piece.charAt(0) == (isWhite ? 'b' : 'w')
+                    && isValidMove(piece, ChessUtils.indexToNotation(i), kingSquare, board)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the moves a side can make that do not leave its king attacked. Pawns reaching
+     * the last rank promote to a queen; castling and en passant are not included.
+     * 
+     * @param isWhite Whether to list white's moves
+     * @param board The board state
+     * @return The legal moves, empty if there are none
+     */
+    public static List<ChessMove> getLegalMoves(boolean isWhite, List<String> board) {
+        List<ChessMove> moves = new ArrayList<>();
+        char color = isWhite ? 'w' : 'b';
+        for (int from = 0; from < board.size(); from++) {
+            String piece = board.get(from);
+            if (piece.isEmpty() || piece.charAt(0) != color) continue;
+            String fromSquare = ChessUtils.indexToNotation(from);
+            for (int to = 0; to < board.size(); to++) {
+                String target = board.get(to);
+                if (to == from || (!target.isEmpty() && target.charAt(0) == color)) continue;
+                String toSquare = ChessUtils.indexToNotation(to);
+                if (!isValidMove(piece, fromSquare, toSquare, board)) continue;
+
+                ArrayList<String> after = new ArrayList<>(board);
+                after.set(to, piece);
+                after.set(from, "");
+                if (!isInCheck(isWhite, after)) {
+                    boolean promotes = piece.charAt(1) == 'P' && (to / 8 == 0 || to / 8 == 7);
+                    moves.add(new ChessMove(fromSquare, toSquare, promotes ? "Q" : null));
+                }
+            }
+        }
+        return moves;
+    }
+}
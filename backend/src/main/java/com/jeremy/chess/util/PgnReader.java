@@ -0,0 +1,269 @@
+package com.jeremy.chess.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming PGN reader. Games are read one at a time with a hand-written scanner,
+ * so a file of any size is processed in constant memory and without regular
+ * expressions. Comments, variations, NAGs and move numbers are skipped.
+ *
+ * <p>Moves per game, tags per game and the length of tokens and tag values are capped,
+ * so malformed input cannot grow one game without bound. A game over a cap is still
+ * read to its end but is returned with an {@linkplain Game#getError() error} and
+ * without the excess.
+ */
+public class PgnReader implements AutoCloseable {
+    public static final int MAX_MOVES = 2000;
+    public static final int MAX_TAGS = 64;
+    public static final int MAX_TOKEN_LENGTH = 64;
+    public static final int MAX_TAG_LENGTH = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private final StringBuilder token = new StringBuilder(32);
+    private String error;  // First cap exceeded by the game being read
+
+    /**
+     * One game: its tag pairs, its moves in SAN and its result.
+     */
+    public static final class Game {
+        private final Map<String, String> tags;
+        private final List<String> moves;
+        private final String result;
+        private final String error;
+
+        private Game(Map<String, String> tags, List<String> moves, String result, String error) {
+            this.tags = tags;
+            this.moves = moves;
+            this.result = result;
+            this.error = error;
+        }
+
+        public Map<String, String> getTags() {
+            return tags;
+        }
+
+        public List<String> getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the game termination marker.
+         *
+         * @return "1-0", "0-1", "1/2-1/2" or "*"
+         */
+        public String getResult() {
+            return result;
+        }
+
+        /**
+         * Gets why the game could not be read in full.
+         *
+         * @return The cap the game exceeded, or null if it was read in full
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Creates a reader. The reader is not buffered further, so pass an unbuffered one.
+     *
+     * @param reader The source of PGN text
+     */
+    public PgnReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return The game, or null at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    public Game next() throws IOException {
+        Map<String, String> tags = new HashMap<>();
+        List<String> moves = new ArrayList<>(96);
+        String result = null;
+        error = null;
+        int c;
+        while ((c = read()) != -1) {
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (c == '[') {
+                if (!moves.isEmpty()) {
+                    // A tag section without a termination marker starts the next game
+                    position--;
+                    break;
+                }
+                readTag(tags);
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';' || c == '%') {
+                skipUntil('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c);
+            } else {
+                String word = readToken(c);
+                if (isResult(word)) {
+                    result = word;
+                    break;
+                }
+                String move = stripMoveNumber(word);
+                if (move.isEmpty()) {
+                    continue;
+                }
+                if (moves.size() < MAX_MOVES) {
+                    moves.add(move);
+                } else {
+                    fail("More than " + MAX_MOVES + " moves");
+                }
+            }
+        }
+        if (tags.isEmpty() && moves.isEmpty() && result == null) {
+            return null;
+        }
+        if (result == null) {
+            result = tags.getOrDefault("Result", "*");
+        }
+        return new Game(tags, moves, result, error);
+    }
+
+    private void fail(String reason) {
+        if (error == null) {
+            error = reason;
+        }
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && c != '"' && c != ']') {
+            if (!isWhitespace(c)) {
+                append(name, c, MAX_TOKEN_LENGTH);
+            }
+        }
+        StringBuilder value = new StringBuilder();
+        if (c == '"') {
+            while ((c = read()) != -1 && c != '"') {
+                if (c == '\\' && (c = read()) == -1) {
+                    break;
+                }
+                append(value, c, MAX_TAG_LENGTH);
+            }
+            skipUntil(']');
+        }
+        if (tags.size() < MAX_TAGS || tags.containsKey(name.toString())) {
+            tags.put(name.toString(), value.toString());
+        } else {
+            fail("More than " + MAX_TAGS + " tags");
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) != -1) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            }
+        }
+    }
+
+    private void skipUntil(char end) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != end) {
+            // Skip
+        }
+    }
+
+    private String readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char) first);
+        int c;
+        while ((c = read()) != -1) {
+            if (isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '[') {
+                position--;
+                break;
+            }
+            append(token, c, MAX_TOKEN_LENGTH);
+        }
+        return token.toString();
+    }
+
+    /**
+     * Appends a character unless the text is already at its cap, in which case the game fails.
+     */
+    private void append(StringBuilder text, int c, int max) {
+        if (text.length() < max) {
+            text.append((char) c);
+        } else {
+            fail("Token or tag longer than " + max + " characters");
+        }
+    }
+
+    /**
+     * Removes a leading move number such as "12." or "12..." from a token.
+     */
+    private static String stripMoveNumber(String word) {
+        int i = 0;
+        while (i < word.length() && Character.isDigit(word.charAt(i))) {
+            i++;
+        }
+        if (i == 0) {
+            return word;
+        }
+        int dots = i;
+        while (dots < word.length() && word.charAt(dots) == '.') {
+            dots++;
+        }
+        return dots > i ? word.substring(dots) : word;
+    }
+
+    private static boolean isResult(String word) {
+        return word.equals("1-0") || word.equals("0-1") || word.equals("1/2-1/2") || word.equals("*");
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            // Keep the last character so a single unread is always possible
+            if (limit > 0) {
+                buffer[0] = buffer[limit - 1];
+                position = 1;
+            } else {
+                position = 0;
+            }
+            int read = reader.read(buffer, position, BUFFER_SIZE - position);
+            if (read <= 0) {
+                limit = position;
+                return -1;
+            }
+            limit = position + read;
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,283 @@
+package com.jeremy.chess.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only Polyglot opening book. The file is memory-mapped rather than read, so
+ * opening a book of any size is instant and costs no heap; a lookup is a binary
+ * search over the sorted 16-byte entries that touches only a few pages.
+ */
+public class PolyglotBook implements AutoCloseable {
+    private static final int ENTRY_SIZE = 16;
+    private static final int RANDOM_COUNT = 781;
+    private static final int CASTLE_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+    // Mappings are limited to 2 GB each, so larger books are split into segments
+    private static final long ENTRIES_PER_SEGMENT = (1L << 30) / ENTRY_SIZE;
+    private static final String PIECE_KINDS = "PNBRQK";
+    private static final String PROMOTIONS = " NBRQ";
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long entryCount;
+    private final long[] random64;
+
+    /**
+     * A book move for a position.
+     */
+    public static final class Entry {
+        private final String from;
+        private final String to;
+        private final String promotion;
+        private final int weight;
+        private final int learn;
+
+        private Entry(String from, String to, String promotion, int weight, int learn) {
+            this.from = from;
+            this.to = to;
+            this.promotion = promotion;
+            this.weight = weight;
+            this.learn = learn;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        /**
+         * Gets the promotion piece.
+         *
+         * @return "N", "B", "R" or "Q", or null if the move is not a promotion
+         */
+        public String getPromotion() {
+            return promotion;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getLearn() {
+            return learn;
+        }
+    }
+
+    private PolyglotBook(FileChannel channel, MappedByteBuffer[] segments, long entryCount, long[] random64) {
+        this.channel = channel;
+        this.segments = segments;
+        this.entryCount = entryCount;
+        this.random64 = random64;
+    }
+
+    /**
+     * Maps a book file.
+     *
+     * @param book The path of the .bin book
+     * @param random64 The Polyglot Random64 table: 781 big-endian 64-bit values, in the
+     *                 order of the reference implementation
+     * @return The opened book
+     * @throws IOException If either file cannot be read
+     * @throws IllegalArgumentException If either file has the wrong size
+     */
+    public static PolyglotBook open(Path book, InputStream random64) throws IOException {
+        long[] randoms = readRandom64(random64);
+        FileChannel channel = FileChannel.open(book, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ENTRY_SIZE != 0) {
+                throw new IllegalArgumentException("Not a Polyglot book: " + book);
+            }
+            long entryCount = size / ENTRY_SIZE;
+            int segmentCount = (int) ((entryCount + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = i * ENTRIES_PER_SEGMENT * ENTRY_SIZE;
+                long length = Math.min(ENTRIES_PER_SEGMENT * ENTRY_SIZE, size - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                segments[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new PolyglotBook(channel, segments, entryCount, randoms);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long[] readRandom64(InputStream in) throws IOException {
+        long[] randoms = new long[RANDOM_COUNT];
+        DataInputStream data = new DataInputStream(in);
+        for (int i = 0; i < RANDOM_COUNT; i++) {
+            randoms[i] = data.readLong();
+        }
+        if (data.read() != -1) {
+            throw new IllegalArgumentException("Random64 table must hold exactly " + RANDOM_COUNT + " values");
+        }
+        return randoms;
+    }
+
+    /**
+     * Builds the castling rights argument of {@link #key}.
+     *
+     * @return The rights as bits in Polyglot order: white kingside, white queenside,
+     *         black kingside, black queenside
+     */
+    public static int castlingRights(boolean whiteKingside, boolean whiteQueenside,
+                                     boolean blackKingside, boolean blackQueenside) {
+        return (whiteKingside ? 1 : 0) | (whiteQueenside ? 2 : 0) | (blackKingside ? 4 : 0) | (blackQueenside ? 8 : 0);
+    }
+
+    /**
+     * Computes the Polyglot key of a position. As the format requires, the en passant
+     * file counts only when a pawn of the side to move stands beside the pawn that
+     * just advanced two squares, i.e. when the capture is possible.
+     *
+     * @param boardState The board, a8 first, with pieces such as "wP" and "" for empty squares
+     * @param whiteToMove Whether it is white's turn
+     * @param castlingRights The rights from {@link #castlingRights(boolean, boolean, boolean, boolean)}
+     * @param enPassantFile The file, 0 for a to 7 for h, of a pawn that just advanced two squares, or -1 for none
+     * @return The 64-bit position key
+     */
+    public long key(List<String> boardState, boolean whiteToMove, int castlingRights, int enPassantFile) {
+        long key = 0;
+        for (int index = 0; index < 64; index++) {
+            String piece = boardState.get(index);
+            if (piece == null || piece.length() < 2) {
+                continue;
+            }
+            int kind = PIECE_KINDS.indexOf(piece.charAt(1)) * 2 + (piece.charAt(0) == 'w' ? 1 : 0);
+            int row = 7 - index / 8;
+            int file = index % 8;
+            key ^= random64[64 * kind + 8 * row + file];
+        }
+        for (int right = 0; right < 4; right++) {
+            if ((castlingRights & 1 << right) != 0) {
+                key ^= random64[CASTLE_OFFSET + right];
+            }
+        }
+        if (enPassantFile >= 0 && canCaptureEnPassant(boardState, whiteToMove, enPassantFile)) {
+            key ^= random64[EN_PASSANT_OFFSET + enPassantFile];
+        }
+        if (whiteToMove) {
+            key ^= random64[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    private static boolean canCaptureEnPassant(List<String> boardState, boolean whiteToMove, int file) {
+        // The pushed pawn stands on the fifth rank from the capturing side, a5-h5 for white
+        int rowStart = whiteToMove ? 24 : 32;
+        String pawn = whiteToMove ? "wP" : "bP";
+        return (file > 0 && pawn.equals(boardState.get(rowStart + file - 1)))
+                || (file < 7 && pawn.equals(boardState.get(rowStart + file + 1)));
+    }
+
+    /**
+     * Finds every book move for a position, with castling given as the king's own move.
+     *
+     * @param boardState The board, a8 first
+     * @param whiteToMove Whether it is white's turn
+     * @param castlingRights The rights from {@link #castlingRights(boolean, boolean, boolean, boolean)}
+     * @param enPassantFile The file of a pawn that just advanced two squares, or -1 for none
+     * @return The moves in book order, empty if the position is not in the book
+     */
+    public List<Entry> find(List<String> boardState, boolean whiteToMove, int castlingRights, int enPassantFile) {
+        List<Entry> entries = find(key(boardState, whiteToMove, castlingRights, enPassantFile));
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            // Polyglot encodes castling as the king capturing its own rook
+            String piece = boardState.get(ChessUtils.notationToIndex(entry.from));
+            boolean castling = piece.length() == 2 && piece.charAt(1) == 'K' && entry.from.charAt(0) == 'e'
+                    && (entry.to.charAt(0) == 'a' || entry.to.charAt(0) == 'h') && entry.to.charAt(1) == entry.from.charAt(1);
+            if (castling) {
+                String to = (entry.to.charAt(0) == 'h' ? "g" : "c") + entry.to.charAt(1);
+                entries.set(i, new Entry(entry.from, to, null, entry.weight, entry.learn));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Finds every book move for a position, as stored in the book.
+     *
+     * @param key The Polyglot key of the position
+     * @return The moves in book order, empty if the position is not in the book
+     */
+    public List<Entry> find(long key) {
+        // Lower bound: first entry whose key is not below the target, comparing unsigned
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (long i = low; i < entryCount && keyAt(i) == key; i++) {
+            entries.add(entryAt(i));
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of entries in the book.
+     *
+     * @return The entry count
+     */
+    public long size() {
+        return entryCount;
+    }
+
+    private long keyAt(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    private Entry entryAt(long index) {
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+        int move = Short.toUnsignedInt(segment.getShort(offset + 8));
+        int weight = Short.toUnsignedInt(segment.getShort(offset + 10));
+        int learn = segment.getInt(offset + 12);
+
+        int toFile = move & 7;
+        int toRow = (move >> 3) & 7;
+        int fromFile = (move >> 6) & 7;
+        int fromRow = (move >> 9) & 7;
+        int promotion = (move >> 12) & 7;
+        return new Entry(square(fromFile, fromRow), square(toFile, toRow),
+                promotion == 0 ? null : String.valueOf(PROMOTIONS.charAt(promotion)), weight, learn);
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / ENTRIES_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % ENTRIES_PER_SEGMENT) * ENTRY_SIZE;
+    }
+
+    private static String square(int file, int row) {
+        return String.valueOf((char) ('a' + file)) + (row + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,420 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.Board;
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.StoredGame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only puzzle set in a memory-mapped file of fixed-size records sorted by rating.
+ * Finding the puzzles near a rating is a binary search that touches a few pages, and
+ * reading a puzzle decodes one record without loading anything else.
+ *
+ * <p>Each 64-byte record holds the rating (2 bytes), flags (1), solution length (1),
+ * the puzzle ID in ASCII (8), the position with a nibble per square, a8 first (32),
+ * and up to {@value #MAX_SOLUTION_PLIES} solution moves packed as in {@link StoredGame}.
+ * Solutions alternate between the solver and the opponent, starting with the solver.
+ *
+ * <p>Build the file from the Lichess puzzle CSV with {@code ./gradlew buildPuzzles}.
+ */
+public class PuzzleDatabase implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PuzzleDatabase.class);
+
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_SOLUTION_PLIES = 10;
+    public static final int MAX_RATING = 4000;
+
+    private static final int RATING = 0;
+    private static final int FLAGS = 2;
+    private static final int LENGTH = 3;
+    private static final int ID = 4;
+    private static final int ID_LENGTH = 8;
+    private static final int SQUARES = 12;
+    private static final int MOVES = 44;
+    private static final int WHITE_TO_MOVE = 1;
+    // Same order as the codes Board uses, so empty is 0
+    private static final String[] PIECES = {
+            "", "wP", "wN", "wB", "wR", "wQ", "wK", "bP", "bN", "bB", "bR", "bQ", "bK"
+    };
+    // Mappings are limited to 2 GB each, so larger files are split into segments
+    private static final long RECORDS_PER_SEGMENT = (1L << 30) / RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long recordCount;
+
+    /**
+     * What a solver is shown of a puzzle: everything but the solution.
+     */
+    public static final class Puzzle {
+        private final String id;
+        private final int rating;
+        private final String fen;
+        private final boolean whiteToMove;
+        private final int solutionPlies;
+
+        private Puzzle(String id, int rating, String fen, boolean whiteToMove, int solutionPlies) {
+            this.id = id;
+            this.rating = rating;
+            this.fen = fen;
+            this.whiteToMove = whiteToMove;
+            this.solutionPlies = solutionPlies;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        public boolean isWhiteToMove() {
+            return whiteToMove;
+        }
+
+        public int getSolutionPlies() {
+            return solutionPlies;
+        }
+    }
+
+    private PuzzleDatabase(FileChannel channel, MappedByteBuffer[] segments, long recordCount) {
+        this.channel = channel;
+        this.segments = segments;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Maps a puzzle file.
+     *
+     * @param file The file written by {@link #build}
+     * @return The opened database
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file is not a whole number of records
+     */
+    public static PuzzleDatabase open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0) {
+                throw new IllegalArgumentException("Not a puzzle file: " + file);
+            }
+            long recordCount = size / RECORD_SIZE;
+            int segmentCount = (int) ((recordCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = i * RECORDS_PER_SEGMENT * RECORD_SIZE;
+                long length = Math.min(RECORDS_PER_SEGMENT * RECORD_SIZE, size - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                segments[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new PuzzleDatabase(channel, segments, recordCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of puzzles.
+     *
+     * @return The puzzle count
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * Finds the first puzzle rated at least a given rating.
+     *
+     * @param rating The rating
+     * @return The puzzle's index, or {@link #size()} if every puzzle is rated lower
+     */
+    public long lowerBound(int rating) {
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getRating(mid) < rating) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int getRating(long index) {
+        return Short.toUnsignedInt(segment(index).getShort(offset(index) + RATING));
+    }
+
+    public boolean isWhiteToMove(long index) {
+        return (segment(index).get(offset(index) + FLAGS) & WHITE_TO_MOVE) != 0;
+    }
+
+    public int getSolutionPlies(long index) {
+        return segment(index).get(offset(index) + LENGTH);
+    }
+
+    /**
+     * Gets one move of a puzzle's solution.
+     *
+     * @param index The puzzle's index
+     * @param ply The solution ply, from 0
+     * @return The move, packed as in {@link StoredGame#encode}
+     */
+    public short getSolutionMove(long index, int ply) {
+        return segment(index).getShort(offset(index) + MOVES + 2 * ply);
+    }
+
+    /**
+     * Sets a board to a puzzle's starting position.
+     *
+     * @param index The puzzle's index
+     * @param board The board to overwrite
+     */
+    public void readBoard(long index, Board board) {
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index) + SQUARES;
+        for (int i = 0; i < Board.SIZE; i += 2) {
+            int pair = segment.get(offset + i / 2);
+            board.set(i, PIECES[pair >> 4 & 15]);
+            board.set(i + 1, PIECES[pair & 15]);
+        }
+    }
+
+    /**
+     * Gets what a solver is shown of a puzzle.
+     *
+     * @param index The puzzle's index
+     * @return The puzzle without its solution
+     */
+    public Puzzle getPuzzle(long index) {
+        byte[] id = new byte[ID_LENGTH];
+        segment(index).get(offset(index) + ID, id);
+        int length = 0;
+        while (length < ID_LENGTH && id[length] != 0) {
+            length++;
+        }
+        Board board = new Board(Board.START);
+        readBoard(index, board);
+        boolean whiteToMove = isWhiteToMove(index);
+        return new Puzzle(new String(id, 0, length, StandardCharsets.US_ASCII), getRating(index),
+                Fen.format(board, whiteToMove), whiteToMove, getSolutionPlies(index));
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Checks a move with the rules of {@link MoveValidator}: the piece must belong to the
+     * side to move, the move must be valid for it and it must not leave its king attacked.
+     *
+     * @param boardState The board, a8 first
+     * @param whiteToMove Whether it is white's turn
+     * @param move The move
+     * @return true if the move is legal
+     */
+    public static boolean isLegal(List<String> boardState, boolean whiteToMove, ChessMove move) {
+        int from = ChessUtils.notationToIndex(move.getFrom());
+        int to = ChessUtils.notationToIndex(move.getTo());
+        String piece = boardState.get(from);
+        String target = boardState.get(to);
+        char color = whiteToMove ? 'w' : 'b';
+        if (piece.isEmpty() || piece.charAt(0) != color || (!target.isEmpty() && target.charAt(0) == color)
+                || !MoveValidator.isValidMove(piece, move.getFrom(), move.getTo(), boardState)) {
+            return false;
+        }
+        Board after = new Board(boardState);
+        ChessUtils.applyMove(after, move);
+        return !MoveValidator.isInCheck(whiteToMove, after);
+    }
+
+    /**
+     * Converts the Lichess puzzle CSV (PuzzleId,FEN,Moves,Rating,...) to a puzzle file.
+     * In that format the FEN is the position before the opponent's move that sets up the
+     * puzzle, so the first move is played and the rest becomes the solution. Puzzles
+     * whose moves the server's rules reject or whose solution is too long are skipped.
+     * Records are counted by rating on the way in and then placed in rating order, so
+     * memory use does not grow with the number of puzzles.
+     *
+     * @param csv The CSV file, optionally with its header row
+     * @param out The puzzle file to write
+     * @return The number of puzzles written
+     * @throws IOException If a file cannot be read or written
+     */
+    public static long build(Path csv, Path out) throws IOException {
+        Path unsorted = out.resolveSibling(out.getFileName() + ".tmp");
+        long[] counts = new long[MAX_RATING + 1];
+        long written = 0;
+        long skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             OutputStream records = new BufferedOutputStream(Files.newOutputStream(unsorted), 1 << 16)) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("PuzzleId")) {
+                    continue;
+                }
+                int rating = encode(line, record);
+                if (rating < 0) {
+                    skipped++;
+                    continue;
+                }
+                records.write(record.array());
+                counts[rating]++;
+                written++;
+            }
+        }
+
+        // Counting sort: each record goes straight to the first free slot for its rating
+        long[] next = new long[MAX_RATING + 1];
+        for (int rating = 1; rating <= MAX_RATING; rating++) {
+            next[rating] = next[rating - 1] + counts[rating - 1];
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(unsorted), 1 << 16);
+             FileChannel target = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataInputStream records = new DataInputStream(in);
+            byte[] record = new byte[RECORD_SIZE];
+            for (long i = 0; i < written; i++) {
+                records.readFully(record);
+                int rating = (record[RATING] & 0xff) << 8 | record[RATING + 1] & 0xff;
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                long position = next[rating]++ * RECORD_SIZE;
+                while (buffer.hasRemaining()) {
+                    position += target.write(buffer, position);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(unsorted);
+        }
+        logger.info("Wrote {} puzzles to {}, skipped {}", written, out, skipped);
+        return written;
+    }
+
+    /**
+     * Encodes one CSV line into a record.
+     *
+     * @return The puzzle's rating, or -1 if the line was skipped
+     */
+    private static int encode(String line, ByteBuffer record) {
+        String[] fields = line.split(",", 5);
+        if (fields.length < 4) {
+            return -1;
+        }
+        try {
+            String id = fields[0];
+            int rating = Math.max(0, Math.min(MAX_RATING, Integer.parseInt(fields[3].trim())));
+            Board board = new Board(Fen.parseBoard(fields[1]));
+            boolean whiteToMove = Fen.parseWhiteToMove(fields[1]);
+            String[] moves = fields[2].trim().split(" ");
+            if (id.length() > ID_LENGTH || moves.length < 2 || moves.length - 1 > MAX_SOLUTION_PLIES) {
+                return -1;
+            }
+
+            // Play the setup move, then check the solution against the server's rules
+            List<ChessMove> plies = new ArrayList<>(moves.length);
+            for (String uci : moves) {
+                plies.add(parseUci(uci));
+            }
+            Board position = null;
+            boolean turn = whiteToMove;
+            for (int ply = 0; ply < plies.size(); ply++) {
+                if (!isLegal(board, turn, plies.get(ply))) {
+                    return -1;
+                }
+                ChessUtils.applyMove(board, plies.get(ply));
+                turn = !turn;
+                if (ply == 0) {
+                    position = new Board(board);
+                }
+            }
+
+            record.clear();
+            record.putShort((short) rating);
+            boolean solverIsWhite = !whiteToMove;
+            record.put((byte) (solverIsWhite ? WHITE_TO_MOVE : 0));
+            record.put((byte) (plies.size() - 1));
+            byte[] idBytes = id.getBytes(StandardCharsets.US_ASCII);
+            record.put(idBytes).put(new byte[ID_LENGTH - idBytes.length]);
+            for (int i = 0; i < Board.SIZE; i += 2) {
+                record.put((byte) (code(position.get(i)) << 4 | code(position.get(i + 1))));
+            }
+            for (int ply = 1; ply < plies.size(); ply++) {
+                record.putShort(StoredGame.encode(plies.get(ply)));
+            }
+            return rating;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static ChessMove parseUci(String uci) {
+        if (uci.length() < 4 || uci.length() > 5) {
+            throw new IllegalArgumentException("Invalid UCI move: " + uci);
+        }
+        return new ChessMove(uci.substring(0, 2), uci.substring(2, 4),
+                uci.length() == 5 ? String.valueOf(Character.toUpperCase(uci.charAt(4))) : null);
+    }
+
+    private static int code(String piece) {
+        for (int i = 0; i < PIECES.length; i++) {
+            if (PIECES[i].equals(piece)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown piece: " + piece);
+    }
+
+    /**
+     * Builds a puzzle file from the command line.
+     *
+     * @param args The CSV path and, optionally, the output path
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PuzzleDatabase <lichess_db_puzzle.csv> [puzzles.bin]");
+            System.exit(1);
+        }
+        Path out = Paths.get(args.length > 1 ? args[1] : "./data/puzzles.bin");
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        build(Paths.get(args[0]), out);
+    }
+}
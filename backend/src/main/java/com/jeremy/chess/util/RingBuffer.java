@@ -0,0 +1,83 @@
+package com.jeremy.chess.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity buffer that keeps the most recent items, overwriting the oldest
+ * once full. Memory is allocated once, up front.
+ *
+ * @param <T> The item type
+ */
+public class RingBuffer<T> {
+    private final Object[] items;
+    private int next = 0;
+    private long added = 0;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity The number of items kept
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.items = new Object[capacity];
+    }
+
+    /**
+     * Adds an item, evicting the oldest if the buffer is full.
+     *
+     * @param item The item
+     * @return The number of items added before this one, i.e. this item's sequence number
+     */
+    public synchronized long add(T item) {
+        items[next] = item;
+        next = next + 1 == items.length ? 0 : next + 1;
+        return added++;
+    }
+
+    /**
+     * Copies the buffered items, oldest first.
+     *
+     * @return The items
+     */
+    public List<T> toList() {
+        return since(0);
+    }
+
+    /**
+     * Copies the buffered items with a sequence number of at least the given one, oldest first.
+     *
+     * @param sequence The first sequence number wanted
+     * @return The items still buffered from that sequence number on
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> since(long sequence) {
+        long first = Math.max(sequence, added - Math.min(added, items.length));
+        List<T> copy = new ArrayList<>((int) Math.max(0, added - first));
+        for (long i = first; i < added; i++) {
+            copy.add((T) items[(int) (i % items.length)]);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the total number of items ever added.
+     *
+     * @return The next sequence number
+     */
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return The number of items kept
+     */
+    public int capacity() {
+        return items.length;
+    }
+}
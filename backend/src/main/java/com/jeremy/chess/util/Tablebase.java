@@ -0,0 +1,426 @@
+package com.jeremy.chess.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endgame tablebases for pawnless positions with up to four pieces, as written by
+ * {@link TablebaseGenerator}. Each material signature, e.g. "KQKR", has a bit-packed
+ * win/draw/loss file with two bits per position and a distance-to-mate file with one
+ * byte per position. Both are memory-mapped and addressed by a position index.
+ *
+ * <p>The index places the white king in the a1-d1-d4 triangle using the board's
+ * eight symmetries, so a table holds 10 * 64^(n-1) * 2 entries. Squares here
+ * run from a1 = 0 to h8 = 63, unlike lobby boards, which start at a8.
+ */
+public class Tablebase {
+    public static final int MAX_PIECES = 4;
+
+    // Position states, shared by the generator and the .dtm files
+    static final int DRAW = 0;        // Also "not resolved yet" during generation
+    static final int ILLEGAL = 1;     // Illegal, or a duplicate of a canonical index
+    static final int RESOLVED = 2;    // RESOLVED + plies; the side to move wins if plies is odd
+    static final int MAX_PLIES = 253;
+
+    // WDL file values, two bits each
+    static final int WDL_DRAW = 0;
+    static final int WDL_WIN = 1;
+    static final int WDL_LOSS = 2;
+    static final int WDL_ILLEGAL = 3;
+
+    private static final String PIECE_ORDER = "QRBN";
+    private static final int[][] TRANSFORMS = new int[8][64];
+    private static final int[] KING_TRANSFORM = new int[64];
+    private static final int[] TRIANGLE_SLOT = new int[64];
+    static final int[] TRIANGLE_SQUARES = { 0, 1, 2, 3, 9, 10, 11, 18, 19, 27 };
+    private static final int TRANSPOSE = 4;
+
+    static {
+        for (int t = 0; t < 8; t++) {
+            for (int square = 0; square < 64; square++) {
+                int file = square & 7;
+                int rank = square >> 3;
+                if ((t & 1) != 0) file = 7 - file;
+                if ((t & 2) != 0) rank = 7 - rank;
+                TRANSFORMS[t][square] = (t & TRANSPOSE) != 0 ? file * 8 + rank : rank * 8 + file;
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >> 3;
+            int t = 0;
+            if (file > 3) { t |= 1; file = 7 - file; }
+            if (rank > 3) { t |= 2; rank = 7 - rank; }
+            if (rank > file) t |= TRANSPOSE;
+            KING_TRANSFORM[square] = t;
+            TRIANGLE_SLOT[square] = -1;
+        }
+        for (int slot = 0; slot < TRIANGLE_SQUARES.length; slot++) {
+            TRIANGLE_SLOT[TRIANGLE_SQUARES[slot]] = slot;
+        }
+    }
+
+    /**
+     * The piece order of one material signature: white king, black king, then the
+     * other white pieces and the other black pieces, strongest first.
+     */
+    static final class Layout {
+        final String material;
+        final char[] types;
+        final boolean[] white;
+        final int count;
+        final int size;
+
+        private Layout(String material) {
+            int split = material.indexOf('K', 1);
+            if (!material.startsWith("K") || split < 0) {
+                throw new IllegalArgumentException("Invalid material: " + material);
+            }
+            String whitePieces = material.substring(1, split);
+            String blackPieces = material.substring(split + 1);
+            this.material = material;
+            this.count = 2 + whitePieces.length() + blackPieces.length();
+            if (count > MAX_PIECES) {
+                throw new IllegalArgumentException("Too many pieces: " + material);
+            }
+            this.types = new char[count];
+            this.white = new boolean[count];
+            types[0] = 'K';
+            white[0] = true;
+            types[1] = 'K';
+            int i = 2;
+            for (char type : whitePieces.toCharArray()) {
+                types[i] = type;
+                white[i++] = true;
+            }
+            for (char type : blackPieces.toCharArray()) {
+                types[i++] = type;
+            }
+            int size = TRIANGLE_SQUARES.length;
+            for (int j = 1; j < count; j++) {
+                size *= 64;
+            }
+            this.size = size * 2;
+        }
+    }
+
+    private static final Map<String, Layout> LAYOUTS = new HashMap<>();
+
+    static synchronized Layout layout(String material) {
+        return LAYOUTS.computeIfAbsent(material, Layout::new);
+    }
+
+    /**
+     * Sorts one side's pieces strongest first.
+     */
+    static String sortPieces(String pieces) {
+        char[] chars = pieces.toCharArray();
+        java.util.Arrays.sort(chars);
+        StringBuilder sorted = new StringBuilder();
+        for (char type : PIECE_ORDER.toCharArray()) {
+            for (char c : chars) {
+                if (c == type) sorted.append(c);
+            }
+        }
+        return sorted.toString();
+    }
+
+    /**
+     * Checks whether the white side of a signature is at least as strong as the black
+     * side, which is how signatures are stored. Otherwise the colors must be swapped.
+     */
+    static boolean isCanonical(String whitePieces, String blackPieces) {
+        if (whitePieces.length() != blackPieces.length()) {
+            return whitePieces.length() > blackPieces.length();
+        }
+        for (int i = 0; i < whitePieces.length(); i++) {
+            int white = PIECE_ORDER.indexOf(whitePieces.charAt(i));
+            int black = PIECE_ORDER.indexOf(blackPieces.charAt(i));
+            if (white != black) {
+                return white < black;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the canonical index of a position. Of the symmetric images that put the
+     * white king in the triangle, the one with the smallest index is used, and pieces
+     * of the same kind are ordered by square, so every position has exactly one index.
+     *
+     * @param layout The material signature
+     * @param squares The square of each piece, in layout order
+     * @param whiteToMove Whether it is white's turn
+     * @param scratch A work array of at least {@link #MAX_PIECES} entries
+     * @return The index
+     */
+    static int index(Layout layout, int[] squares, boolean whiteToMove, int[] scratch) {
+        int t = KING_TRANSFORM[squares[0]];
+        int index = encode(layout, squares, t, whiteToMove, scratch);
+        int king = TRANSFORMS[t][squares[0]];
+        if ((king & 7) == (king >> 3)) {
+            // On the diagonal the transposed image is in the triangle too
+            index = Math.min(index, encode(layout, squares, t ^ TRANSPOSE, whiteToMove, scratch));
+        }
+        return index;
+    }
+
+    private static int encode(Layout layout, int[] squares, int t, boolean whiteToMove, int[] scratch) {
+        int count = layout.count;
+        for (int i = 0; i < count; i++) {
+            scratch[i] = TRANSFORMS[t][squares[i]];
+        }
+        for (int i = 2; i + 1 < count; i++) {
+            if (layout.types[i] == layout.types[i + 1] && layout.white[i] == layout.white[i + 1] && scratch[i] > scratch[i + 1]) {
+                int swap = scratch[i];
+                scratch[i] = scratch[i + 1];
+                scratch[i + 1] = swap;
+            }
+        }
+        int index = TRIANGLE_SLOT[scratch[0]];
+        for (int i = 1; i < count; i++) {
+            index = index * 64 + scratch[i];
+        }
+        return index * 2 + (whiteToMove ? 0 : 1);
+    }
+
+    /**
+     * Decodes an index into squares, without undoing any symmetry.
+     *
+     * @return Whether white is to move
+     */
+    static boolean decode(Layout layout, int index, int[] squares) {
+        boolean whiteToMove = (index & 1) == 0;
+        index >>= 1;
+        for (int i = layout.count - 1; i >= 1; i--) {
+            squares[i] = index & 63;
+            index >>= 6;
+        }
+        squares[0] = TRIANGLE_SQUARES[index];
+        return whiteToMove;
+    }
+
+    /**
+     * Checks whether the piece at {@code from} attacks {@code to}, given the other pieces as blockers.
+     *
+     * @param skip A piece to ignore as a blocker, e.g. one being captured, or -1
+     */
+    static boolean attacks(char type, int from, int to, int[] squares, int count, int skip) {
+        if (from == to) {
+            return false;
+        }
+        int fileDelta = (to & 7) - (from & 7);
+        int rankDelta = (to >> 3) - (from >> 3);
+        int absFile = Math.abs(fileDelta);
+        int absRank = Math.abs(rankDelta);
+        switch (type) {
+            case 'K': return absFile <= 1 && absRank <= 1;
+            case 'N': return absFile * absRank == 2;
+            case 'R': if (fileDelta != 0 && rankDelta != 0) return false; break;
+            case 'B': if (absFile != absRank) return false; break;
+            case 'Q': if (fileDelta != 0 && rankDelta != 0 && absFile != absRank) return false; break;
+            default: return false;
+        }
+        int step = Integer.signum(rankDelta) * 8 + Integer.signum(fileDelta);
+        for (int square = from + step; square != to; square += step) {
+            if (occupant(squares, count, square, skip) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the piece on a square.
+     *
+     * @return The piece's layout position, or -1 if the square is empty
+     */
+    static int occupant(int[] squares, int count, int square, int skip) {
+        for (int i = 0; i < count; i++) {
+            if (i != skip && squares[i] == square) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a side's king is attacked.
+     *
+     * @param skip A captured piece to ignore, or -1
+     */
+    static boolean inCheck(Layout layout, int[] squares, boolean white, int skip) {
+        int king = squares[white ? 0 : 1];
+        for (int i = 0; i < layout.count; i++) {
+            if (i != skip && layout.white[i] != white && attacks(layout.types[i], squares[i], king, squares, layout.count, skip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Result of a probe.
+     */
+    public static final class Result {
+        private final int wdl;
+        private final Integer distanceToMate;
+
+        Result(int wdl, Integer distanceToMate) {
+            this.wdl = wdl;
+            this.distanceToMate = distanceToMate;
+        }
+
+        /**
+         * Gets the outcome with best play.
+         *
+         * @return 1 if the side to move wins, -1 if it loses, 0 for a draw
+         */
+        public int getWdl() {
+            return wdl;
+        }
+
+        /**
+         * Gets the number of plies to mate with best play.
+         *
+         * @return The distance in plies, or null for a draw or when no distance file exists
+         */
+        public Integer getDistanceToMate() {
+            return distanceToMate;
+        }
+    }
+
+    private final Map<String, MappedByteBuffer> wdlFiles = new HashMap<>();
+    private final Map<String, MappedByteBuffer> dtmFiles = new HashMap<>();
+
+    private Tablebase() {
+    }
+
+    /**
+     * Maps every table in a directory.
+     *
+     * @param directory The directory holding .wdl and .dtm files
+     * @return The tablebase, possibly with no tables
+     * @throws IOException If a file cannot be mapped
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Tablebase tablebase = new Tablebase();
+        if (!Files.isDirectory(directory)) {
+            return tablebase;
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                if (dot < 0) {
+                    continue;
+                }
+                String material = name.substring(0, dot);
+                String extension = name.substring(dot + 1);
+                if (extension.equals("wdl")) {
+                    tablebase.wdlFiles.put(material, map(file));
+                } else if (extension.equals("dtm")) {
+                    tablebase.dtmFiles.put(material, map(file));
+                }
+            }
+        }
+        return tablebase;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Gets the number of mapped material signatures.
+     *
+     * @return The table count
+     */
+    public int size() {
+        return wdlFiles.size();
+    }
+
+    /**
+     * Looks up a lobby position.
+     *
+     * @param boardState The board, a8 first, with pieces such as "wQ" and "" for empty squares
+     * @param whiteToMove Whether it is white's turn
+     * @return The result, or null if the position has pawns, too many pieces, or no table
+     */
+    public Result probe(List<String> boardState, boolean whiteToMove) {
+        StringBuilder whitePieces = new StringBuilder();
+        StringBuilder blackPieces = new StringBuilder();
+        int whiteKing = -1;
+        int blackKing = -1;
+        int pieces = 0;
+        for (int i = 0; i < 64; i++) {
+            String piece = boardState.get(i);
+            if (piece.isEmpty()) {
+                continue;
+            }
+            if (++pieces > MAX_PIECES || piece.charAt(1) == 'P') {
+                return null;
+            }
+            boolean white = piece.charAt(0) == 'w';
+            if (piece.charAt(1) == 'K') {
+                if (white) whiteKing = i; else blackKing = i;
+            } else {
+                (white ? whitePieces : blackPieces).append(piece.charAt(1));
+            }
+        }
+        if (whiteKing < 0 || blackKing < 0) {
+            return null;
+        }
+        String white = sortPieces(whitePieces.toString());
+        String black = sortPieces(blackPieces.toString());
+        if (white.isEmpty() && black.isEmpty()) {
+            return new Result(0, null);
+        }
+        boolean flip = !isCanonical(white, black);
+        Layout layout = layout(flip ? "K" + black + "K" + white : "K" + white + "K" + black);
+        MappedByteBuffer wdlFile = wdlFiles.get(layout.material);
+        if (wdlFile == null) {
+            return null;
+        }
+
+        // Fill the layout slots from the board, swapping colors if the signature is flipped
+        int[] squares = new int[layout.count];
+        boolean[] used = new boolean[layout.count];
+        for (int i = 0; i < 64; i++) {
+            String piece = boardState.get(i);
+            if (piece.isEmpty()) {
+                continue;
+            }
+            int square = (7 - i / 8) * 8 + i % 8;
+            boolean white2 = (piece.charAt(0) == 'w') != flip;
+            for (int slot = 0; slot < layout.count; slot++) {
+                if (!used[slot] && layout.types[slot] == piece.charAt(1) && layout.white[slot] == white2) {
+                    used[slot] = true;
+                    squares[slot] = flip ? square ^ 56 : square;
+                    break;
+                }
+            }
+        }
+        int index = index(layout, squares, whiteToMove != flip, new int[MAX_PIECES]);
+
+        int wdl = (wdlFile.get(index >> 2) >> ((index & 3) * 2)) & 3;
+        if (wdl == WDL_ILLEGAL) {
+            return null;
+        }
+        if (wdl == WDL_DRAW) {
+            return new Result(0, null);
+        }
+        MappedByteBuffer dtmFile = dtmFiles.get(layout.material);
+        Integer distance = dtmFile != null ? (dtmFile.get(index) & 0xFF) - RESOLVED : null;
+        return new Result(wdl == WDL_WIN ? 1 : -1, distance);
+    }
+}
@@ -0,0 +1,423 @@
+package com.jeremy.chess.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the {@link Tablebase} files for every pawnless ending with three or four
+ * pieces by retrograde analysis. Mates are found first; then each pass resolves the
+ * positions one ply further from mate, visiting only the predecessors of positions
+ * resolved in the previous pass (found by un-moving pieces) and positions whose
+ * captures lead to an already solved smaller ending. Passes are split across threads
+ * by index range; every pass reads only results of earlier passes, so the outcome
+ * does not depend on scheduling.
+ *
+ * <p>Run with {@code ./gradlew generateTablebases}, or directly with the output
+ * directory and thread count as arguments.
+ */
+public class TablebaseGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(TablebaseGenerator.class);
+
+    private static final String PIECES = "QRBN";
+    private static final int CHUNK = 4096;
+
+    private final Map<String, byte[]> solved = new HashMap<>();
+    private final ForkJoinPool pool;
+
+    public TablebaseGenerator(int threads) {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "./data/tablebases");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(threads);
+        long start = System.nanoTime();
+        for (String material : signatures()) {
+            generator.generate(material, directory);
+        }
+        generator.pool.shutdown();
+        logger.info("Generated all tables in {} s", (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    /**
+     * Lists every pawnless signature with three or four pieces, smaller endings first so
+     * that captures always lead into a table that is already solved.
+     */
+    static List<String> signatures() {
+        List<String> signatures = new ArrayList<>();
+        for (char piece : PIECES.toCharArray()) {
+            signatures.add("K" + piece + "K");
+        }
+        for (int i = 0; i < PIECES.length(); i++) {
+            for (int j = i; j < PIECES.length(); j++) {
+                signatures.add("K" + PIECES.charAt(i) + PIECES.charAt(j) + "K");
+                signatures.add("K" + PIECES.charAt(i) + "K" + PIECES.charAt(j));
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * Solves one signature and writes its files.
+     *
+     * @param material The signature, e.g. "KRKN"
+     * @param directory The output directory
+     * @return The solved states, indexed like the table
+     * @throws IOException If the files cannot be written
+     */
+    public byte[] generate(String material, Path directory) throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Tablebase.Layout layout = Tablebase.layout(material);
+        byte[] states = new byte[layout.size];
+        byte[] captureWins = new byte[layout.size];    // Pass at which a capture wins
+        byte[] captureLosses = new byte[layout.size];  // Pass at which the last losing capture is solved
+        CaptureTarget[] targets = captureTargets(layout);
+        AtomicLongArray mated = new AtomicLongArray((layout.size + 63) / 64);
+        LongAdder resolved = new LongAdder();
+        int chunks = (layout.size + CHUNK - 1) / CHUNK;
+
+        // Pass 0: illegal positions, mates, and what every capture leads to
+        int maxTrigger = pool.submit(() -> IntStream.range(0, chunks).parallel().map(chunk -> {
+            Worker worker = new Worker(layout, states, targets);
+            int max = 0;
+            for (int index = chunk * CHUNK; index < Math.min(layout.size, (chunk + 1) * CHUNK); index++) {
+                max = Math.max(max, worker.initialize(index, captureWins, captureLosses, mated, resolved));
+            }
+            return max;
+        }).max().orElse(0)).get();
+
+        AtomicLongArray frontier = mated;
+        int pass = 0;
+        long lastResolved = resolved.sum();
+        while (lastResolved > 0 || pass < maxTrigger) {
+            pass++;
+            if (pass > Tablebase.MAX_PLIES) {
+                throw new IllegalStateException("Distance to mate exceeds file format in " + material);
+            }
+            final int n = pass;
+            AtomicLongArray candidates = frontier;
+            AtomicLongArray next = new AtomicLongArray(candidates.length());
+            LongAdder passResolved = new LongAdder();
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                Worker worker = new Worker(layout, states, targets);
+                for (int index = chunk * CHUNK; index < Math.min(layout.size, (chunk + 1) * CHUNK); index++) {
+                    if (states[index] != Tablebase.DRAW) {
+                        continue;
+                    }
+                    boolean candidate = (candidates.get(index >> 6) & (1L << index)) != 0
+                        || (captureWins[index] & 0xFF) == n || (captureLosses[index] & 0xFF) == n;
+                    if (candidate && worker.evaluate(index, n, next)) {
+                        passResolved.increment();
+                    }
+                }
+            })).get();
+            frontier = next;
+            lastResolved = passResolved.sum();
+        }
+
+        solved.put(material, states);
+        write(layout, states, directory);
+        long[] counts = new long[4];
+        int longest = 0;
+        for (byte state : states) {
+            int value = state & 0xFF;
+            counts[wdl(value)]++;
+            if (value >= Tablebase.RESOLVED) {
+                longest = Math.max(longest, value - Tablebase.RESOLVED);
+            }
+        }
+        logger.info("{}: {} wins, {} losses, {} draws, longest mate {} plies, {} passes, {} ms",
+            material, counts[Tablebase.WDL_WIN], counts[Tablebase.WDL_LOSS], counts[Tablebase.WDL_DRAW],
+            longest, pass, (System.nanoTime() - start) / 1_000_000);
+        return states;
+    }
+
+    private static int wdl(int state) {
+        if (state == Tablebase.ILLEGAL) {
+            return Tablebase.WDL_ILLEGAL;
+        }
+        if (state < Tablebase.RESOLVED) {
+            return Tablebase.WDL_DRAW;
+        }
+        return ((state - Tablebase.RESOLVED) & 1) == 1 ? Tablebase.WDL_WIN : Tablebase.WDL_LOSS;
+    }
+
+    private static void write(Tablebase.Layout layout, byte[] states, Path directory) throws IOException {
+        byte[] packed = new byte[(states.length + 3) / 4];
+        for (int i = 0; i < states.length; i++) {
+            packed[i >> 2] |= (byte) (wdl(states[i] & 0xFF) << ((i & 3) * 2));
+        }
+        Files.write(directory.resolve(layout.material + ".wdl"), packed);
+        Files.write(directory.resolve(layout.material + ".dtm"), states);
+    }
+
+    /**
+     * Where a position lands after a given piece is captured: the smaller signature,
+     * whether its colors are swapped, and which parent piece fills each of its slots.
+     */
+    private static final class CaptureTarget {
+        private final Tablebase.Layout layout;
+        private final boolean flip;
+        private final int[] parentSlots;
+
+        private CaptureTarget(Tablebase.Layout layout, boolean flip, int[] parentSlots) {
+            this.layout = layout;
+            this.flip = flip;
+            this.parentSlots = parentSlots;
+        }
+    }
+
+    private static CaptureTarget[] captureTargets(Tablebase.Layout layout) {
+        CaptureTarget[] targets = new CaptureTarget[layout.count];
+        for (int captured = 2; captured < layout.count; captured++) {
+            StringBuilder white = new StringBuilder();
+            StringBuilder black = new StringBuilder();
+            for (int i = 2; i < layout.count; i++) {
+                if (i != captured) {
+                    (layout.white[i] ? white : black).append(layout.types[i]);
+                }
+            }
+            String whitePieces = Tablebase.sortPieces(white.toString());
+            String blackPieces = Tablebase.sortPieces(black.toString());
+            boolean flip = !Tablebase.isCanonical(whitePieces, blackPieces);
+            Tablebase.Layout child = Tablebase.layout(flip ? "K" + blackPieces + "K" + whitePieces
+                : "K" + whitePieces + "K" + blackPieces);
+            int[] parentSlots = new int[child.count];
+            boolean[] used = new boolean[layout.count];
+            used[captured] = true;
+            for (int slot = 0; slot < child.count; slot++) {
+                for (int i = 0; i < layout.count; i++) {
+                    if (!used[i] && layout.types[i] == child.types[slot] && (layout.white[i] != flip) == child.white[slot]) {
+                        used[i] = true;
+                        parentSlots[slot] = i;
+                        break;
+                    }
+                }
+            }
+            targets[captured] = new CaptureTarget(child, flip, parentSlots);
+        }
+        return targets;
+    }
+
+    /**
+     * Per-thread scratch space and the move logic shared by all passes.
+     */
+    private final class Worker {
+        private final Tablebase.Layout layout;
+        private final byte[] states;
+        private final CaptureTarget[] targets;
+        private final int[] squares = new int[Tablebase.MAX_PIECES];
+        private final int[] child = new int[Tablebase.MAX_PIECES];
+        private final int[] scratch = new int[Tablebase.MAX_PIECES];
+
+        private Worker(Tablebase.Layout layout, byte[] states, CaptureTarget[] targets) {
+            this.layout = layout;
+            this.states = states;
+            this.targets = targets;
+        }
+
+        /**
+         * Classifies a position before the first pass.
+         *
+         * @return The latest pass at which one of its captures becomes relevant
+         */
+        private int initialize(int index, byte[] captureWins, byte[] captureLosses,
+                               AtomicLongArray frontier, LongAdder resolved) {
+            boolean whiteToMove = Tablebase.decode(layout, index, squares);
+            if (!isLegal(whiteToMove) || Tablebase.index(layout, squares, whiteToMove, scratch) != index) {
+                states[index] = Tablebase.ILLEGAL;
+                return 0;
+            }
+            int count = layout.count;
+            boolean hasMove = false;
+            int bestWin = Integer.MAX_VALUE;
+            int worstLoss = 0;
+            boolean escapes = false;
+            for (int piece = 0; piece < count; piece++) {
+                if (layout.white[piece] != whiteToMove) {
+                    continue;
+                }
+                int from = squares[piece];
+                for (int to = 0; to < 64; to++) {
+                    int target = Tablebase.occupant(squares, count, to, -1);
+                    if ((target >= 0 && layout.white[target] == whiteToMove)
+                        || !Tablebase.attacks(layout.types[piece], from, to, squares, count, -1)) {
+                        continue;
+                    }
+                    squares[piece] = to;
+                    boolean legal = !Tablebase.inCheck(layout, squares, whiteToMove, target);
+                    if (legal) {
+                        hasMove = true;
+                        if (target >= 0) {
+                            int state = captureState(target, !whiteToMove);
+                            if (state >= Tablebase.RESOLVED) {
+                                int plies = state - Tablebase.RESOLVED;
+                                if ((plies & 1) == 0) {
+                                    bestWin = Math.min(bestWin, plies + 1);
+                                } else {
+                                    worstLoss = Math.max(worstLoss, plies + 1);
+                                }
+                            } else {
+                                escapes = true;
+                            }
+                        }
+                    }
+                    squares[piece] = from;
+                }
+            }
+            if (!hasMove) {
+                if (Tablebase.inCheck(layout, squares, whiteToMove, -1)) {
+                    states[index] = (byte) Tablebase.RESOLVED;  // Mated: lost in 0 plies
+                    markPredecessors(whiteToMove, frontier);
+                    resolved.increment();
+                }
+                return 0;  // Stalemate stays a draw
+            }
+            int trigger = 0;
+            if (bestWin != Integer.MAX_VALUE) {
+                captureWins[index] = (byte) bestWin;
+                trigger = bestWin;
+            }
+            if (worstLoss > 0 && !escapes) {
+                captureLosses[index] = (byte) worstLoss;
+                trigger = Math.max(trigger, worstLoss);
+            }
+            return trigger;
+        }
+
+        /**
+         * Tries to resolve an unresolved position in pass {@code n}, using only results from earlier passes.
+         *
+         * @return true if the position was resolved
+         */
+        private boolean evaluate(int index, int n, AtomicLongArray next) {
+            boolean whiteToMove = Tablebase.decode(layout, index, squares);
+            int count = layout.count;
+            int bestWin = Integer.MAX_VALUE;
+            int worstLoss = 0;
+            boolean allLose = true;
+            boolean hasMove = false;
+            for (int piece = 0; piece < count && bestWin == Integer.MAX_VALUE; piece++) {
+                if (layout.white[piece] != whiteToMove) {
+                    continue;
+                }
+                int from = squares[piece];
+                for (int to = 0; to < 64; to++) {
+                    int target = Tablebase.occupant(squares, count, to, -1);
+                    if ((target >= 0 && layout.white[target] == whiteToMove)
+                        || !Tablebase.attacks(layout.types[piece], from, to, squares, count, -1)) {
+                        continue;
+                    }
+                    squares[piece] = to;
+                    if (!Tablebase.inCheck(layout, squares, whiteToMove, target)) {
+                        hasMove = true;
+                        int state = target >= 0 ? captureState(target, !whiteToMove)
+                            : states[Tablebase.index(layout, squares, !whiteToMove, scratch)] & 0xFF;
+                        int plies = state - Tablebase.RESOLVED;
+                        if (state < Tablebase.RESOLVED || plies > n - 1) {
+                            allLose = false;  // Unknown as of the previous pass
+                        } else if ((plies & 1) == 0) {
+                            bestWin = Math.min(bestWin, plies + 1);
+                        } else {
+                            worstLoss = Math.max(worstLoss, plies + 1);
+                        }
+                    }
+                    squares[piece] = from;
+                    if (bestWin != Integer.MAX_VALUE) {
+                        break;
+                    }
+                }
+            }
+            int plies;
+            if (bestWin != Integer.MAX_VALUE) {
+                plies = bestWin;
+            } else if (hasMove && allLose) {
+                plies = worstLoss;
+            } else {
+                return false;
+            }
+            states[index] = (byte) (Tablebase.RESOLVED + plies);
+            markPredecessors(whiteToMove, next);
+            return true;
+        }
+
+        private boolean isLegal(boolean whiteToMove) {
+            int count = layout.count;
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (squares[i] == squares[j]) {
+                        return false;
+                    }
+                }
+            }
+            // The side that just moved cannot be in check
+            return !Tablebase.inCheck(layout, squares, !whiteToMove, -1);
+        }
+
+        /**
+         * Looks up the position after a capture in the smaller, already solved table.
+         */
+        private int captureState(int captured, boolean whiteToMove) {
+            CaptureTarget target = targets[captured];
+            if (target.layout.count == 2) {
+                return Tablebase.DRAW;
+            }
+            for (int slot = 0; slot < target.layout.count; slot++) {
+                int square = squares[target.parentSlots[slot]];
+                child[slot] = target.flip ? square ^ 56 : square;
+            }
+            byte[] table = solved.get(target.layout.material);
+            int state = table[Tablebase.index(target.layout, child, whiteToMove != target.flip, scratch)] & 0xFF;
+            return state == Tablebase.ILLEGAL ? Tablebase.DRAW : state;
+        }
+
+        /**
+         * Marks every position from which the side that just moved could have reached this
+         * one with a non-capturing move.
+         */
+        private void markPredecessors(boolean whiteToMove, AtomicLongArray marks) {
+            int count = layout.count;
+            boolean mover = !whiteToMove;
+            for (int piece = 0; piece < count; piece++) {
+                if (layout.white[piece] != mover) {
+                    continue;
+                }
+                int to = squares[piece];
+                for (int from = 0; from < 64; from++) {
+                    if (Tablebase.occupant(squares, count, from, -1) >= 0
+                        || !Tablebase.attacks(layout.types[piece], to, from, squares, count, -1)) {
+                        continue;
+                    }
+                    squares[piece] = from;
+                    // The side to move in the predecessor must not have left the other side in check
+                    if (!Tablebase.inCheck(layout, squares, whiteToMove, -1)) {
+                        int index = Tablebase.index(layout, squares, mover, scratch);
+                        long bit = 1L << index;
+                        int word = index >> 6;
+                        long old;
+                        while (((old = marks.get(word)) & bit) == 0 && !marks.compareAndSet(word, old, old | bit)) {
+                            // Retry
+                        }
+                    }
+                    squares[piece] = to;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.jeremy.chess.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel serviced by a single thread. Scheduling and cancelling are
+ * O(1) and lock-free for callers; the worker moves new timeouts into their bucket,
+ * unlinks cancelled ones and fires the expired ones once per tick. Timeouts further
+ * away than one rotation carry a round counter instead of needing more buckets.
+ * Tasks run on the wheel thread and must be short.
+ */
+public class TimingWheel {
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int WORKER_INIT = 0;
+    private static final int WORKER_STARTED = 1;
+    private static final int WORKER_STOPPED = 2;
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public interface Timeout {
+        /**
+         * Cancels the task if it has not fired yet.
+         *
+         * @return true if this call cancelled the task
+         */
+        boolean cancel();
+
+        /**
+         * Checks if the task was cancelled.
+         *
+         * @return true if the task was cancelled
+         */
+        boolean isCancelled();
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancellations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_INIT);
+    private final Thread worker;
+    private volatile long startTime;
+
+    /**
+     * Creates a wheel. The worker thread is started by {@link #start()}.
+     *
+     * @param tickDuration The duration of one tick; also the timer's resolution
+     * @param unit The unit of tickDuration
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two
+     * @param threadName The name of the worker thread
+     */
+    public TimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel out of range: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Starts the worker thread. Calling this more than once has no effect.
+     */
+    public void start() {
+        if (workerState.compareAndSet(WORKER_INIT, WORKER_STARTED)) {
+            startTime = System.nanoTime();
+            worker.start();
+        } else if (workerState.get() == WORKER_STOPPED) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+    }
+
+    /**
+     * Stops the worker thread. Pending tasks are discarded.
+     */
+    public void stop() {
+        if (workerState.getAndSet(WORKER_STOPPED) == WORKER_STARTED) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10 + 100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @param task The task to run on the wheel thread
+     * @param delay The delay before the task runs
+     * @param unit The unit of delay
+     * @return A handle that can cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (workerState.get() != WORKER_STARTED) {
+            throw new IllegalStateException("Timing wheel is not running");
+        }
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startTime;
+        Entry entry = new Entry(task, deadline);
+        additions.add(entry);
+        return entry;
+    }
+
+    private void run() {
+        long tick = 0;
+        while (workerState.get() == WORKER_STARTED) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (workerState.get() != WORKER_STARTED) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+            processCancellations();
+            transferAdditions(tick);
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void processCancellations() {
+        Entry entry;
+        while ((entry = cancellations.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferAdditions(long tick) {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry entry = additions.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.state.get() != Entry.PENDING) {
+                continue;
+            }
+            long expiryTick = entry.deadline / tickNanos;
+            entry.remainingRounds = (expiryTick - tick) / wheel.length;
+            long targetTick = Math.max(expiryTick, tick); // Already overdue: fire on this tick
+            wheel[(int) (targetTick & mask)].add(entry);
+        }
+    }
+
+    private final class Entry implements Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Owned by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            cancellations.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Timing wheel task failed", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of entries, touched only by the worker thread.
+     */
+    private final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+        }
+
+        private void expire(long deadline) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.state.get() == Entry.CANCELLED) {
+                    remove(entry);
+                } else if (entry.remainingRounds <= 0) {
+                    remove(entry);
+                    if (entry.deadline <= deadline) {
+                        entry.expire();
+                    } else {
+                        // Placed in the wrong bucket; should not happen, but never fire early
+                        additions.add(entry);
+                    }
+                } else {
+                    entry.remainingRounds--;
+                }
+                entry = next;
+            }
+        }
+
+        private void remove(Entry entry) {
+            if (entry.bucket != this) {
+                return;
+            }
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            } else {
+                tail = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+    }
+}
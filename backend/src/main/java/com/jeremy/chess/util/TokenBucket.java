@@ -0,0 +1,45 @@
+package com.jeremy.chess.util;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously up to the bucket's capacity,
+ * so a client may burst up to the capacity and then sustain the refill rate.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity The largest burst allowed
+     * @param tokensPerSecond The sustained rate
+     * @param nowNanos The current {@link System#nanoTime()}
+     */
+    public TokenBucket(double capacity, double tokensPerSecond, long nowNanos) {
+        if (capacity < 1 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid bucket: capacity " + capacity + ", rate " + tokensPerSecond);
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    /**
+     * Takes one token if one is available.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}
+     * @return true if the token was taken, false if the caller is over the limit
+     */
+    public synchronized boolean tryAcquire(long nowNanos) {
+        tokens = Math.min(capacity, tokens + (nowNanos - lastRefill) * tokensPerNano);
+        lastRefill = nowNanos;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package com.jeremy.chess.util;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of board positions. The keys are generated from a fixed seed, so a
+ * position hashes to the same value in every run and in files written by earlier runs.
+ */
+public class Zobrist {
+    private static final String PIECES = "PNBRQK";
+    private static final long[] PIECE_KEYS = new long[12 * 64];
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (int i = 0; i < PIECE_KEYS.length; i++) {
+            PIECE_KEYS[i] = random.nextLong();
+        }
+        WHITE_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * Hashes a position.
+     *
+     * @param boardState The board, a8 first, with pieces such as "wP" and "" for empty squares
+     * @param whiteToMove Whether it is white's turn
+     * @return The position key; never 0
+     */
+    public static long hash(List<String> boardState, boolean whiteToMove) {
+        long key = whiteToMove ? WHITE_TO_MOVE : 0;
+        for (int index = 0; index < 64; index++) {
+            String piece = boardState.get(index);
+            if (!piece.isEmpty()) {
+                key ^= pieceKey(piece, index);
+            }
+        }
+        return key != 0 ? key : 1;
+    }
+
+    /**
+     * Gets the key of one piece on one square, for updating a hash incrementally.
+     *
+     * @param piece The piece, e.g. "wN"
+     * @param index The board index (0-63, a8 first)
+     * @return The key to XOR in or out
+     */
+    public static long pieceKey(String piece, int index) {
+        int kind = PIECES.indexOf(piece.charAt(1)) * 2 + (piece.charAt(0) == 'w' ? 0 : 1);
+        return PIECE_KEYS[kind * 64 + index];
+    }
+
+    /**
+     * Gets the key that is XORed in when white is to move.
+     *
+     * @return The side-to-move key
+     */
+    public static long whiteToMoveKey() {
+        return WHITE_TO_MOVE;
+    }
+}
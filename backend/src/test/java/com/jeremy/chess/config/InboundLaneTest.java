@@ -0,0 +1,52 @@
+package com.jeremy.chess.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InboundLaneTest {
+
+	@Test
+	void movesRunOnTheMoveLane() {
+		assertEquals(InboundLane.MOVE, InboundLane.of(send("/app/move")));
+		assertEquals(InboundLane.MOVE, InboundLane.of(send("/app/takeback")));
+		assertEquals(InboundLane.MOVE, InboundLane.of(send("/app/puzzle/move")));
+	}
+
+	@Test
+	void chatAndLobbyListsRunOnTheBulkLane() {
+		assertEquals(InboundLane.BULK, InboundLane.of(send("/app/chat")));
+		assertEquals(InboundLane.BULK, InboundLane.of(send("/app/chat/lobby")));
+		assertEquals(InboundLane.BULK, InboundLane.of(send("/app/lobbies")));
+		assertEquals(InboundLane.BULK, InboundLane.of(send("/app/lobbies/search")));
+	}
+
+	@Test
+	void everythingElseRunsOnTheControlLane() {
+		assertEquals(InboundLane.CONTROL, InboundLane.of(send("/app/claim")));
+		assertEquals(InboundLane.CONTROL, InboundLane.of(send("/app/move/extra")));
+		assertEquals(InboundLane.CONTROL, InboundLane.of(send(null)));
+		assertEquals(InboundLane.CONTROL, InboundLane.of(frame(SimpMessageType.SUBSCRIBE, "/app/move")));
+		assertEquals(InboundLane.CONTROL, InboundLane.of(frame(SimpMessageType.CONNECT, null)));
+		assertEquals(InboundLane.CONTROL, InboundLane.of(frame(SimpMessageType.DISCONNECT, null)));
+	}
+
+	static Message<byte[]> send(String destination) {
+		return frame(SimpMessageType.MESSAGE, destination);
+	}
+
+	static Message<byte[]> frame(SimpMessageType type, String destination) {
+		return frame(type, destination, "session");
+	}
+
+	static Message<byte[]> frame(SimpMessageType type, String destination, String sessionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+		accessor.setDestination(destination);
+		accessor.setSessionId(sessionId);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,93 @@
+package com.jeremy.chess.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageType;
+
+import static com.jeremy.chess.config.InboundLaneTest.frame;
+import static com.jeremy.chess.config.InboundLaneTest.send;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InboundThrottleInterceptorTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private InboundThrottleInterceptor interceptor;
+
+	@BeforeEach
+	void create() {
+		// Refills so slowly that nothing comes back during a test
+		WebSocketProperties.Throttle throttle = new WebSocketProperties.Throttle();
+		throttle.getMove().setBurst(3);
+		throttle.getMove().setPerSecond(0.001);
+		throttle.getControl().setBurst(2);
+		throttle.getControl().setPerSecond(0.001);
+		throttle.getBulk().setBurst(1);
+		throttle.getBulk().setPerSecond(0.001);
+		interceptor = new InboundThrottleInterceptor(throttle, meterRegistry);
+	}
+
+	@Test
+	void dropsFramesOverTheBurst() {
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(interceptor.preSend(send("/app/move"), null));
+		}
+		assertNull(interceptor.preSend(send("/app/move"), null));
+		assertNull(interceptor.preSend(send("/app/takeback"), null));
+
+		assertEquals(3, frames("move", "accepted"));
+		assertEquals(2, frames("move", "throttled"));
+	}
+
+	@Test
+	void chargesEachLaneSeparately() {
+		assertNotNull(interceptor.preSend(send("/app/chat"), null));
+		assertNull(interceptor.preSend(send("/app/lobbies"), null));
+		// A chat flood leaves moves and joins alone
+		assertNotNull(interceptor.preSend(send("/app/move"), null));
+		assertNotNull(interceptor.preSend(send("/app/claim"), null));
+
+		assertEquals(1, frames("bulk", "accepted"));
+		assertEquals(1, frames("bulk", "throttled"));
+		assertEquals(1, frames("move", "accepted"));
+		assertEquals(1, frames("control", "accepted"));
+		assertEquals(0, frames("control", "throttled"));
+	}
+
+	@Test
+	void chargesEachSessionSeparately() {
+		assertNotNull(interceptor.preSend(frame(SimpMessageType.MESSAGE, "/app/chat", "a"), null));
+		assertNull(interceptor.preSend(frame(SimpMessageType.MESSAGE, "/app/chat", "a"), null));
+		assertNotNull(interceptor.preSend(frame(SimpMessageType.MESSAGE, "/app/chat", "b"), null));
+	}
+
+	@Test
+	void disconnectResetsTheSession() {
+		assertNotNull(interceptor.preSend(send("/app/chat"), null));
+		assertNull(interceptor.preSend(send("/app/chat"), null));
+		interceptor.preSend(frame(SimpMessageType.DISCONNECT, null), null);
+
+		assertNotNull(interceptor.preSend(send("/app/chat"), null));
+	}
+
+	@Test
+	void passesOtherFramesUncounted() {
+		for (int i = 0; i < 5; i++) {
+			Message<byte[]> subscribe = frame(SimpMessageType.SUBSCRIBE, "/topic/game");
+			assertSame(subscribe, interceptor.preSend(subscribe, null));
+			Message<byte[]> anonymous = frame(SimpMessageType.MESSAGE, "/app/chat", null);
+			assertSame(anonymous, interceptor.preSend(anonymous, null));
+		}
+
+		assertEquals(0, meterRegistry.get("chess.ws.inbound.frames").counters().stream()
+				.mapToDouble(counter -> counter.count()).sum());
+	}
+
+	private double frames(String lane, String outcome) {
+		return meterRegistry.get("chess.ws.inbound.frames").tag("lane", lane).tag("outcome", outcome).counter().count();
+	}
+}
@@ -0,0 +1,97 @@
+package com.jeremy.chess.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.jeremy.chess.config.InboundLaneTest.frame;
+import static com.jeremy.chess.config.InboundLaneTest.send;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LaneTaskExecutorTest {
+
+	private LaneTaskExecutor executor;
+
+	@BeforeEach
+	void create() {
+		executor = new LaneTaskExecutor(new WebSocketProperties.Pool(1), new WebSocketProperties.Pool(1));
+		executor.setThreadNamePrefix("clientInboundChannel-");
+		executor.setCorePoolSize(1);
+		executor.initialize();
+	}
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void routesFramesByLane() throws Exception {
+		assertTrue(threadFor(send("/app/move")).startsWith("clientInboundChannel-"));
+		assertTrue(threadFor(send("/app/claim")).startsWith("clientInboundControl-"));
+		assertTrue(threadFor(frame(SimpMessageType.SUBSCRIBE, "/topic/game")).startsWith("clientInboundControl-"));
+		assertTrue(threadFor(send("/app/chat")).startsWith("clientInboundBulk-"));
+		assertTrue(threadFor(send("/app/lobbies/search")).startsWith("clientInboundBulk-"));
+	}
+
+	@Test
+	void runsOtherTasksOnItsOwnPool() throws Exception {
+		CompletableFuture<String> thread = new CompletableFuture<>();
+		executor.execute(() -> thread.complete(Thread.currentThread().getName()));
+		assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith("clientInboundChannel-"));
+	}
+
+	@Test
+	void busyBulkLaneDoesNotDelayMoves() throws Exception {
+		CompletableFuture<Void> release = new CompletableFuture<>();
+		executor.execute(new MessageHandlingRunnable() {
+			@Override
+			public Message<?> getMessage() {
+				return send("/app/chat");
+			}
+
+			@Override
+			public MessageHandler getMessageHandler() {
+				return message -> { };
+			}
+
+			@Override
+			public void run() {
+				release.join();
+			}
+		});
+		try {
+			assertTrue(threadFor(send("/app/move")).startsWith("clientInboundChannel-"));
+		} finally {
+			release.complete(null);
+		}
+	}
+
+	private String threadFor(Message<?> message) throws Exception {
+		CompletableFuture<String> thread = new CompletableFuture<>();
+		executor.execute(new MessageHandlingRunnable() {
+			@Override
+			public Message<?> getMessage() {
+				return message;
+			}
+
+			@Override
+			public MessageHandler getMessageHandler() {
+				return handled -> { };
+			}
+
+			@Override
+			public void run() {
+				thread.complete(Thread.currentThread().getName());
+			}
+		});
+		return thread.get(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,55 @@
+package com.jeremy.chess.config;
+
+import com.jeremy.chess.service.SpectatorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpectatorDeliveryDecoratorTest {
+
+	private static final String SPECTATOR_FRAME =
+			"MESSAGE\ncontent-type:application/json\ndestination:/user/queue/spectate\nsubscription:sub-1\n\n{}\0";
+	private static final String GAME_FRAME =
+			"MESSAGE\ndestination:/topic/game\n\n{\"note\":\"destination:/user/queue/spectate\"}\0";
+
+	@Test
+	void recognizesSpectatorFramesByHeader() {
+		assertTrue(SpectatorDeliveryDecorator.isSpectatorFrame(SPECTATOR_FRAME));
+		assertFalse(SpectatorDeliveryDecorator.isSpectatorFrame(GAME_FRAME));
+		assertFalse(SpectatorDeliveryDecorator.isSpectatorFrame("CONNECTED\nversion:1.2\n\n\0"));
+		assertFalse(SpectatorDeliveryDecorator.isSpectatorFrame("\n"));
+	}
+
+	@Test
+	void confirmsDeliveryOnceWritten() throws Exception {
+		SpectatorService spectatorService = mock(SpectatorService.class);
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn("session");
+		AtomicReference<WebSocketSession> seen = new AtomicReference<>();
+		WebSocketHandler handler = new SpectatorDeliveryDecorator(spectatorService).decorate(new AbstractWebSocketHandler() {
+			@Override
+			public void afterConnectionEstablished(WebSocketSession decorated) {
+				seen.set(decorated);
+			}
+		});
+		handler.afterConnectionEstablished(session);
+
+		seen.get().sendMessage(new TextMessage(GAME_FRAME));
+		verify(spectatorService, never()).onDelivered("session");
+		TextMessage frame = new TextMessage(SPECTATOR_FRAME);
+		seen.get().sendMessage(frame);
+		verify(session).sendMessage(frame);
+		verify(spectatorService).onDelivered("session");
+	}
+}
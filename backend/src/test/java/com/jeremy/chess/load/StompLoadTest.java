@@ -0,0 +1,500 @@
+package com.jeremy.chess.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.util.Fen;
+import com.jeremy.chess.util.MoveValidator;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load generator for the STOMP endpoint. Starts the application on a random port, opens two
+ * connections to {@code /ws} per game, pairs them into a fresh lobby with {@code /app/claim} and
+ * plays random legal games (or scripted ones) through {@code /app/move}. The latency recorded for
+ * a move runs from sending it to the opponent's connection receiving the broadcast.
+ *
+ * <p>Run with {@code ./gradlew loadTest}, e.g. {@code ./gradlew loadTest -Pgames=1000 -PmoveIntervalMs=250}.
+ * A script file holds one game per line as UCI moves ({@code e2e4 e7e5 g1f3 ...}).
+ *
+ * <p>With {@code -PfloodSessions=N} another N connections send {@code -PfloodRate} frames a second
+ * each to {@code -PfloodDestination} (the lobby search by default) during the second half of the
+ * run, and move latency is reported separately for the quiet half and the flooded half.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"logging.level.com.jeremy.chess=WARN",
+	"chess.ratings.file=build/load/ratings.csv",
+	"chess.ratings.archive=build/load/results.csv",
+	"chess.explorer.file=build/load/explorer.bin"
+})
+class StompLoadTest {
+
+	private static final int GAMES = Integer.getInteger("chess.load.games", 100);
+	private static final long MOVE_INTERVAL_MS = Long.getLong("chess.load.moveIntervalMs", 500);
+	private static final long DURATION_SECONDS = Long.getLong("chess.load.durationSeconds", 60);
+	private static final int MAX_PLIES = Integer.getInteger("chess.load.maxPlies", 200);
+	private static final long MOVE_TIMEOUT_MS = Long.getLong("chess.load.moveTimeoutMs", 10_000);
+	private static final String SCRIPT = System.getProperty("chess.load.script", "");
+	private static final long SEED = Long.getLong("chess.load.seed", 1);
+	private static final int FLOOD_SESSIONS = Integer.getInteger("chess.load.floodSessions", 0);
+	private static final int FLOOD_RATE = Integer.getInteger("chess.load.floodRate", 50);
+	private static final String FLOOD_DESTINATION = System.getProperty("chess.load.floodDestination", "/app/lobbies/search");
+	private static final byte[] FLOOD_PAYLOAD = "{}".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] LOBBY_ID_FIELD = "\"lobbyId\":\"".getBytes(StandardCharsets.US_ASCII);
+	private static final int LOBBY_ID_SEARCH_LIMIT = 64;  // The id is the first or second field of a game message
+
+	@LocalServerPort
+	private int port;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private volatile Histogram latency = newHistogram();
+	private final AtomicLong moves = new AtomicLong();
+	private final AtomicLong floodFrames = new AtomicLong();
+	private final AtomicLong gamesFinished = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+
+	private volatile boolean running = true;
+	private WebSocketStompClient stompClient;
+	private HttpClient httpClient;
+	private ScheduledExecutorService scheduler;
+	private List<String[]> script = Collections.emptyList();
+
+	@Test
+	void playConcurrentGames() throws Exception {
+		if (!SCRIPT.isEmpty()) {
+			script = readScript(Path.of(SCRIPT));
+		}
+		// The default converter passes byte[] payloads through unchanged in both directions
+		stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+		httpClient = HttpClient.newHttpClient();
+		scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			Thread thread = new Thread(runnable, "chess-load");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		List<Game> games = new ArrayList<>();
+		List<Flooder> flooders = new ArrayList<>();
+		List<CompletableFuture<?>> connecting = new ArrayList<>();
+		for (int i = 0; i < GAMES; i++) {
+			Game game = new Game(i);
+			games.add(game);
+			connecting.add(game.white.connect());
+			connecting.add(game.black.connect());
+		}
+		for (int i = 0; i < FLOOD_SESSIONS; i++) {
+			Flooder flooder = new Flooder();
+			flooders.add(flooder);
+			connecting.add(flooder.connect());
+		}
+		CompletableFuture.allOf(connecting.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+		System.out.printf("Opened %d connections on port %d%n", connecting.size(), port);
+
+		long start = System.nanoTime();
+		games.forEach(game -> scheduler.execute(game::start));
+		Histogram quiet = null;
+		if (flooders.isEmpty()) {
+			Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+		} else {
+			// Quiet half first, then the same games with the flood running
+			Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS) / 2);
+			quiet = latency;
+			latency = newHistogram();
+			long period = TimeUnit.SECONDS.toMicros(1) / Math.max(1, FLOOD_RATE);
+			flooders.forEach(flooder -> scheduler.scheduleAtFixedRate(flooder::send, 0, period, TimeUnit.MICROSECONDS));
+			Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS) - TimeUnit.SECONDS.toMillis(DURATION_SECONDS) / 2);
+		}
+		running = false;
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		report(seconds, quiet);
+		games.forEach(Game::close);
+		flooders.forEach(Flooder::close);
+		scheduler.shutdownNow();
+		assertTrue(moves.get() > 0, "No move was broadcast");
+	}
+
+	/**
+	 * Prints the run's totals and move latency, split into the quiet and flooded halves
+	 * when the run had a flood.
+	 *
+	 * @param seconds The length of the run
+	 * @param quiet Latency before the flood started, or null without a flood
+	 */
+	private void report(double seconds, Histogram quiet) {
+		System.out.printf("%n%d games on %d connections for %.1f s (%s, %d ms between moves)%n",
+			GAMES, 2 * GAMES, seconds, script.isEmpty() ? "random" : "scripted", MOVE_INTERVAL_MS);
+		System.out.printf("Moves: %d (%.1f/s), games finished: %d, timeouts: %d, errors: %d%n",
+			moves.get(), moves.get() / seconds, gamesFinished.get(), timeouts.get(), errors.get());
+		if (quiet == null) {
+			printLatency("Move-to-broadcast latency (ms)", latency);
+			latency.outputPercentileDistribution(System.out, 1000.0);
+			return;
+		}
+		System.out.printf("Flood: %d connections at %d frames/s to %s, %d frames sent%n",
+			FLOOD_SESSIONS, FLOOD_RATE, FLOOD_DESTINATION, floodFrames.get());
+		printLatency("Move-to-broadcast latency without flood (ms)", quiet);
+		printLatency("Move-to-broadcast latency with flood (ms)   ", latency);
+		System.out.println();
+		latency.outputPercentileDistribution(System.out, 1000.0);
+	}
+
+	private static void printLatency(String label, Histogram histogram) {
+		System.out.printf("%s: n %d  p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+			label, histogram.getTotalCount(),
+			histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+			histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+			histogram.getMaxValue() / 1000.0);
+	}
+
+	private static Histogram newHistogram() {
+		return new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+	}
+
+	private static List<String[]> readScript(Path path) throws IOException {
+		List<String[]> games = new ArrayList<>();
+		for (String line : Files.readAllLines(path)) {
+			if (!line.isBlank()) {
+				games.add(line.trim().split("\\s+"));
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Checks that a game message belongs to a lobby without parsing it. Every connection
+	 * receives every lobby's events on {@code /topic/game}, so most frames are dropped here.
+	 */
+	private static boolean isForLobby(byte[] payload, byte[] lobbyId) {
+		int limit = Math.min(payload.length - LOBBY_ID_FIELD.length - lobbyId.length - 1, LOBBY_ID_SEARCH_LIMIT);
+		search:
+		for (int i = 0; i <= limit; i++) {
+			for (int j = 0; j < LOBBY_ID_FIELD.length; j++) {
+				if (payload[i + j] != LOBBY_ID_FIELD[j]) {
+					continue search;
+				}
+			}
+			int offset = i + LOBBY_ID_FIELD.length;
+			for (int j = 0; j < lobbyId.length; j++) {
+				if (payload[offset + j] != lobbyId[j]) {
+					return false;
+				}
+			}
+			return payload[offset + lobbyId.length] == '"';
+		}
+		return false;
+	}
+
+	/**
+	 * Two connections playing one game after another until the run ends.
+	 */
+	private final class Game {
+		private final int index;
+		private final Random random;
+		private final Player white = new Player(this, true);
+		private final Player black = new Player(this, false);
+
+		private volatile byte[] lobbyId = new byte[0];
+		private String lobby;
+		private ArrayList<String> board;
+		private boolean whiteToMove;
+		private boolean playing;
+		private int ply;
+		private String[] scripted;
+		private long sentAt;
+		private ScheduledFuture<?> timeout;
+		private int played;
+
+		private Game(int index) {
+			this.index = index;
+			this.random = new Random(SEED + index);
+		}
+
+		/**
+		 * Creates a lobby over HTTP and has both connections claim their colors in it.
+		 */
+		private void start() {
+			if (!running) {
+				return;
+			}
+			try {
+				HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game/lobby?name=load-" + index))
+					.POST(HttpRequest.BodyPublishers.noBody())
+					.build();
+				HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+				String id = objectMapper.readTree(response.body()).get("id").asText();
+				synchronized (this) {
+					lobby = id;
+					lobbyId = id.getBytes(StandardCharsets.US_ASCII);
+					board = Fen.parseBoard(Fen.START);
+					whiteToMove = true;
+					playing = false;
+					ply = 0;
+					scripted = script.isEmpty() ? null : script.get((index + played++ * GAMES) % script.size());
+				}
+				white.send("/app/claim", message(id, "CLAIM", "white"));
+				black.send("/app/claim", message(id, "CLAIM", "black"));
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				scheduler.schedule(this::start, MOVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		private synchronized void onEvent(Player player, JsonNode event) {
+			String type = event.path("type").asText();
+			if ("PLAYERS".equals(type) && !playing && player == white) {
+				JsonNode players = event.path("content");
+				if (!players.path("whitePlayerId").asText().isEmpty() && !players.path("blackPlayerId").asText().isEmpty()) {
+					playing = true;
+					scheduleMove();
+				}
+			} else if ("MOVE".equals(type) && playing && event.path("whiteTurn").asBoolean() == player.isWhite
+					&& player.isWhite != whiteToMove) {
+				// The side to move now saw the broadcast of its opponent's move
+				latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+				moves.incrementAndGet();
+				timeout.cancel(false);
+				whiteToMove = player.isWhite;
+				readBoard(event.path("content"));
+				if (event.path("gameOver").asBoolean() || ++ply >= MAX_PLIES) {
+					gamesFinished.incrementAndGet();
+					playing = false;
+					scheduler.execute(this::start);
+				} else {
+					scheduleMove();
+				}
+			}
+		}
+
+		private void readBoard(JsonNode content) {
+			Collections.fill(board, "");
+			for (Iterator<Map.Entry<String, JsonNode>> it = content.fields(); it.hasNext(); ) {
+				Map.Entry<String, JsonNode> square = it.next();
+				String name = square.getKey();
+				board.set((8 - (name.charAt(1) - '0')) * 8 + name.charAt(0) - 'a', square.getValue().asText());
+			}
+		}
+
+		private void scheduleMove() {
+			String expected = lobby;
+			scheduler.schedule(() -> move(expected), MOVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+
+		private synchronized void move(String expected) {
+			if (!running || !expected.equals(lobby)) {
+				return;
+			}
+			ChessMove move = nextMove();
+			if (move == null) {
+				gamesFinished.incrementAndGet();
+				playing = false;
+				scheduler.execute(this::start);
+				return;
+			}
+			Map<String, Object> content = new HashMap<>();
+			content.put("from", move.getFrom());
+			content.put("to", move.getTo());
+			content.put("promotion", move.getPromotion());
+			sentAt = System.nanoTime();
+			timeout = scheduler.schedule(() -> timedOut(expected), MOVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			(whiteToMove ? white : black).send("/app/move", message(lobby, "MOVE", content));
+		}
+
+		private ChessMove nextMove() {
+			if (scripted != null) {
+				if (ply >= scripted.length) {
+					return null;
+				}
+				String uci = scripted[ply];
+				return new ChessMove(uci.substring(0, 2), uci.substring(2, 4),
+					uci.length() > 4 ? uci.substring(4, 5).toUpperCase() : null);
+			}
+			List<ChessMove> legal = MoveValidator.getLegalMoves(whiteToMove, board);
+			return legal.isEmpty() ? null : legal.get(random.nextInt(legal.size()));
+		}
+
+		private synchronized void timedOut(String expected) {
+			if (expected.equals(lobby) && playing) {
+				timeouts.incrementAndGet();
+				playing = false;
+				scheduler.execute(this::start);
+			}
+		}
+
+		private Map<String, Object> message(String lobbyId, String type, Object content) {
+			Map<String, Object> message = new HashMap<>();
+			message.put("lobbyId", lobbyId);
+			message.put("type", type);
+			message.put("content", content);
+			return message;
+		}
+
+		private void close() {
+			white.close();
+			black.close();
+		}
+	}
+
+	/**
+	 * One STOMP connection, subscribed to {@code /topic/game} like the browser client.
+	 */
+	private final class Player extends StompSessionHandlerAdapter {
+		private final Game game;
+		private final boolean isWhite;
+		private volatile StompSession session;
+
+		private Player(Game game, boolean isWhite) {
+			this.game = game;
+			this.isWhite = isWhite;
+		}
+
+		private CompletableFuture<StompSession> connect() {
+			return stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", this);
+		}
+
+		@Override
+		public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+			this.session = session;
+			session.subscribe("/topic/game", new StompFrameHandler() {
+				@Override
+				public Type getPayloadType(StompHeaders headers) {
+					return byte[].class;
+				}
+
+				@Override
+				public void handleFrame(StompHeaders headers, Object payload) {
+					onGameEvent((byte[]) payload);
+				}
+			});
+		}
+
+		private void onGameEvent(byte[] payload) {
+			if (!isForLobby(payload, game.lobbyId)) {
+				return;
+			}
+			try {
+				game.onEvent(this, objectMapper.readTree(payload));
+			} catch (IOException e) {
+				errors.incrementAndGet();
+			}
+		}
+
+		@Override
+		public Type getPayloadType(StompHeaders headers) {
+			return byte[].class;
+		}
+
+		@Override
+		public void handleFrame(StompHeaders headers, Object payload) {
+			// ERROR frames from the server
+			errors.incrementAndGet();
+		}
+
+		@Override
+		public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+			errors.incrementAndGet();
+		}
+
+		@Override
+		public void handleTransportError(StompSession session, Throwable exception) {
+			if (running) {
+				errors.incrementAndGet();
+			}
+		}
+
+		private void send(String destination, Map<String, Object> message) {
+			StompHeaders headers = new StompHeaders();
+			headers.setDestination(destination);
+			headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+			try {
+				session.send(headers, objectMapper.writeValueAsBytes(message));
+			} catch (Exception e) {
+				errors.incrementAndGet();
+			}
+		}
+
+		private void close() {
+			if (session != null && session.isConnected()) {
+				session.disconnect();
+			}
+		}
+	}
+
+	/**
+	 * A connection that only sends frames to the flood destination and never plays. The
+	 * server throttles most of them, which is part of what the flooded half measures.
+	 */
+	private final class Flooder extends StompSessionHandlerAdapter {
+		private volatile StompSession session;
+
+		private CompletableFuture<StompSession> connect() {
+			return stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", this);
+		}
+
+		@Override
+		public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+			this.session = session;
+		}
+
+		private void send() {
+			if (!running) {
+				return;
+			}
+			StompHeaders headers = new StompHeaders();
+			headers.setDestination(FLOOD_DESTINATION);
+			headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+			try {
+				session.send(headers, FLOOD_PAYLOAD);
+				floodFrames.incrementAndGet();
+			} catch (Exception e) {
+				errors.incrementAndGet();
+			}
+		}
+
+		private void close() {
+			if (session != null && session.isConnected()) {
+				session.disconnect();
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.jeremy.chess.model;
+
+import com.jeremy.chess.util.ChessUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the heap each lobby retains. Lobbies are measured in bulk so objects they all
+ * share, like the start position, are spread across them instead of charged to each one.
+ */
+class LobbyFootprintTest {
+
+	private static final int LOBBIES = 1000;
+	private static final long BUDGET = 1024;
+	private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "e1f1", "g8f6"};
+
+	@Test
+	void idleLobbyFitsBudget(TestReporter reporter) {
+		Lobby[] lobbies = new Lobby[LOBBIES];
+		for (int i = 0; i < LOBBIES; i++) {
+			lobbies[i] = new Lobby("Lobby " + i);
+		}
+		long perLobby = retainedPerLobby(lobbies);
+		reporter.publishEntry("idleLobbyBytes", Long.toString(perLobby));
+		assertTrue(perLobby < BUDGET, "Idle lobby retains " + perLobby + " bytes, budget is " + BUDGET);
+	}
+
+	@Test
+	void lobbyAfterOpeningFitsBudget(TestReporter reporter) {
+		Lobby[] lobbies = new Lobby[LOBBIES];
+		for (int i = 0; i < LOBBIES; i++) {
+			lobbies[i] = new Lobby("Lobby " + i);
+			for (String move : OPENING) {
+				play(lobbies[i], move);
+			}
+		}
+		long perLobby = retainedPerLobby(lobbies);
+		reporter.publishEntry("lobbyAfterOpeningBytes", Long.toString(perLobby));
+		assertTrue(perLobby < BUDGET, "Lobby after the opening retains " + perLobby + " bytes, budget is " + BUDGET);
+	}
+
+	@Test
+	void startPositionIsShared() {
+		Lobby first = new Lobby();
+		Lobby second = new Lobby();
+		assertSame(first.getBoardState(), second.getBoardState());
+		assertThrows(UnsupportedOperationException.class, () -> first.getBoardState().set(0, ""));
+	}
+
+	private static long retainedPerLobby(Lobby[] lobbies) {
+		long total = GraphLayout.parseInstance((Object) lobbies).totalSize() - VM.current().sizeOf(lobbies);
+		return total / lobbies.length;
+	}
+
+	private static void play(Lobby lobby, String move) {
+		Board board = new Board(lobby.getBoardState());
+		int from = ChessUtils.notationToIndex(move.substring(0, 2));
+		int to = ChessUtils.notationToIndex(move.substring(2, 4));
+		board.set(to, board.get(from));
+		board.set(from, "");
+		lobby.playMove(board, from, to);
+	}
+}
@@ -0,0 +1,111 @@
+package com.jeremy.chess.model;
+
+import com.jeremy.chess.util.ChessUtils;
+import com.jeremy.chess.util.Fen;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveHistoryTest {
+
+	// Morphy's Opera game: 33 plies, so two checkpoints, with queenside castling and a mate
+	private static final String[] OPERA = {
+		"e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5",
+		"f1c4", "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5",
+		"c4b5", "b8d7", "e1c1", "a8d8", "d1d7", "d8d7", "h1d1", "e7e6", "b5d7", "f6d7",
+		"b3b8", "d7b8", "d1d8"
+	};
+
+	@Test
+	void packsEveryField() {
+		int move = MoveHistory.encode(63, 0, 11, 12, true, 15, 127);
+		assertEquals(63, MoveHistory.from(move));
+		assertEquals(0, MoveHistory.to(move));
+		assertEquals(15, MoveHistory.castlingRights(move));
+		assertEquals(127, MoveHistory.halfmoveClock(move));
+		assertEquals("h1a8q", MoveHistory.toUci(move));
+
+		assertEquals(127, MoveHistory.halfmoveClock(MoveHistory.encode(0, 1, 1, 0, false, 0, 500)));
+		assertEquals("e2e4", MoveHistory.toUci(MoveHistory.encode(52, 36, 1, 0, false, 15, 0)));
+	}
+
+	@Test
+	void rebuildsEveryPositionAcrossCheckpoints() {
+		Lobby lobby = new Lobby("Opera");
+		List<Board> played = play(lobby, OPERA);
+
+		assertTrue(lobby.isGameOver());
+		for (int ply = 0; ply < played.size(); ply++) {
+			assertEquals(played.get(ply), lobby.getPositionAt(ply), "Position at ply " + ply);
+		}
+		assertEquals("e1c1", lobby.getMoveAt(22));
+		assertThrows(IllegalArgumentException.class, () -> lobby.getPositionAt(played.size()));
+	}
+
+	@Test
+	void takeBackBelowCheckpointOverwritesIt() {
+		Lobby lobby = new Lobby("Takeback");
+		List<Board> played = play(lobby, Arrays.copyOf(OPERA, 20));
+
+		assertTrue(lobby.takeBack(6));
+		assertEquals(played.get(14), lobby.getBoardState());
+		assertEquals(14, lobby.getMoveNumber());
+
+		List<Board> replayed = play(lobby, new String[] {"h2h3", "h7h6", "a2a3", "a7a6", "g2g3", "g7g6"});
+		for (int ply = 0; ply < replayed.size(); ply++) {
+			assertEquals(replayed.get(ply), lobby.getPositionAt(14 + ply), "Position at ply " + (14 + ply));
+		}
+	}
+
+	@Test
+	void undoRestoresCaptureAndPromotion() {
+		Board board = new Board(Fen.parseBoard("3r3k/4P3/8/8/8/8/8/4K3 w - - 0 1"));
+		Board before = new Board(board);
+		int from = ChessUtils.notationToIndex("e7");
+		int to = ChessUtils.notationToIndex("d8");
+		int move = MoveHistory.encode(from, to, 5, board.code(to), true, 0, 3);  // Promotes to a white queen
+		MoveHistory history = new MoveHistory();
+		history.push(move, board);
+
+		MoveHistory.play(board, move);
+		assertEquals("wQ", board.get(to));
+		assertEquals("", board.get(from));
+		assertEquals("e7d8q", MoveHistory.toUci(move));
+
+		MoveHistory.undo(board, history.pop());
+		assertEquals(before, board);
+		assertEquals(0, history.size());
+	}
+
+	/**
+	 * Plays moves the way the move path does, moving the rook along when a king castles.
+	 *
+	 * @return The board before each move and after the last one
+	 */
+	private static List<Board> play(Lobby lobby, String[] moves) {
+		List<Board> played = new ArrayList<>();
+		played.add(new Board(lobby.getBoardState()));
+		for (String move : moves) {
+			Board board = new Board(lobby.getBoardState());
+			int from = ChessUtils.notationToIndex(move.substring(0, 2));
+			int to = ChessUtils.notationToIndex(move.substring(2, 4));
+			String piece = board.get(from);
+			board.set(to, piece);
+			board.set(from, "");
+			if (piece.endsWith("K") && Math.abs(to - from) == 2) {
+				int rookFrom = to > from ? from + 3 : from - 4;
+				board.set((from + to) / 2, board.get(rookFrom));
+				board.set(rookFrom, "");
+			}
+			lobby.playMove(board, from, to);
+			played.add(new Board(board));
+		}
+		return played;
+	}
+}
@@ -0,0 +1,96 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.Board;
+import com.jeremy.chess.model.ChessMove;
+import com.jeremy.chess.model.Lobby;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays games through the live move path and checks that the recorded history rebuilds
+ * and takes back exactly the positions that were played.
+ */
+@SpringBootTest(properties = {
+	"logging.level.com.jeremy.chess=WARN",
+	"chess.ratings.file=build/test/ratings.csv",
+	"chess.ratings.archive=build/test/results.csv",
+	"chess.explorer.file=build/test/explorer.bin",
+	"chess.games.file=build/test/games.bin"
+})
+class ChessServiceHistoryTest {
+
+	// 5. cxd6 takes a knight with a black pawn beside the target on d5, which must survive;
+	// 2...d5 also allows en passant, which is let lapse. Runs past one checkpoint and castles both ways.
+	private static final String[] GAME = {
+		"c2c4", "g8f6", "c4c5", "d7d5", "a2a3", "f6e4", "a3a4", "e4d6", "c5d6", "e7d6",
+		"b1c3", "b8c6", "g1f3", "f8e7", "g2g3", "e8g8", "f1g2", "f8e8", "e1g1", "c8f5"
+	};
+
+	@Autowired
+	private ChessService chessService;
+
+	@Test
+	void historyReplaysCaptureBesidePawn() {
+		Lobby lobby = chessService.createPairedLobby("History", "white", "black", 0, 0);
+		List<Board> played = play(lobby, GAME);
+
+		assertEquals("bP", lobby.getBoardState().get(27), "Pawn on d5 was removed by cxd6");
+		for (int ply = 0; ply < played.size(); ply++) {
+			assertEquals(played.get(ply), lobby.getPositionAt(ply), "Position at ply " + ply);
+		}
+	}
+
+	@Test
+	void takebacksRestorePlayedPositions() {
+		Lobby lobby = chessService.createPairedLobby("Takeback", "white", "black", 0, 0);
+		List<Board> played = play(lobby, GAME);
+
+		for (int ply = GAME.length - 1; ply >= 0; ply--) {
+			synchronized (lobby) {
+				assertTrue(lobby.takeBack(1), "Take back to ply " + ply);
+			}
+			assertEquals(played.get(ply), lobby.getBoardState(), "Board after taking back to ply " + ply);
+		}
+	}
+
+	@Test
+	void enPassantReplays() {
+		Lobby lobby = chessService.createPairedLobby("En passant", "white", "black", 0, 0);
+		List<Board> played = play(lobby, new String[] {"e2e4", "a7a6", "e4e5", "d7d5", "e5d6"});
+
+		assertEquals("", lobby.getBoardState().get(27), "Pawn on d5 was not taken en passant");
+		for (int ply = 0; ply < played.size(); ply++) {
+			assertEquals(played.get(ply), lobby.getPositionAt(ply), "Position at ply " + ply);
+		}
+		synchronized (lobby) {
+			assertTrue(lobby.takeBack(1));
+		}
+		assertEquals(played.get(4), lobby.getBoardState());
+	}
+
+	/**
+	 * Plays moves, alternating the seated players.
+	 *
+	 * @return The board before each move and after the last one
+	 */
+	private List<Board> play(Lobby lobby, String[] moves) {
+		List<Board> played = new ArrayList<>();
+		played.add(new Board(lobby.getBoardState()));
+		for (String move : moves) {
+			int before = lobby.getMoveNumber();
+			String player = lobby.isWhiteTurn() ? "white" : "black";
+			chessService.makeMoveForSnapshot(lobby.getId(),
+				new ChessMove(move.substring(0, 2), move.substring(2, 4), null), player);
+			assertEquals(before + 1, lobby.getMoveNumber(), "Move " + move + " was rejected");
+			played.add(new Board(lobby.getBoardState()));
+		}
+		return played;
+	}
+}
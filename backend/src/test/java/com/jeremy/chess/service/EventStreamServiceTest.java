@@ -0,0 +1,164 @@
+package com.jeremy.chess.service;
+
+import com.jeremy.chess.model.GameMessage;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Follows a lobby's events over the SSE stream and the long poll.
+ */
+@SpringBootTest(properties = {
+	"logging.level.com.jeremy.chess=WARN",
+	"chess.events.history-size=64",
+	"chess.ratings.file=build/test/ratings.csv",
+	"chess.ratings.archive=build/test/results.csv",
+	"chess.explorer.file=build/test/explorer.bin",
+	"chess.games.file=build/test/games.bin"
+})
+@AutoConfigureMockMvc
+class EventStreamServiceTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ChessService chessService;
+
+	@Autowired
+	private GameEventLog gameEventLog;
+
+	private String lobbyId;
+
+	@BeforeEach
+	void createLobby() {
+		lobbyId = chessService.createPairedLobby("Events", "white", "black", 0, 0).getId();
+	}
+
+	@Test
+	void streamReplaysThenFollowsInOrder() throws Exception {
+		long lastSeen = publish(3) - 2;
+		MvcResult result = mockMvc.perform(get("/game/events/{lobbyId}", lobbyId)
+						.header("Last-Event-ID", Long.toString(lastSeen)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		// Published while the stream is replaying and registering, so some race it
+		long last = publish(30);
+
+		List<Long> ids = awaitIds(result, last);
+		List<Long> expected = new ArrayList<>();
+		for (long sequence = lastSeen + 1; sequence <= last; sequence++) {
+			expected.add(sequence);
+		}
+		assertEquals(expected, ids);
+	}
+
+	@Test
+	void pollAnswersAtOnceWithMissedEvents() throws Exception {
+		long last = publish(3);
+		MvcResult result = mockMvc.perform(get("/game/events/{lobbyId}", lobbyId).param("since", Long.toString(last - 2)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(EventStreamService.SEQUENCE_HEADER, Long.toString(last)))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].sequence").value(last - 1));
+	}
+
+	@Test
+	void pollWaitsForNextEvent() throws Exception {
+		long last = publish(1);
+		MvcResult result = mockMvc.perform(get("/game/events/{lobbyId}", lobbyId).param("since", Long.toString(last)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		long next = publish(1);
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(EventStreamService.SEQUENCE_HEADER, Long.toString(next)))
+				.andExpect(jsonPath("$[0].sequence").value(next));
+	}
+
+	@Test
+	void pollTimesOutWithNoContent() throws Exception {
+		long last = publish(1);
+		MvcResult result = mockMvc.perform(get("/game/events/{lobbyId}", lobbyId).param("since", Long.toString(last)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		// The mock container never times requests out, so fire the timeout as a container would
+		MockAsyncContext context = (MockAsyncContext) result.getRequest().getAsyncContext();
+		for (AsyncListener listener : context.getListeners()) {
+			listener.onTimeout(new AsyncEvent(context));
+		}
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isNoContent())
+				.andExpect(header().string(EventStreamService.SEQUENCE_HEADER, Long.toString(last)));
+	}
+
+	@Test
+	void pollIsGoneOnceEventsLeaveLog() throws Exception {
+		long last = publish(100);
+		MvcResult result = mockMvc.perform(get("/game/events/{lobbyId}", lobbyId).param("since", "0"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isGone())
+				.andExpect(header().string(EventStreamService.SEQUENCE_HEADER, Long.toString(last)));
+	}
+
+	/**
+	 * Publishes chat events to the lobby.
+	 *
+	 * @return The sequence number of the last one
+	 */
+	private long publish(int count) {
+		long sequence = -1;
+		for (int i = 0; i < count; i++) {
+			sequence = gameEventLog.publish(lobbyId, new GameMessage(lobbyId, "CHAT", "Message " + i, true));
+		}
+		return sequence;
+	}
+
+	/**
+	 * Waits until the stream has sent an event with the given ID.
+	 *
+	 * @return The IDs sent so far, in the order they were sent
+	 */
+	private static List<Long> awaitIds(MvcResult result, long last) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		List<Long> ids = List.of();
+		while (System.nanoTime() < deadline) {
+			ids = new ArrayList<>();
+			for (String line : result.getResponse().getContentAsString().split("\n")) {
+				if (line.startsWith("id:")) {
+					ids.add(Long.parseLong(line.substring(3).trim()));
+				}
+			}
+			if (!ids.isEmpty() && ids.get(ids.size() - 1) == last) {
+				return ids;
+			}
+			Thread.sleep(10);
+		}
+		return fail("Stream stopped at " + ids);
+	}
+}
@@ -0,0 +1,104 @@
+package com.jeremy.chess.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpectatorServiceTest {
+
+	private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private SpectatorService spectatorService;
+
+	@BeforeEach
+	void create() {
+		spectatorService = new SpectatorService();
+		ReflectionTestUtils.setField(spectatorService, "messagingTemplate",
+				new SimpMessagingTemplate((message, timeout) -> sent.add(message)));
+		ReflectionTestUtils.setField(spectatorService, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(spectatorService, "inFlightTimeoutMillis", 5000L);
+		spectatorService.registerMetrics();
+	}
+
+	@Test
+	void sendsOneFrameAtATime() {
+		spectatorService.addSpectator("lobby", "session", state(0));
+		spectatorService.publish("lobby", state(1));
+		assertEquals(List.of("0"), payloads());
+
+		spectatorService.onDelivered("session");
+		assertEquals(List.of("0", "1"), payloads());
+		spectatorService.onDelivered("session");
+		assertEquals(List.of("0", "1"), payloads());
+		assertEquals(2, frames("sent"));
+		assertEquals(0, frames("dropped"));
+	}
+
+	@Test
+	void newerStateReplacesPendingFrame() {
+		spectatorService.addSpectator("lobby", "session", state(0));
+		for (int move = 1; move <= 5; move++) {
+			spectatorService.publish("lobby", state(move));
+		}
+		spectatorService.onDelivered("session");
+
+		assertEquals(List.of("0", "5"), payloads());
+		assertEquals(4, frames("dropped"));
+	}
+
+	@Test
+	void slowSpectatorDoesNotHoldBackOthers() {
+		spectatorService.addSpectator("lobby", "slow", null);
+		spectatorService.addSpectator("lobby", "fast", null);
+		spectatorService.publish("lobby", state(1));
+		spectatorService.onDelivered("fast");
+		spectatorService.publish("lobby", state(2));
+
+		assertEquals(List.of("1", "1", "2"), payloads());
+		assertEquals(0, frames("dropped"));
+	}
+
+	@Test
+	void unconfirmedFrameTimesOut() throws InterruptedException {
+		ReflectionTestUtils.setField(spectatorService, "inFlightTimeoutMillis", 50L);
+		spectatorService.addSpectator("lobby", "session", state(0));
+		spectatorService.publish("lobby", state(1));
+		assertEquals(List.of("0"), payloads());
+
+		Thread.sleep(100);
+		spectatorService.publish("lobby", state(2));
+		assertEquals(List.of("0", "2"), payloads());
+		assertEquals(1, frames("dropped"));
+	}
+
+	@Test
+	void removedSpectatorGetsNothing() {
+		spectatorService.addSpectator("lobby", "session", null);
+		spectatorService.removeSpectator("session");
+		spectatorService.publish("lobby", state(1));
+		spectatorService.onDelivered("session");
+
+		assertEquals(List.of(), payloads());
+	}
+
+	private static byte[] state(int move) {
+		return Integer.toString(move).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private List<String> payloads() {
+		return sent.stream().map(message -> new String((byte[]) message.getPayload(), StandardCharsets.UTF_8)).toList();
+	}
+
+	private double frames(String outcome) {
+		return meterRegistry.get("chess.spectator.frames").tag("outcome", outcome).counter().count();
+	}
+}
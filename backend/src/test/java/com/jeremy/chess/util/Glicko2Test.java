@@ -0,0 +1,46 @@
+package com.jeremy.chess.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Glicko2Test {
+
+	@Test
+	void matchesGlickmansWorkedExample() {
+		// "Example of the Glicko-2 system": a 1500/200/0.06 player beats a 1400/30 player
+		// and loses to 1550/100 and 1700/300 players in one rating period
+		Glicko2.Rating player = new Glicko2.Rating(1500, 200, 0.06);
+		Glicko2.Rating after = Glicko2.rate(player, List.of(
+			new Glicko2.Result(new Glicko2.Rating(1400, 30, 0.06), 1.0),
+			new Glicko2.Result(new Glicko2.Rating(1550, 100, 0.06), 0.0),
+			new Glicko2.Result(new Glicko2.Rating(1700, 300, 0.06), 0.0)));
+
+		// The paper rounds its intermediate values and prints 1464.06
+		assertEquals(1464.06, after.getRating(), 0.02);
+		assertEquals(151.52, after.getDeviation(), 0.01);
+		assertEquals(0.05999, after.getVolatility(), 0.00001);
+	}
+
+	@Test
+	void inactivityOnlyWidensDeviation() {
+		Glicko2.Rating player = new Glicko2.Rating(1700, 80, 0.06);
+		Glicko2.Rating after = Glicko2.rate(player, List.of());
+
+		assertEquals(1700, after.getRating());
+		assertEquals(0.06, after.getVolatility());
+		assertTrue(after.getDeviation() > 80 && after.getDeviation() < 81, "Deviation " + after.getDeviation());
+	}
+
+	@Test
+	void drawBetweenEqualsChangesNothing() {
+		Glicko2.Rating after = Glicko2.rate(Glicko2.initialRating(),
+			List.of(new Glicko2.Result(Glicko2.initialRating(), 0.5)));
+
+		assertEquals(Glicko2.DEFAULT_RATING, after.getRating(), 1e-9);
+		assertTrue(after.getDeviation() < Glicko2.DEFAULT_DEVIATION);
+	}
+}
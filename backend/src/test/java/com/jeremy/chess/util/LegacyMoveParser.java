@@ -0,0 +1,53 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.ChessMove;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based natural language parser that {@link MoveParser} replaced, kept as the
+ * benchmark baseline.
+ */
+final class LegacyMoveParser {
+	private static final Map<String, String> PIECE_NAMES = new HashMap<>();
+	static {
+		PIECE_NAMES.put("KNIGHT", "N");
+		PIECE_NAMES.put("BISHOP", "B");
+		PIECE_NAMES.put("ROOK", "R");
+		PIECE_NAMES.put("QUEEN", "Q");
+		PIECE_NAMES.put("KING", "K");
+		PIECE_NAMES.put("PAWN", "P");
+	}
+
+	private LegacyMoveParser() {
+	}
+
+	static ChessMove parseNaturalLanguage(String command, boolean isWhite, ArrayList<String> boardState) {
+		command = command.toUpperCase().trim();
+		Pattern pattern = Pattern.compile("(KNIGHT|BISHOP|ROOK|QUEEN|KING|PAWN)\\s+TO\\s+([A-H][1-8])");
+		Matcher matcher = pattern.matcher(command);
+		if (matcher.find()) {
+			String targetSquare = matcher.group(2).toLowerCase();
+			String pieceString = (isWhite ? "w" : "b") + PIECE_NAMES.get(matcher.group(1));
+			for (int i = 0; i < boardState.size(); i++) {
+				if (boardState.get(i).equals(pieceString)) {
+					String sourceSquare = ChessUtils.indexToNotation(i);
+					if (MoveValidator.isValidMove(pieceString, sourceSquare, targetSquare, boardState)) {
+						return new ChessMove(sourceSquare, targetSquare, null);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	static boolean isNaturalLanguageCommand(String message) {
+		String upperMessage = message.toUpperCase().trim();
+		return upperMessage.contains(" TO ") &&
+			PIECE_NAMES.keySet().stream().anyMatch(piece -> upperMessage.contains(piece));
+	}
+}
@@ -0,0 +1,106 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.Lobby;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LobbyIndexTest {
+
+	private final LobbyIndex index = new LobbyIndex();
+
+	@Test
+	void pagesAcrossStatusChange() {
+		Lobby[] lobbies = addAll("A", "B", "C", "D", "E");
+
+		LobbyIndex.Page first = index.find(LobbyIndex.Status.OPEN, null, null, 2, false);
+		assertEquals(List.of("A", "B"), names(first));
+		assertNotNull(first.getNextCursor());
+
+		// One lobby already listed and one not yet reached fill up between pages
+		seat(lobbies[0]);
+		seat(lobbies[2]);
+
+		LobbyIndex.Page second = index.find(LobbyIndex.Status.OPEN, null, first.getNextCursor(), 2, false);
+		assertEquals(List.of("D", "E"), names(second));
+		assertNull(second.getNextCursor());
+		assertEquals(List.of("A", "C"), names(index.find(LobbyIndex.Status.IN_PROGRESS, null, null, 10, false)));
+
+		lobbies[2].endGame("White", "Resignation");
+		index.update(lobbies[2]);
+		assertEquals(List.of("A"), names(index.find(LobbyIndex.Status.IN_PROGRESS, null, null, 10, false)));
+		assertEquals(List.of("C"), names(index.find(LobbyIndex.Status.FINISHED, null, null, 10, false)));
+	}
+
+	@Test
+	void pagesNewestFirst() {
+		addAll("A", "B", "C", "D", "E");
+
+		LobbyIndex.Page first = index.find(null, null, null, 2, true);
+		assertEquals(List.of("E", "D"), names(first));
+		LobbyIndex.Page second = index.find(null, null, first.getNextCursor(), 2, true);
+		assertEquals(List.of("C", "B"), names(second));
+		LobbyIndex.Page third = index.find(null, null, second.getNextCursor(), 2, true);
+		assertEquals(List.of("A"), names(third));
+		assertNull(third.getNextCursor());
+	}
+
+	@Test
+	void combinesNamePrefixWithStatus() {
+		Lobby[] lobbies = addAll("Blitz one", "blitz two", "Bullet", "BLITZ three", "Rapid");
+		lobbies[1].endGame("Draw", "Agreement");
+		index.update(lobbies[1]);
+
+		assertEquals(List.of("Blitz one", "BLITZ three"),
+				names(index.find(LobbyIndex.Status.OPEN, "blitz", null, 10, false)));
+		assertEquals(List.of("blitz two"), names(index.find(LobbyIndex.Status.FINISHED, "Blitz", null, 10, false)));
+		assertEquals(List.of("Blitz one", "blitz two", "Bullet", "BLITZ three"),
+				names(index.find(null, "b", null, 10, false)));
+
+		LobbyIndex.Page first = index.find(LobbyIndex.Status.OPEN, "bl", null, 2, true);
+		assertEquals(List.of("BLITZ three", "Bullet"), names(first));
+		LobbyIndex.Page second = index.find(LobbyIndex.Status.OPEN, "bl", first.getNextCursor(), 2, true);
+		assertEquals(List.of("Blitz one"), names(second));
+		assertNull(second.getNextCursor());
+	}
+
+	@Test
+	void removesLobbies() {
+		Lobby[] lobbies = addAll("A", "B", "C");
+		index.remove(lobbies[1].getId());
+		index.remove(lobbies[1].getId());
+
+		assertEquals(2, index.size());
+		assertEquals(List.of("A", "C"), names(index.find(LobbyIndex.Status.OPEN, null, null, 10, false)));
+		assertEquals(List.of(), names(index.find(null, "b", null, 10, false)));
+	}
+
+	@Test
+	void rejectsMalformedCursor() {
+		assertThrows(IllegalArgumentException.class, () -> index.find(null, null, "not a cursor!", 10, false));
+	}
+
+	private Lobby[] addAll(String... names) {
+		Lobby[] lobbies = new Lobby[names.length];
+		for (int i = 0; i < names.length; i++) {
+			lobbies[i] = new Lobby(names[i]);
+			index.add(lobbies[i]);
+		}
+		return lobbies;
+	}
+
+	private void seat(Lobby lobby) {
+		lobby.setWhitePlayerId("white-" + lobby.getName());
+		lobby.setBlackPlayerId("black-" + lobby.getName());
+		index.update(lobby);
+	}
+
+	private static List<String> names(LobbyIndex.Page page) {
+		return page.getLobbies().stream().map(Lobby::getName).toList();
+	}
+}
@@ -0,0 +1,72 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.ChessMove;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the chat-line cost of {@link MoveParser} with the regex parser it replaced, on a mix
+ * of moves and ordinary chat. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class MoveParserBenchmark {
+
+	private static final String[] MESSAGES = {
+		"Knight to f3", "good luck!", "pawn to e4", "Bishop to b5", "going to move my queen to h5 lol", "gg",
+	};
+	private static final int WARMUP = 200_000;
+	private static final int ITERATIONS = 1_000_000;
+
+	private static volatile int sink;  // Keeps the parse results live
+
+	@Test
+	void compareWithLegacyParser() {
+		ArrayList<String> board = Fen.parseBoard(Fen.START);
+		for (String message : MESSAGES) {
+			ChessMove expected = LegacyMoveParser.isNaturalLanguageCommand(message)
+				? LegacyMoveParser.parseNaturalLanguage(message, true, board) : null;
+			ChessMove actual = MoveParser.parse(message, true, board);
+			assertEquals(expected == null ? null : expected.getFrom() + expected.getTo(),
+				actual == null ? null : actual.getFrom() + actual.getTo(), message);
+		}
+
+		runLegacy(board, WARMUP);
+		runCurrent(board, WARMUP);
+		long legacy = runLegacy(board, ITERATIONS);
+		long current = runCurrent(board, ITERATIONS);
+		System.out.printf("Legacy parser:  %,d ns/message%n", legacy / ITERATIONS);
+		System.out.printf("Current parser: %,d ns/message (%.1fx)%n", current / ITERATIONS, (double) legacy / current);
+	}
+
+	private static long runLegacy(ArrayList<String> board, int iterations) {
+		int found = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			String message = MESSAGES[i % MESSAGES.length];
+			if (LegacyMoveParser.isNaturalLanguageCommand(message)
+					&& LegacyMoveParser.parseNaturalLanguage(message, true, board) != null) {
+				found++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += found;
+		return elapsed;
+	}
+
+	private static long runCurrent(ArrayList<String> board, int iterations) {
+		int found = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			if (MoveParser.parse(MESSAGES[i % MESSAGES.length], true, board) != null) {
+				found++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += found;
+		return elapsed;
+	}
+}
@@ -0,0 +1,97 @@
+package com.jeremy.chess.util;
+
+import com.jeremy.chess.model.ChessMove;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveParserTest {
+
+	private static final ArrayList<String> START = Fen.parseBoard(Fen.START);
+
+	@Test
+	void parsesSan() {
+		assertMove("e2", "e4", null, MoveParser.parse("e4", true, START));
+		assertMove("g1", "f3", null, MoveParser.parse("Nf3", true, START));
+		assertMove("g8", "f6", null, MoveParser.parse("Nf6", false, START));
+		assertMove("e7", "e5", null, MoveParser.parse("e5!?", false, START));
+	}
+
+	@Test
+	void parsesCapturesAndPromotions() {
+		ArrayList<String> board = Fen.parseBoard("3r3k/4P3/8/8/8/8/8/4K3 w - - 0 1");
+		assertMove("e7", "d8", "Q", MoveParser.parse("exd8=Q+", true, board));
+		assertMove("e7", "e8", "N", MoveParser.parse("e8N", true, board));
+		assertMove("e7", "d8", "Q", MoveParser.parse("e7d8q", true, board));
+		assertNull(MoveParser.parse("Kxd8=Q", true, board));
+	}
+
+	@Test
+	void disambiguates() {
+		ArrayList<String> board = Fen.parseBoard("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+		assertNull(MoveParser.parse("Rd1", true, board));
+		assertMove("a1", "d1", null, MoveParser.parse("Rad1", true, board));
+		assertMove("h1", "f1", null, MoveParser.parse("Rhf1", true, board));
+
+		board = Fen.parseBoard("4k3/8/8/1N6/8/8/8/1N2K3 w - - 0 1");
+		assertMove("b1", "c3", null, MoveParser.parse("N1c3", true, board));
+		assertMove("b5", "c3", null, MoveParser.parse("N5xc3", true, board));
+		assertMove("b5", "d4", null, MoveParser.parse("Nd4", true, board));
+		assertNull(MoveParser.parse("Nc3", true, board));
+	}
+
+	@Test
+	void ignoresPinnedPieces() {
+		// The knight on c3 is pinned by the bishop on a5, so "Nd4" can only mean the knight on e2
+		ArrayList<String> board = Fen.parseBoard("4k3/8/8/b7/8/2N5/4N3/4K3 w - - 0 1");
+		assertMove("e2", "d4", null, MoveParser.parse("Nd4", true, board));
+	}
+
+	@Test
+	void parsesUci() {
+		assertMove("e2", "e4", null, MoveParser.parse("e2e4", true, START));
+		assertMove("b1", "c3", null, MoveParser.parse("b1-c3", true, START));
+		assertMove("g1", "f3", null, MoveParser.parse("g1f3", true, START));
+		assertNull(MoveParser.parse("e2e5", true, START));
+	}
+
+	@Test
+	void parsesCastling() {
+		ArrayList<String> board = Fen.parseBoard("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		assertMove("e1", "g1", null, MoveParser.parse("O-O", true, board));
+		assertMove("e1", "c1", null, MoveParser.parse("0-0-0", true, board));
+		assertMove("e8", "c8", null, MoveParser.parse("O-O-O+", false, board));
+		assertNull(MoveParser.parse("O-O", true, Fen.parseBoard("4k3/8/8/8/8/8/8/3K3R w - - 0 1")));
+		assertNull(MoveParser.parse("O-0", true, board));
+	}
+
+	@Test
+	void parsesNaturalLanguage() {
+		assertMove("g1", "f3", null, MoveParser.parse("Knight to f3", true, START));
+		assertMove("e7", "e5", null, MoveParser.parse("  pawn  TO E5 ", false, START));
+		assertNull(MoveParser.parse("Knight to e4", true, START));
+		assertTrue(MoveParser.isNaturalLanguageCommand("queen to h5"));
+		assertFalse(MoveParser.isNaturalLanguageCommand("Qh5"));
+	}
+
+	@Test
+	void rejectsChat() {
+		assertNull(MoveParser.parse("", true, START));
+		assertNull(MoveParser.parse("gg", true, START));
+		assertNull(MoveParser.parse("Bad move", true, START));
+		assertNull(MoveParser.parse("hello", true, START));
+		assertNull(MoveParser.parse("Knights to f3", true, START));
+		assertFalse(MoveParser.isNaturalLanguageCommand("going to lunch"));
+	}
+
+	private static void assertMove(String from, String to, String promotion, ChessMove move) {
+		assertEquals(from, move.getFrom());
+		assertEquals(to, move.getTo());
+		assertEquals(promotion, move.getPromotion());
+	}
+}
@@ -0,0 +1,101 @@
+package com.jeremy.chess.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgnReaderTest {
+
+	@Test
+	void readsTagsAndMoves() throws IOException {
+		String pgn = """
+				[Event "Casual \\"Opera\\" game"]
+				[White "Morphy"]
+				[Black "Duke Karl / Count Isouard"]
+				[Result "1-0"]
+
+				1. e4 {King's pawn} e5 2. Nf3 $2 d6 (2... Nc6 3. Bb5) 3. d4 Bg4?! ; rest of line skipped
+				4. dxe5 1-0
+				""";
+		try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+			PgnReader.Game game = reader.next();
+			assertNotNull(game);
+			assertEquals("Casual \"Opera\" game", game.getTags().get("Event"));
+			assertEquals("Duke Karl / Count Isouard", game.getTags().get("Black"));
+			assertEquals(List.of("e4", "e5", "Nf3", "d6", "d4", "Bg4?!", "dxe5"), game.getMoves());
+			assertEquals("1-0", game.getResult());
+			assertNull(game.getError());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void splitsGamesWithoutResultMarker() throws IOException {
+		String pgn = """
+				[White "A"]
+				1. e4 e5
+				[White "B"]
+				1. d4 1/2-1/2
+				""";
+		try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+			PgnReader.Game first = reader.next();
+			assertEquals("A", first.getTags().get("White"));
+			assertEquals(List.of("e4", "e5"), first.getMoves());
+			assertEquals("*", first.getResult());
+			PgnReader.Game second = reader.next();
+			assertEquals("B", second.getTags().get("White"));
+			assertEquals(List.of("d4"), second.getMoves());
+			assertEquals("1/2-1/2", second.getResult());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void rejectsGameOverMoveCap() throws IOException {
+		StringBuilder pgn = new StringBuilder("[White \"Long\"]\n");
+		for (int i = 0; i <= PgnReader.MAX_MOVES; i++) {
+			pgn.append("Nf3 Nf6 Ng1 Ng8 ");
+		}
+		pgn.append("1/2-1/2\n[White \"Next\"]\n1. e4 1-0\n");
+		try (PgnReader reader = new PgnReader(new StringReader(pgn.toString()))) {
+			PgnReader.Game game = reader.next();
+			assertEquals(PgnReader.MAX_MOVES, game.getMoves().size());
+			assertTrue(game.getError().contains("moves"));
+			assertEquals("1/2-1/2", game.getResult());
+			PgnReader.Game next = reader.next();
+			assertEquals("Next", next.getTags().get("White"));
+			assertNull(next.getError());
+		}
+	}
+
+	@Test
+	void rejectsOverlongTokenAndTag() throws IOException {
+		String token = "N".repeat(PgnReader.MAX_TOKEN_LENGTH + 10);
+		String tag = "x".repeat(PgnReader.MAX_TAG_LENGTH + 10);
+		String pgn = "1. " + token + " 1-0\n[Event \"" + tag + "\"]\n1. e4 0-1\n";
+		try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+			PgnReader.Game first = reader.next();
+			assertEquals(PgnReader.MAX_TOKEN_LENGTH, first.getMoves().get(0).length());
+			assertNotNull(first.getError());
+			PgnReader.Game second = reader.next();
+			assertEquals(PgnReader.MAX_TAG_LENGTH, second.getTags().get("Event").length());
+			assertNotNull(second.getError());
+		}
+	}
+
+	@Test
+	void stopsAtEndOfInputAfterEscape() throws IOException {
+		try (PgnReader reader = new PgnReader(new StringReader("[Event \"Cut\\"))) {
+			PgnReader.Game game = reader.next();
+			assertEquals("Cut", game.getTags().get("Event"));
+			assertNull(reader.next());
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.jeremy.chess.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks keys against the test positions published with the Polyglot book format, using
+ * the Random64 table shipped on the classpath.
+ */
+class PolyglotBookTest {
+
+	private static final long START_KEY = 0x463b96181691fc9cL;
+	private static final int ALL_RIGHTS = PolyglotBook.castlingRights(true, true, true, true);
+
+	@TempDir
+	static Path directory;
+
+	private static PolyglotBook book;
+
+	@BeforeAll
+	static void open() throws IOException {
+		Path file = directory.resolve("book.bin");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			writeEntry(out, 0x0000000000000001L, "a2a3", 1);
+			writeEntry(out, START_KEY, "e2e4", 10);
+			writeEntry(out, START_KEY, "d2d4", 5);
+			writeEntry(out, 0x823c9b50fd114196L, "c7c5", 7);
+			writeEntry(out, 0xF000000000000000L, "h2h3", 1);  // Above every other key when compared unsigned
+		}
+		try (InputStream random64 = PolyglotBookTest.class.getResourceAsStream("/polyglot/random64.bin")) {
+			book = PolyglotBook.open(file, random64);
+		}
+	}
+
+	@AfterAll
+	static void close() throws IOException {
+		book.close();
+	}
+
+	@Test
+	void keysMatchPublishedPositions() {
+		assertKey(START_KEY, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", -1);
+		assertKey(0x823c9b50fd114196L, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", 4);
+		assertKey(0x0756b94461c50fb0L, "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", 3);
+		assertKey(0x662fafb965db29d4L, "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", -1);
+		assertKey(0x652a607ca3f242c1L, "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", -1);
+		assertKey(0x00fdd303c946bdd9L, "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", -1);
+		assertKey(0x5c3f9b829b279560L, "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", -1);
+	}
+
+	@Test
+	void keysEnPassantOnlyWhenCapturePossible() {
+		// 3...f5 with a white pawn on e5: the capture is possible, so the file is hashed
+		assertKey(0x22a48b5a8e47ff78L, "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", 5);
+		// 5.c4 beside a black pawn on b4
+		assertKey(0x3c8123ea7b067637L, "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", 2);
+		// 1.e4: no black pawn can take, so the key is the same as without the square
+		List<String> board = Fen.parseBoard("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+		assertEquals(book.key(board, false, ALL_RIGHTS, -1), book.key(board, false, ALL_RIGHTS, 4));
+	}
+
+	@Test
+	void findsMovesForPosition() {
+		List<PolyglotBook.Entry> moves = book.find(Fen.parseBoard(Fen.START), true, ALL_RIGHTS, -1);
+		assertEquals(2, moves.size());
+		assertEquals("e2", moves.get(0).getFrom());
+		assertEquals("e4", moves.get(0).getTo());
+		assertEquals(10, moves.get(0).getWeight());
+		assertNull(moves.get(0).getPromotion());
+		assertEquals("d4", moves.get(1).getTo());
+
+		List<String> afterE4 = Fen.parseBoard("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+		assertEquals("c5", book.find(afterE4, false, ALL_RIGHTS, 4).get(0).getTo());
+		assertTrue(book.find(afterE4, true, ALL_RIGHTS, 4).isEmpty());
+		assertEquals(5, book.size());
+	}
+
+	private static void assertKey(long expected, String fen, int enPassantFile) {
+		String[] fields = fen.split(" ");
+		String castling = fields[2];
+		int rights = PolyglotBook.castlingRights(castling.contains("K"), castling.contains("Q"),
+				castling.contains("k"), castling.contains("q"));
+		long key = book.key(Fen.parseBoard(fen), fields[1].equals("w"), rights, enPassantFile);
+		assertEquals(Long.toHexString(expected), Long.toHexString(key), fen);
+	}
+
+	private static void writeEntry(DataOutputStream out, long key, String move, int weight) throws IOException {
+		int fromFile = move.charAt(0) - 'a';
+		int fromRow = move.charAt(1) - '1';
+		int toFile = move.charAt(2) - 'a';
+		int toRow = move.charAt(3) - '1';
+		out.writeLong(key);
+		out.writeShort(toFile | toRow << 3 | fromFile << 6 | fromRow << 9);
+		out.writeShort(weight);
+		out.writeInt(0);
+	}
+}
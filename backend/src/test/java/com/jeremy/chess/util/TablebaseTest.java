@@ -0,0 +1,71 @@
+package com.jeremy.chess.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TablebaseTest {
+
+	@TempDir
+	static Path directory;
+
+	private static byte[] kqk;
+	private static byte[] krk;
+	private static Tablebase tablebase;
+
+	@BeforeAll
+	static void generate() throws Exception {
+		TablebaseGenerator generator = new TablebaseGenerator(2);
+		kqk = generator.generate("KQK", directory);
+		krk = generator.generate("KRK", directory);
+		tablebase = Tablebase.open(directory);
+	}
+
+	@Test
+	void longestMatesMatchKnownValues() {
+		assertEquals(10, longestMateInMoves(kqk));
+		assertEquals(16, longestMateInMoves(krk));
+	}
+
+	@Test
+	void probesKnownPositions() {
+		assertEquals(2, tablebase.size());
+		assertProbe("7k/8/6K1/8/8/8/8/Q7 w - - 0 1", 1, 1);      // Qa8#
+		assertProbe("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1", -1, 0);    // Already mated
+		assertProbe("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", 0, null);  // Stalemate
+		assertProbe("k7/8/1K6/8/8/8/8/7R w - - 0 1", 1, 1);      // Rh8#
+		assertProbe("8/8/8/8/8/2k5/1R6/7K b - - 0 1", 0, null);  // Kxb2
+		assertProbe("7K/8/6k1/8/8/8/8/q7 b - - 0 1", 1, 1);      // Colors swapped: Qa8#
+	}
+
+	@Test
+	void ignoresPositionsWithoutTable() {
+		assertNull(tablebase.probe(Fen.parseBoard("7k/8/6K1/8/8/8/8/B7 w - - 0 1"), true));
+		assertNull(tablebase.probe(Fen.parseBoard("7k/8/6K1/8/8/8/P7/8 w - - 0 1"), true));
+	}
+
+	private static void assertProbe(String fen, int wdl, Integer distanceToMate) {
+		Tablebase.Result result = tablebase.probe(Fen.parseBoard(fen), fen.contains(" w "));
+		assertEquals(wdl, result.getWdl(), fen);
+		assertEquals(distanceToMate, result.getDistanceToMate(), fen);
+	}
+
+	/**
+	 * Finds the longest forced mate for the winning side to move, in moves.
+	 */
+	private static int longestMateInMoves(byte[] states) {
+		int longest = 0;
+		for (byte state : states) {
+			int plies = (state & 0xFF) - Tablebase.RESOLVED;
+			if (plies > 0 && (plies & 1) == 1) {
+				longest = Math.max(longest, plies);
+			}
+		}
+		return (longest + 1) / 2;
+	}
+}
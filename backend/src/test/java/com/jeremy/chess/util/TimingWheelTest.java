@@ -0,0 +1,108 @@
+package com.jeremy.chess.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+	private static final long TICK_MILLIS = 10;
+	private static final int WHEEL_SIZE = 4;
+
+	private TimingWheel wheel;
+
+	@BeforeEach
+	void start() {
+		wheel = new TimingWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, "timing-wheel-test");
+		wheel.start();
+	}
+
+	@AfterEach
+	void stop() {
+		wheel.stop();
+	}
+
+	@Test
+	void firesAfterSeveralRounds() throws InterruptedException {
+		// 25 ticks on a 4-bucket wheel: the entry passes its bucket six times before firing
+		long delay = 25 * TICK_MILLIS;
+		assertTrue(firingDelayMillis(delay) >= delay);
+	}
+
+	@Test
+	void firesOnTickBoundary() throws InterruptedException {
+		assertTrue(firingDelayMillis(0) >= 0);
+		assertTrue(firingDelayMillis(TICK_MILLIS / 2) >= TICK_MILLIS / 2);
+		assertTrue(firingDelayMillis(TICK_MILLIS) >= TICK_MILLIS);
+		assertTrue(firingDelayMillis(WHEEL_SIZE * TICK_MILLIS) >= WHEEL_SIZE * TICK_MILLIS);
+	}
+
+	@Test
+	void cancelledTaskNeverFires() throws InterruptedException {
+		AtomicInteger fired = new AtomicInteger();
+		CountDownLatch later = new CountDownLatch(1);
+		TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 5 * TICK_MILLIS, TimeUnit.MILLISECONDS);
+		// Shares the bucket with the cancelled entry, so unlinking it must keep this one
+		wheel.schedule(later::countDown, (5 + WHEEL_SIZE) * TICK_MILLIS, TimeUnit.MILLISECONDS);
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		assertTrue(timeout.isCancelled());
+		assertTrue(later.await(1, TimeUnit.SECONDS));
+		assertEquals(0, fired.get());
+	}
+
+	@Test
+	void rescheduleReplacesPreviousDeadline() throws InterruptedException {
+		// The pattern ClockService uses for one lobby: cancel the old deadline on every move
+		AtomicInteger stale = new AtomicInteger();
+		CountDownLatch current = new CountDownLatch(1);
+		TimingWheel.Timeout previous = null;
+		for (int move = 0; move < 100; move++) {
+			if (previous != null) {
+				assertTrue(previous.cancel());
+			}
+			previous = wheel.schedule(stale::incrementAndGet, 3 * TICK_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		assertTrue(previous.cancel());
+		TimingWheel.Timeout last = wheel.schedule(current::countDown, 3 * TICK_MILLIS, TimeUnit.MILLISECONDS);
+		assertTrue(current.await(1, TimeUnit.SECONDS));
+		Thread.sleep(10 * TICK_MILLIS);
+		assertEquals(0, stale.get());
+		assertFalse(last.cancel());
+		assertFalse(last.isCancelled());
+	}
+
+	@Test
+	void failingTaskDoesNotStopWheel() throws InterruptedException {
+		wheel.schedule(() -> {
+			throw new IllegalStateException("Expected");
+		}, 0, TimeUnit.MILLISECONDS);
+		assertTrue(firingDelayMillis(2 * TICK_MILLIS) >= 2 * TICK_MILLIS);
+	}
+
+	/**
+	 * Schedules a task and waits for it to fire.
+	 *
+	 * @return The time from scheduling to firing in milliseconds
+	 */
+	private long firingDelayMillis(long delayMillis) throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		AtomicLong firedAt = new AtomicLong();
+		long scheduledAt = System.nanoTime();
+		wheel.schedule(() -> {
+			firedAt.set(System.nanoTime());
+			fired.countDown();
+		}, delayMillis, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(delayMillis + 1000, TimeUnit.MILLISECONDS), "Task did not fire");
+		return TimeUnit.NANOSECONDS.toMillis(firedAt.get() - scheduledAt);
+	}
+}
@@ -0,0 +1,38 @@
+// Writes .gz and .br variants next to the built text assets so the backend can serve
+// them as-is instead of compressing on every request.
+import fs from 'node:fs';
+import path from 'node:path';
+import zlib from 'node:zlib';
+
+const COMPRESSIBLE = /\.(js|css|html|svg|json|txt)$/;
+const MIN_SIZE = 1024;
+
+export function precompressDirectory(dir) {
+    for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+        const file = path.join(dir, entry.name);
+        if (entry.isDirectory()) {
+            precompressDirectory(file);
+            continue;
+        }
+        if (!COMPRESSIBLE.test(entry.name)) {
+            continue;
+        }
+        const source = fs.readFileSync(file);
+        if (source.length < MIN_SIZE) {
+            continue;
+        }
+        fs.writeFileSync(`${file}.gz`, zlib.gzipSync(source, { level: zlib.constants.Z_BEST_COMPRESSION }));
+        fs.writeFileSync(`${file}.br`, zlib.brotliCompressSync(source, {
+            params: {
+                [zlib.constants.BROTLI_PARAM_MODE]: zlib.constants.BROTLI_MODE_TEXT,
+                [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+                [zlib.constants.BROTLI_PARAM_SIZE_HINT]: source.length,
+            },
+        }));
+    }
+}
+
+// node scripts/precompress.js <dir>
+if (process.argv[1] && path.resolve(process.argv[1]) === path.resolve(new URL(import.meta.url).pathname)) {
+    precompressDirectory(process.argv[2] ?? 'dist');
+}
@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from "react";
 import { Chessboard } from "react-chessboard";
-import WebSocketService from "./services/WebSocketService";
+import WebSocketService, { LOBBY_PAGE_SIZE } from "./services/WebSocketService";
 
 const ChessBoard = ({ lobbyId }) => {
     const [position, setPosition] = useState("start");
@@ -310,6 +310,7 @@ const ChessBoard = ({ lobbyId }) => {
 const MainMenu = () => {
     const [lobbyId, setLobbyId] = useState(null);
     const [lobbies, setLobbies] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [lobbyName, setLobbyName] = useState("");
 
     const createLobby = async () => {
@@ -328,18 +329,31 @@ const MainMenu = () => {
         }
     };
 
+    const showPage = (page, cursor) => {
+        // A first page replaces the list; a later one is appended to it
+        setLobbies(current => cursor ? [...current, ...page.lobbies] : page.lobbies);
+        setNextCursor(page.nextCursor);
+    };
+
+    const loadMoreLobbies = () => {
+        if (nextCursor && !WebSocketService.requestLobbies(nextCursor)) {
+            fetch(`http://localhost:8080/game/lobbies/search?limit=${LOBBY_PAGE_SIZE}&cursor=${encodeURIComponent(nextCursor)}`)
+                .then(response => response.json())
+                .then(page => showPage(page, nextCursor))
+                .catch(error => console.error("Error fetching lobbies:", error));
+        }
+    };
+
     useEffect(() => {
-        // Connect to WebSocket for lobby updates
+        // Connect to WebSocket for lobby pages
         WebSocketService.connect(() => {
-            WebSocketService.subscribeToLobbies((updatedLobbies) => {
-                setLobbies(updatedLobbies);
-            });
+            WebSocketService.subscribeToLobbies(showPage);
         });
 
-        // Initial fetch of lobbies
-        fetch("http://localhost:8080/game/lobbies")
+        // Initial fetch of the first page of lobbies
+        fetch(`http://localhost:8080/game/lobbies/search?limit=${LOBBY_PAGE_SIZE}`)
             .then(response => response.json())
-            .then(data => setLobbies(data))
+            .then(page => showPage(page, null))
             .catch(error => console.error("Error fetching lobbies:", error));
 
         return () => {
@@ -383,6 +397,14 @@ const MainMenu = () => {
                             </li>
                         ))}
                     </ul>
+                    {nextCursor && (
+                        <button
+                            onClick={loadMoreLobbies}
+                            className="mt-3 px-4 py-2 rounded border border-gray-300 bg-white hover:bg-gray-50"
+                        >
+                            More lobbies
+                        </button>
+                    )}
                 </div>
             )}
         </div>
@@ -1,12 +1,16 @@
 import SockJS from 'sockjs-client';
 import { Stomp } from '@stomp/stompjs';
 
+export const LOBBY_PAGE_SIZE = 20;
+
 class WebSocketService {
     constructor() {
         this.stompClient = null;
         this.subscriptions = new Map();
         this.connected = false;
         this.sessionId = null;
+        this.lastSequences = new Map(); // Last event sequence number seen per lobby
+        this.lobbyRequests = []; // Cursors of lobby pages asked for and not yet received
     }
 
     connect(onConnect = () => {}) {
@@ -51,12 +55,22 @@ class WebSocketService {
         }
 
         console.log(`Subscribing to lobby: ${lobbyId}`);
+        const deliver = (gameMessage) => {
+            if (gameMessage.sequence != null) {
+                const last = this.lastSequences.get(lobbyId);
+                if (last != null && gameMessage.sequence <= last) {
+                    return; // Already seen, e.g. replayed while resuming
+                }
+                this.lastSequences.set(lobbyId, gameMessage.sequence);
+            }
+            onMessage(gameMessage);
+        };
         const subscription = this.stompClient.subscribe('/topic/game', message => {
             console.log('Received message:', message.body);
             try {
                 const gameMessage = JSON.parse(message.body);
                 if (gameMessage.lobbyId === lobbyId) {
-                    onMessage(gameMessage);
+                    deliver(gameMessage);
                 }
             } catch (error) {
                 console.error('Error processing message:', error);
@@ -64,6 +78,30 @@ class WebSocketService {
         });
 
         this.subscriptions.set(lobbyId, subscription);
+
+        // Coming back to a lobby after a reconnect: fetch only what was missed
+        if (this.lastSequences.has(lobbyId)) {
+            this.resume(lobbyId, deliver);
+        }
+    }
+
+    resume(lobbyId, deliver) {
+        const subscription = this.stompClient.subscribe('/user/queue/resume', message => {
+            subscription.unsubscribe();
+            const reply = JSON.parse(message.body);
+            if (reply.type === 'EVENTS') {
+                reply.content.forEach(deliver);
+            } else {
+                // Too far behind (or the server restarted): the reply is the full state
+                this.lastSequences.delete(lobbyId);
+                deliver(reply);
+            }
+        });
+        this.stompClient.send("/app/resume", {}, JSON.stringify({
+            lobbyId: lobbyId,
+            type: "RESUME",
+            content: this.lastSequences.get(lobbyId)
+        }));
     }
 
     unsubscribe(lobbyId) {
@@ -128,14 +166,17 @@ class WebSocketService {
 
     // Chat message subscriptions
     subscribeToChatMessages(lobbyId, callback) {
-        const subscription = this.stompClient.subscribe(
-            `/topic/chat/${lobbyId}`,
-            (message) => {
-                const chatMessage = JSON.parse(message.body);
-                callback(chatMessage);
-            }
-        );
+        // Bursts arrive as one array; the history is replayed once on subscribe
+        const deliver = (message) => {
+            const body = JSON.parse(message.body);
+            (Array.isArray(body) ? body : [body]).forEach(callback);
+        };
+        const subscription = this.stompClient.subscribe(`/topic/chat/${lobbyId}`, deliver);
         this.subscriptions.set(`chat_${lobbyId}`, subscription);
+        const history = this.stompClient.subscribe(`/app/chat/${lobbyId}`, (message) => {
+            deliver(message);
+            history.unsubscribe();
+        });
     }
 
     unsubscribeFromChat(lobbyId) {
@@ -187,30 +228,43 @@ class WebSocketService {
             return;
         }
 
+        // Pages come back in the order they were asked for, so each reply answers the oldest request
+        this.lobbyRequests = [];
         console.log('Subscribing to lobbies');
-        const subscription = this.stompClient.subscribe('/topic/lobbies', message => {
-            console.log('Received lobbies update:', message.body);
+        const subscription = this.stompClient.subscribe('/user/queue/lobbies', message => {
+            const cursor = this.lobbyRequests.shift() ?? null;
             try {
-                const lobbies = JSON.parse(message.body);
-                console.log('Parsed lobbies:', lobbies);
-                if (!Array.isArray(lobbies)) {
-                    console.error('Received lobbies is not an array:', lobbies);
+                const reply = JSON.parse(message.body);
+                if (reply.type !== 'LOBBY_PAGE' || !Array.isArray(reply.content?.lobbies)) {
+                    console.error('Received lobbies is not a page:', reply);
                     return;
                 }
-                callback(lobbies);
+                callback(reply.content, cursor);
             } catch (error) {
-                console.error('Error processing lobbies update:', error);
+                console.error('Error processing lobbies page:', error);
             }
         });
 
         this.subscriptions.set('lobbies', subscription);
     }
 
+    requestLobbies(cursor = null, limit = LOBBY_PAGE_SIZE) {
+        if (!this.stompClient || !this.connected || !this.subscriptions.has('lobbies')) {
+            console.error('Not subscribed to lobbies, cannot request them');
+            return false;
+        }
+
+        this.lobbyRequests.push(cursor);
+        this.stompClient.send("/app/lobbies/search", {}, JSON.stringify(cursor ? { cursor, limit } : { limit }));
+        return true;
+    }
+
     unsubscribeFromLobbies() {
         const subscription = this.subscriptions.get('lobbies');
         if (subscription) {
             subscription.unsubscribe();
             this.subscriptions.delete('lobbies');
+            this.lobbyRequests = [];
         }
     }
 }